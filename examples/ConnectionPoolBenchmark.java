@@ -0,0 +1,156 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import com.github.kevinsawicki.http.HttpRequest;
+
+import io.github.rowak.nanoleafapi.Aurora;
+
+/*
+ * This example measures the request throughput of the Aurora
+ * connection pool against a local stand-in for an Aurora controller.
+ *
+ * The "before" numbers use a fresh HttpRequest for every call (the way
+ * the api used to talk to the controller). The "after" numbers use an
+ * Aurora object, which sends all of its requests through its
+ * persistent ConnectionPool.
+ */
+public class ConnectionPoolBenchmark
+{
+	static final String TOKEN = "benchmark";
+	static final int REQUESTS = 5000;
+	static final int THREADS = 4;
+
+	public static void main(String[] args) throws Exception
+	{
+		ServerSocket server = startStandInServer();
+		int port = server.getLocalPort();
+		String url = "http://localhost:" + port + "/api/v1/" + TOKEN + "/state/brightness/value";
+
+		Aurora aurora = new Aurora("localhost", port, "v1", TOKEN);
+
+		// Warm up both paths
+		run(() -> HttpRequest.get(url).connectTimeout(2000).body(), 1, 500);
+		run(() -> aurora.state().getBrightness(), 1, 500);
+
+		for (int threads : new int[]{1, THREADS})
+		{
+			double before = run(() -> HttpRequest.get(url).connectTimeout(2000).body(),
+					threads, REQUESTS);
+			double after = run(() -> aurora.state().getBrightness(),
+					threads, REQUESTS);
+			System.out.printf("%d thread(s): before = %.0f req/s, after = %.0f req/s%n",
+					threads, before, after);
+		}
+		server.close();
+	}
+
+	static double run(Call call, int threads, int requests) throws Exception
+	{
+		Thread[] workers = new Thread[threads];
+		long start = System.nanoTime();
+		for (int i = 0; i < threads; i++)
+		{
+			workers[i] = new Thread(() ->
+			{
+				try
+				{
+					for (int j = 0; j < requests / threads; j++)
+					{
+						call.run();
+					}
+				}
+				catch (Exception e)
+				{
+					e.printStackTrace();
+				}
+			});
+			workers[i].start();
+		}
+		for (Thread t : workers)
+		{
+			t.join();
+		}
+		return requests / ((System.nanoTime() - start) / 1e9);
+	}
+
+	/**
+	 * A minimal HTTP/1.1 server that answers every request with a single
+	 * write (so that Nagle's algorithm doesn't distort the numbers).
+	 */
+	static ServerSocket startStandInServer() throws IOException
+	{
+		ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread acceptor = new Thread(() ->
+		{
+			while (!server.isClosed())
+			{
+				try
+				{
+					Socket socket = server.accept();
+					socket.setTcpNoDelay(true);
+					Thread handler = new Thread(() -> serve(socket));
+					handler.setDaemon(true);
+					handler.start();
+				}
+				catch (IOException e)
+				{
+					// server closed
+				}
+			}
+		});
+		acceptor.setDaemon(true);
+		acceptor.start();
+		return server;
+	}
+
+	static void serve(Socket socket)
+	{
+		try (Socket s = socket)
+		{
+			BufferedReader in = new BufferedReader(new InputStreamReader(
+					s.getInputStream(), StandardCharsets.ISO_8859_1));
+			OutputStream out = s.getOutputStream();
+			String requestLine;
+			while ((requestLine = in.readLine()) != null)
+			{
+				int contentLength = 0;
+				boolean close = false;
+				String line;
+				while ((line = in.readLine()) != null && !line.isEmpty())
+				{
+					String lower = line.toLowerCase();
+					if (lower.startsWith("content-length:"))
+						contentLength = Integer.parseInt(line.substring(15).trim());
+					else if (lower.startsWith("connection:") && lower.contains("close"))
+						close = true;
+				}
+				in.skip(contentLength);
+				String path = requestLine.split(" ")[1];
+				String body = path.endsWith("/" + TOKEN + "/") ?
+						"{\"name\":\"Stand-in\",\"serialNo\":\"S0\",\"manufacturer\":\"Nanoleaf\"," +
+						"\"firmwareVersion\":\"3.0.0\",\"model\":\"NL22\"}" : "50";
+				out.write(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\n" +
+						"Content-Length: " + body.length() + "\r\n\r\n" + body)
+						.getBytes(StandardCharsets.ISO_8859_1));
+				out.flush();
+				if (close)
+					break;
+			}
+		}
+		catch (IOException e)
+		{
+			// client went away
+		}
+	}
+
+	interface Call
+	{
+		void run() throws Exception;
+	}
+}
@@ -0,0 +1,102 @@
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.github.rowak.nanoleafapi.Aurora;
+
+/*
+ * This example measures the external streaming throughput against a
+ * local UDP receiver (no Aurora is needed).
+ *
+ * The "before" numbers open a new DatagramSocket for every frame (the
+ * way ExternalStreaming used to send its data). The "after" numbers use
+ * an ExternalStreaming session, which sends every frame through one
+ * connected DatagramChannel.
+ */
+public class ExternalStreamingBenchmark
+{
+	static final int FRAMES = 100000;
+	static final String FRAME = "1 42 1 255 0 128 0 1";
+
+	public static void main(String[] args) throws Exception
+	{
+		DatagramChannel receiver = DatagramChannel.open();
+		receiver.setOption(StandardSocketOptions.SO_RCVBUF, 4 * 1024 * 1024);
+		receiver.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		InetSocketAddress address = (InetSocketAddress)receiver.getLocalAddress();
+		AtomicLong received = new AtomicLong();
+		Thread reader = new Thread(() ->
+		{
+			ByteBuffer buffer = ByteBuffer.allocateDirect(2048);
+			try
+			{
+				while (true)
+				{
+					buffer.clear();
+					receiver.receive(buffer);
+					received.incrementAndGet();
+				}
+			}
+			catch (Exception e)
+			{
+				// receiver closed
+			}
+		});
+		reader.setDaemon(true);
+		reader.start();
+
+		// A lazy Aurora doesn't connect to a controller, and the streaming
+		// address can be pointed at the local receiver
+		Aurora aurora = Aurora.createLazy("localhost", 16021, "v1", "benchmark");
+		Aurora.ExternalStreaming streaming = aurora.externalStreaming();
+		streaming.setAddress(address);
+
+		byte[] data = {1, 42, 1, (byte)255, 0, (byte)128, 0, 1};
+
+		// Warm up both paths
+		for (int i = 0; i < FRAMES / 10; i++)
+		{
+			sendWithNewSocket(data, address);
+			streaming.sendAnimData(FRAME);
+		}
+
+		long before = received.get();
+		long start = System.nanoTime();
+		for (int i = 0; i < FRAMES; i++)
+		{
+			sendWithNewSocket(data, address);
+		}
+		double socketRate = FRAMES / ((System.nanoTime() - start) / 1e9);
+		Thread.sleep(200);
+		long socketReceived = received.get() - before;
+
+		before = received.get();
+		start = System.nanoTime();
+		for (int i = 0; i < FRAMES; i++)
+		{
+			streaming.sendAnimData(FRAME);
+		}
+		double channelRate = FRAMES / ((System.nanoTime() - start) / 1e9);
+		Thread.sleep(200);
+		long channelReceived = received.get() - before;
+
+		System.out.printf("before = %.0f frames/s (%d/%d received)%n",
+				socketRate, socketReceived, FRAMES);
+		System.out.printf("after  = %.0f frames/s (%d/%d received)%n",
+				channelRate, channelReceived, FRAMES);
+		streaming.close();
+		receiver.close();
+	}
+
+	static void sendWithNewSocket(byte[] data, InetSocketAddress address) throws Exception
+	{
+		DatagramSocket socket = new DatagramSocket();
+		socket.send(new DatagramPacket(data, data.length, address));
+		socket.close();
+	}
+}
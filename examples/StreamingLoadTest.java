@@ -0,0 +1,71 @@
+import io.github.rowak.nanoleafapi.Aurora;
+import io.github.rowak.nanoleafapi.StreamFormat;
+import io.github.rowak.nanoleafapi.StreamFrame;
+import io.github.rowak.nanoleafapi.StreamingRenderer;
+import io.github.rowak.nanoleafapi.StreamingSink;
+
+/*
+ * This example finds the highest frame rate that can be streamed without
+ * losing frames, using a local StreamingSink instead of an Aurora (no
+ * panels are needed).
+ *
+ * A producer submits frames to a StreamingRenderer as fast as it can, and
+ * the renderer's target frame rate is raised step by step. For each step,
+ * the sink reports how many frames actually arrived and how regularly.
+ */
+public class StreamingLoadTest
+{
+	static final int PANELS = 30;
+	static final int[] TARGETS = {30, 60, 120, 240, 480, 1000};
+	static final long STEP_MILLIS = 2000;
+
+	public static void main(String[] args) throws Exception
+	{
+		StreamFormat format = args.length > 0 && args[0].equalsIgnoreCase("v2") ?
+				StreamFormat.V2 : StreamFormat.V1;
+		StreamingSink sink = new StreamingSink(format);
+		sink.start();
+
+		// A lazy Aurora doesn't connect to a controller, and the streaming
+		// address can be pointed at the sink
+		Aurora aurora = Aurora.createLazy("localhost", 16021, "v1", "loadtest");
+		Aurora.ExternalStreaming streaming = aurora.externalStreaming();
+		streaming.setFormat(format);
+		streaming.setAddress(sink.getAddress());
+
+		StreamFrame frame = new StreamFrame(PANELS);
+		System.out.printf("%d panels, %s format%n", PANELS, format.getName());
+		for (int target : TARGETS)
+		{
+			StreamingRenderer renderer = new StreamingRenderer(streaming, target);
+			renderer.start();
+			Thread.sleep(100);
+			sink.reset();
+			long sentBefore = renderer.getFramesSent();
+			long end = System.currentTimeMillis() + STEP_MILLIS;
+			int i = 0;
+			while (System.currentTimeMillis() < end)
+			{
+				frame.clear();
+				for (int p = 0; p < PANELS; p++)
+				{
+					frame.setPanel(p, (i + p) & 0xFF, 0, 0, 0, 1);
+				}
+				renderer.submit(frame);
+				i++;
+			}
+			long sent = renderer.getFramesSent() - sentBefore;
+			renderer.close();
+			Thread.sleep(100);
+			long received = sink.getPacketsReceived();
+			double fps = received / (STEP_MILLIS / 1000.0);
+			System.out.printf("target %4d fps: received %7.1f fps, lost %d/%d, " +
+					"inter-arrival p50 %dus p99 %dus%n", target, fps,
+					Math.max(0, sent - received), sent,
+					sink.getInterArrival().getValueAtPercentile(50),
+					sink.getInterArrival().getValueAtPercentile(99));
+		}
+		streaming.close();
+		sink.close();
+	}
+}
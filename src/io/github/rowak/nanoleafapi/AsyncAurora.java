@@ -0,0 +1,1064 @@
+package io.github.rowak.nanoleafapi;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.github.rowak.nanoleafapi.schedule.Schedule;
+
+/**
+ * An asynchronous view of an {@link Aurora}. Every method mirrors a
+ * blocking method of the same name in <code>Aurora</code>, but runs it
+ * on an <code>Executor</code> and immediately returns a
+ * <code>CompletableFuture</code> for the result. Any exception thrown by
+ * the blocking method (such as a <code>StatusCodeException</code>) completes
+ * the future exceptionally.<br>
+ * By default, requests run on virtual threads if the JVM supports them,
+ * or on a shared pool of daemon threads otherwise.
+ */
+public class AsyncAurora
+{
+	private static final Executor DEFAULT_EXECUTOR = createDefaultExecutor();
+
+	private Aurora aurora;
+	private Executor executor;
+
+	private State state;
+	private Effects effects;
+	private PanelLayout panelLayout;
+	private Rhythm rhythm;
+	private Schedules schedules;
+
+	/**
+	 * Creates a new asynchronous view of an Aurora controller
+	 * that uses the default executor.
+	 * @param aurora  the Aurora controller
+	 */
+	public AsyncAurora(Aurora aurora)
+	{
+		this(aurora, DEFAULT_EXECUTOR);
+	}
+
+	/**
+	 * Creates a new asynchronous view of an Aurora controller.
+	 * @param aurora  the Aurora controller
+	 * @param executor  the executor that runs the requests
+	 */
+	public AsyncAurora(Aurora aurora, Executor executor)
+	{
+		this.aurora = aurora;
+		setExecutor(executor);
+		this.state = new State();
+		this.effects = new Effects();
+		this.panelLayout = new PanelLayout();
+		this.rhythm = new Rhythm();
+		this.schedules = new Schedules();
+	}
+
+	/**
+	 * Gets the default executor that is shared by all asynchronous Aurora views.
+	 * This is a virtual-thread-per-task executor if the JVM supports virtual
+	 * threads, and a cached pool of daemon threads otherwise.
+	 * @return  the default executor
+	 */
+	public static Executor getDefaultExecutor()
+	{
+		return DEFAULT_EXECUTOR;
+	}
+
+	/**
+	 * Gets the executor that runs the requests.
+	 * @return  the executor
+	 */
+	public Executor getExecutor()
+	{
+		return this.executor;
+	}
+
+	/**
+	 * Sets the executor that runs the requests.
+	 * @param executor  the executor
+	 */
+	public void setExecutor(Executor executor)
+	{
+		if (executor == null)
+		{
+			throw new NullPointerException("Cannot set null executor");
+		}
+		this.executor = executor;
+	}
+
+	/**
+	 * Gets the blocking Aurora that this view sends its requests through.
+	 * @return  the Aurora controller
+	 */
+	public Aurora getAurora()
+	{
+		return this.aurora;
+	}
+
+	/**
+	 * Returns the asynchronous version of the Aurora's <code>State</code> object.
+	 * @return  the asynchronous <code>State</code> object
+	 */
+	public State state()
+	{
+		return this.state;
+	}
+
+	/**
+	 * Returns the asynchronous version of the Aurora's <code>Effects</code> object.
+	 * @return  the asynchronous <code>Effects</code> object
+	 */
+	public Effects effects()
+	{
+		return this.effects;
+	}
+
+	/**
+	 * Returns the asynchronous version of the Aurora's <code>PanelLayout</code> object.
+	 * @return  the asynchronous <code>PanelLayout</code> object
+	 */
+	public PanelLayout panelLayout()
+	{
+		return this.panelLayout;
+	}
+
+	/**
+	 * Returns the asynchronous version of the Aurora's <code>Rhythm</code> object.
+	 * @return  the asynchronous <code>Rhythm</code> object
+	 */
+	public Rhythm rhythm()
+	{
+		return this.rhythm;
+	}
+
+	/**
+	 * Returns the asynchronous version of the Aurora's <code>Schedules</code> object.
+	 * @return  the asynchronous <code>Schedules</code> object
+	 */
+	public Schedules schedules()
+	{
+		return this.schedules;
+	}
+
+	/**
+	 * Causes the panels to flash in unison.
+	 * @return  a future for the response status code
+	 * @see Aurora#identify()
+	 */
+	public CompletableFuture<Integer> identify()
+	{
+		return supply(() -> aurora.identify());
+	}
+
+	/**
+	 * Gets all of the information about the Aurora using a single request.
+	 * @return  a future for the snapshot
+	 * @see Aurora#getSnapshot()
+	 */
+	public CompletableFuture<AuroraSnapshot> getSnapshot()
+	{
+		return supply(() -> aurora.getSnapshot());
+	}
+
+	/**
+	 * Runs a blocking Aurora call on the executor.
+	 * @param call  the blocking call
+	 * @return  a future for the result of the call
+	 */
+	<T> CompletableFuture<T> supply(Call<T> call)
+	{
+		CompletableFuture<T> future = new CompletableFuture<T>();
+		try
+		{
+			executor.execute(() ->
+			{
+				try
+				{
+					future.complete(call.call());
+				}
+				catch (Throwable t)
+				{
+					future.completeExceptionally(t);
+				}
+			});
+		}
+		catch (RuntimeException re)
+		{
+			future.completeExceptionally(re);
+		}
+		return future;
+	}
+
+	/**
+	 * Runs a blocking Aurora call that has no result on the executor.
+	 * @param call  the blocking call
+	 * @return  a future that completes when the call is done
+	 */
+	CompletableFuture<Void> run(VoidCall call)
+	{
+		return supply(() ->
+		{
+			call.call();
+			return null;
+		});
+	}
+
+	private static Executor createDefaultExecutor()
+	{
+		try
+		{
+			// Executors.newVirtualThreadPerTaskExecutor() only exists on newer JDKs
+			return (ExecutorService)Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException | RuntimeException e)
+		{
+			return Executors.newCachedThreadPool(r ->
+			{
+				Thread t = new Thread(r, "nanoleaf-async");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+
+	/**
+	 * A blocking Aurora call that returns a value.
+	 */
+	@FunctionalInterface
+	interface Call<T>
+	{
+		T call() throws Exception;
+	}
+
+	/**
+	 * A blocking Aurora call that does not return a value.
+	 */
+	@FunctionalInterface
+	interface VoidCall
+	{
+		void call() throws Exception;
+	}
+
+	/**
+	 * Asynchronous versions of the methods in {@link Aurora.State}.
+	 */
+	public class State
+	{
+		/**
+		 * Gets the on state of the Aurora (true = on, false = off).
+		 * @return  a future for the on state
+		 * @see Aurora.State#getOn()
+		 */
+		public CompletableFuture<Boolean> getOn()
+		{
+			return supply(() -> aurora.state().getOn());
+		}
+
+		/**
+		 * Sets the on state of the Aurora (true = on, false = off).
+		 * @param on  whether the Aurora should be turned on or off
+		 * @return  a future for the response status code
+		 * @see Aurora.State#setOn(boolean)
+		 */
+		public CompletableFuture<Integer> setOn(boolean on)
+		{
+			return supply(() -> aurora.state().setOn(on));
+		}
+
+		/**
+		 * Toggles the on state of the Aurora (on = off, off = on).
+		 * @return  a future for the response status code
+		 * @see Aurora.State#toggleOn()
+		 */
+		public CompletableFuture<Integer> toggleOn()
+		{
+			return supply(() -> aurora.state().toggleOn());
+		}
+
+		/**
+		 * Gets the master brightness of the Aurora.
+		 * @return  a future for the brightness
+		 * @see Aurora.State#getBrightness()
+		 */
+		public CompletableFuture<Integer> getBrightness()
+		{
+			return supply(() -> aurora.state().getBrightness());
+		}
+
+		/**
+		 * Sets the master brightness of the Aurora.
+		 * @param brightness  the new brightness level as a percent
+		 * @return  a future for the response status code
+		 * @see Aurora.State#setBrightness(int)
+		 */
+		public CompletableFuture<Integer> setBrightness(int brightness)
+		{
+			return supply(() -> aurora.state().setBrightness(brightness));
+		}
+
+		/**
+		 * Fades the master brightness of the Aurora over a perdiod of time.
+		 * @param brightness  the new brightness level as a percent
+		 * @param duration  the fade time <i>in seconds</i>
+		 * @return  a future for the response status code
+		 * @see Aurora.State#fadeToBrightness(int, int)
+		 */
+		public CompletableFuture<Integer> fadeToBrightness(int brightness, int duration)
+		{
+			return supply(() -> aurora.state().fadeToBrightness(brightness, duration));
+		}
+
+		/**
+		 * Increases the brightness by an amount as a percent.
+		 * @param amount  the amount to increase by
+		 * @return  a future for the response status code
+		 * @see Aurora.State#increaseBrightness(int)
+		 */
+		public CompletableFuture<Integer> increaseBrightness(int amount)
+		{
+			return supply(() -> aurora.state().increaseBrightness(amount));
+		}
+
+		/**
+		 * Decreases the brightness by an amount as a percent.
+		 * @param amount  the amount to decrease by
+		 * @return  a future for the response status code
+		 * @see Aurora.State#decreaseBrightness(int)
+		 */
+		public CompletableFuture<Integer> decreaseBrightness(int amount)
+		{
+			return supply(() -> aurora.state().decreaseBrightness(amount));
+		}
+
+		/**
+		 * Gets the maximum brightness of the Aurora.
+		 * @return  a future for the maximum brightness
+		 * @see Aurora.State#getMaxBrightness()
+		 */
+		public CompletableFuture<Integer> getMaxBrightness()
+		{
+			return supply(() -> aurora.state().getMaxBrightness());
+		}
+
+		/**
+		 * Gets the minimum brightness of the Aurora.
+		 * @return  a future for the minimum brightness
+		 * @see Aurora.State#getMinBrightness()
+		 */
+		public CompletableFuture<Integer> getMinBrightness()
+		{
+			return supply(() -> aurora.state().getMinBrightness());
+		}
+
+		/**
+		 * Gets the hue of the Aurora (static/custom effects only).
+		 * @return  a future for the hue
+		 * @see Aurora.State#getHue()
+		 */
+		public CompletableFuture<Integer> getHue()
+		{
+			return supply(() -> aurora.state().getHue());
+		}
+
+		/**
+		 * Sets the hue of the Aurora (static/custom effects only).
+		 * @param hue  the new hue
+		 * @return  a future for the response status code
+		 * @see Aurora.State#setHue(int)
+		 */
+		public CompletableFuture<Integer> setHue(int hue)
+		{
+			return supply(() -> aurora.state().setHue(hue));
+		}
+
+		/**
+		 * Gets the maximum hue of the Aurora.
+		 * @return  a future for the maximum hue
+		 * @see Aurora.State#getMaxHue()
+		 */
+		public CompletableFuture<Integer> getMaxHue()
+		{
+			return supply(() -> aurora.state().getMaxHue());
+		}
+
+		/**
+		 * Gets the minimum hue of the Aurora.
+		 * @return  a future for the minimum hue
+		 * @see Aurora.State#getMinHue()
+		 */
+		public CompletableFuture<Integer> getMinHue()
+		{
+			return supply(() -> aurora.state().getMinHue());
+		}
+
+		/**
+		 * Gets the saturation of the Aurora (static/custom effects only).
+		 * @return  a future for the saturation
+		 * @see Aurora.State#getSaturation()
+		 */
+		public CompletableFuture<Integer> getSaturation()
+		{
+			return supply(() -> aurora.state().getSaturation());
+		}
+
+		/**
+		 * Sets the saturation of the Aurora (static/custom effects only).
+		 * @param saturation  the new saturation
+		 * @return  a future for the response status code
+		 * @see Aurora.State#setSaturation(int)
+		 */
+		public CompletableFuture<Integer> setSaturation(int saturation)
+		{
+			return supply(() -> aurora.state().setSaturation(saturation));
+		}
+
+		/**
+		 * Gets the maximum saturation of the Aurora.
+		 * @return  a future for the maximum saturation
+		 * @see Aurora.State#getMaxSaturation()
+		 */
+		public CompletableFuture<Integer> getMaxSaturation()
+		{
+			return supply(() -> aurora.state().getMaxSaturation());
+		}
+
+		/**
+		 * Gets the minimum saturation of the Aurora.
+		 * @return  a future for the minimum saturation
+		 * @see Aurora.State#getMinSaturation()
+		 */
+		public CompletableFuture<Integer> getMinSaturation()
+		{
+			return supply(() -> aurora.state().getMinSaturation());
+		}
+
+		/**
+		 * Gets the color temperature of the Aurora (color temperature effect only).
+		 * @return  a future for the color temperature
+		 * @see Aurora.State#getColorTemperature()
+		 */
+		public CompletableFuture<Integer> getColorTemperature()
+		{
+			return supply(() -> aurora.state().getColorTemperature());
+		}
+
+		/**
+		 * Sets the color temperature of the Aurora in Kelvins.
+		 * @param colorTemperature  color temperature in Kelvins
+		 * @return  a future for the response status code
+		 * @see Aurora.State#setColorTemperature(int)
+		 */
+		public CompletableFuture<Integer> setColorTemperature(int colorTemperature)
+		{
+			return supply(() -> aurora.state().setColorTemperature(colorTemperature));
+		}
+
+		/**
+		 * Gets the maximum color temperature of the Aurora.
+		 * @return  a future for the maximum color temperature
+		 * @see Aurora.State#getMaxColorTemperature()
+		 */
+		public CompletableFuture<Integer> getMaxColorTemperature()
+		{
+			return supply(() -> aurora.state().getMaxColorTemperature());
+		}
+
+		/**
+		 * Gets the minimum color temperature of the Aurora.
+		 * @return  a future for the minimum color temperature
+		 * @see Aurora.State#getMinColorTemperature()
+		 */
+		public CompletableFuture<Integer> getMinColorTemperature()
+		{
+			return supply(() -> aurora.state().getMinColorTemperature());
+		}
+
+		/**
+		 * Gets the color mode of the Aurora.
+		 * @return  a future for the color mode
+		 * @see Aurora.State#getColorMode()
+		 */
+		public CompletableFuture<String> getColorMode()
+		{
+			return supply(() -> aurora.state().getColorMode());
+		}
+
+		/**
+		 * Gets the current color (HSB/RGB) of the Aurora.
+		 * @return  a future for the color
+		 * @see Aurora.State#getColor()
+		 */
+		public CompletableFuture<Color> getColor()
+		{
+			return supply(() -> aurora.state().getColor());
+		}
+
+		/**
+		 * Sets the color (HSB/RGB) of the Aurora.
+		 * @param color  the new color
+		 * @return  a future that completes when the color has been set
+		 * @see Aurora.State#setColor(Color)
+		 */
+		public CompletableFuture<Void> setColor(Color color)
+		{
+			return run(() -> aurora.state().setColor(color));
+		}
+
+		/**
+		 * Sends several state changes to the Aurora as a single request.
+		 * @param batch  the setter calls to send together
+		 * @return  a future for the response status code
+		 * @see Aurora.State#batch(StateBatch)
+		 */
+		public CompletableFuture<Integer> batch(StateBatch batch)
+		{
+			return supply(() -> aurora.state().batch(batch));
+		}
+
+		/**
+		 * Immediately sends all of the state changes that are waiting for
+		 * the coalescing window to end.
+		 * @return  a future for the response status code
+		 * @see Aurora.State#flush()
+		 */
+		public CompletableFuture<Integer> flush()
+		{
+			return supply(() -> aurora.state().flush());
+		}
+	}
+
+	/**
+	 * Asynchronous versions of the methods in {@link Aurora.Effects}.
+	 */
+	public class Effects
+	{
+		/**
+		 * Gets the name of the currently selected effect on the Aurora controller.
+		 * @return  a future for the name of the effect
+		 * @see Aurora.Effects#getCurrentEffectName()
+		 */
+		public CompletableFuture<String> getCurrentEffectName()
+		{
+			return supply(() -> aurora.effects().getCurrentEffectName());
+		}
+
+		/**
+		 * Gets the currently selected effect as an <code>Effect</code> object.
+		 * @return  a future for the effect object
+		 * @see Aurora.Effects#getCurrentEffect()
+		 */
+		public CompletableFuture<Effect> getCurrentEffect()
+		{
+			return supply(() -> aurora.effects().getCurrentEffect());
+		}
+
+		/**
+		 * Sets the selected effect on the Aurora.
+		 * @param effectName  the name of the effect
+		 * @return  a future for the response status code
+		 * @see Aurora.Effects#setEffect(String)
+		 */
+		public CompletableFuture<Integer> setEffect(String effectName)
+		{
+			return supply(() -> aurora.effects().setEffect(effectName));
+		}
+
+		/**
+		 * Sets a random effect based on the effects installed on the Aurora controller.
+		 * @return  a future for the response status code
+		 * @see Aurora.Effects#setRandomEffect()
+		 */
+		public CompletableFuture<Integer> setRandomEffect()
+		{
+			return supply(() -> aurora.effects().setRandomEffect());
+		}
+
+		/**
+		 * Gets a string array of all the effects installed on the Aurora controller.
+		 * @return  a future for the names of the effects
+		 * @see Aurora.Effects#getEffectsList()
+		 */
+		public CompletableFuture<String[]> getEffectsList()
+		{
+			return supply(() -> aurora.effects().getEffectsList());
+		}
+
+		/**
+		 * Gets an effect from the Aurora controller.
+		 * @param effectName  the name of the effect
+		 * @return  a future for the effect
+		 * @see Aurora.Effects#getEffect(String)
+		 */
+		public CompletableFuture<Effect> getEffect(String effectName)
+		{
+			return supply(() -> aurora.effects().getEffect(effectName));
+		}
+
+		/**
+		 * Gets all of the effects installed on the Aurora controller.
+		 * @return  a future for the effects
+		 * @see Aurora.Effects#getAllEffects()
+		 */
+		public CompletableFuture<Effect[]> getAllEffects()
+		{
+			return supply(() -> aurora.effects().getAllEffects());
+		}
+
+		/**
+		 * Uploads and installs a local effect to the Aurora controller.
+		 * @param effect  the effect to be uploaded
+		 * @return  a future for the response status code
+		 * @see Aurora.Effects#addEffect(Effect)
+		 */
+		public CompletableFuture<Integer> addEffect(Effect effect)
+		{
+			return supply(() -> aurora.effects().addEffect(effect));
+		}
+
+		/**
+		 * Deletes an effect from the Aurora controller.
+		 * @param effectName  the name of the effect
+		 * @return  a future for the response status code
+		 * @see Aurora.Effects#deleteEffect(String)
+		 */
+		public CompletableFuture<Integer> deleteEffect(String effectName)
+		{
+			return supply(() -> aurora.effects().deleteEffect(effectName));
+		}
+
+		/**
+		 * Renames an effect on the Aurora controller.
+		 * @param effectName  the name of the effect
+		 * @param newName  the new name of the effect
+		 * @return  a future for the response status code
+		 * @see Aurora.Effects#renameEffect(String, String)
+		 */
+		public CompletableFuture<Integer> renameEffect(String effectName, String newName)
+		{
+			return supply(() -> aurora.effects().renameEffect(effectName, newName));
+		}
+
+		/**
+		 * Uploads and previews a local effect on the Aurora controller without installing it.
+		 * @param effect  the effect to be previewed
+		 * @return  a future for the response status code
+		 * @see Aurora.Effects#displayEffect(Effect)
+		 */
+		public CompletableFuture<Integer> displayEffect(Effect effect)
+		{
+			return supply(() -> aurora.effects().displayEffect(effect));
+		}
+
+		/**
+		 * Previews an installed effect on the Aurora controller for a given duration.
+		 * @param effectName  the name of the effect to be previewed
+		 * @param duration  the duration for the effect to be displayed
+		 * @return  a future for the response status code
+		 * @see Aurora.Effects#displayEffectFor(String, int)
+		 */
+		public CompletableFuture<Integer> displayEffectFor(String effectName, int duration)
+		{
+			return supply(() -> aurora.effects().displayEffectFor(effectName, duration));
+		}
+
+		/**
+		 * Sets the color of a single panel on the Aurora.
+		 * @param panel  the target panel
+		 * @param red  the red RGB value
+		 * @param green  the green RGB value
+		 * @param blue  the blue RGB value
+		 * @param transitionTime  the time to transition to this frame from
+		 * 						  the previous frame (must be 1 or greater)
+		 * @return  a future for the response status code
+		 * @see Aurora.Effects#setPanelColor(Panel, int, int, int, int)
+		 */
+		public CompletableFuture<Integer> setPanelColor(Panel panel, int red,
+				int green, int blue, int transitionTime)
+		{
+			return supply(() -> aurora.effects().setPanelColor(panel,
+					red, green, blue, transitionTime));
+		}
+
+		/**
+		 * Sets the color of a single panel on the Aurora.
+		 * @param panel  the target panel
+		 * @param hexColor  the new hex color
+		 * @param transitionTime  the time to transition to this frame from
+		 * 						  the previous frame (must be 1 or greater)
+		 * @return  a future for the response status code
+		 * @see Aurora.Effects#setPanelColor(Panel, String, int)
+		 */
+		public CompletableFuture<Integer> setPanelColor(Panel panel,
+				String hexColor, int transitionTime)
+		{
+			return supply(() -> aurora.effects().setPanelColor(panel,
+					hexColor, transitionTime));
+		}
+
+		/**
+		 * Sets the color of a single panel on the Aurora.
+		 * @param panelId  the target panel id
+		 * @param red  the red RGB value
+		 * @param green  the green RGB value
+		 * @param blue  the blue RGB value
+		 * @param transitionTime  the time to transition to this frame from
+		 * 						  the previous frame (must be 1 or greater)
+		 * @return  a future for the response status code
+		 * @see Aurora.Effects#setPanelColor(int, int, int, int, int)
+		 */
+		public CompletableFuture<Integer> setPanelColor(int panelId, int red,
+				int green, int blue, int transitionTime)
+		{
+			return supply(() -> aurora.effects().setPanelColor(panelId,
+					red, green, blue, transitionTime));
+		}
+
+		/**
+		 * Sets the color of a single panel on the Aurora.
+		 * @param panelId  the target panel id
+		 * @param hexColor  the new hex color
+		 * @param transitionTime  the time to transition to this frame from
+		 * 						  the previous frame (must be 1 or greater)
+		 * @return  a future for the response status code
+		 * @see Aurora.Effects#setPanelColor(int, String, int)
+		 */
+		public CompletableFuture<Integer> setPanelColor(int panelId,
+				String hexColor, int transitionTime)
+		{
+			return supply(() -> aurora.effects().setPanelColor(panelId,
+					hexColor, transitionTime));
+		}
+
+		/**
+		 * Fades all of the panels to an RGB color over a perdiod of time.
+		 * @param red  the red RGB value
+		 * @param green  the green RGB value
+		 * @param blue  the blue RGB value
+		 * @param duration  the fade time <i>in hertz (10Hz = 1sec)</i>
+		 * @return  a future for the response status code
+		 * @see Aurora.Effects#fadeToColor(int, int, int, int)
+		 */
+		public CompletableFuture<Integer> fadeToColor(int red,
+				int green, int blue, int duration)
+		{
+			return supply(() -> aurora.effects().fadeToColor(red,
+					green, blue, duration));
+		}
+
+		/**
+		 * Fades all of the panels to a hex color over a perdiod of time.
+		 * @param hexColor the new hex color
+		 * @param duration  the fade time <i>in hertz (frames per second)</i>
+		 * @return  a future for the response status code
+		 * @see Aurora.Effects#fadeToColor(String, int)
+		 */
+		public CompletableFuture<Integer> fadeToColor(String hexColor, int duration)
+		{
+			return supply(() -> aurora.effects().fadeToColor(hexColor, duration));
+		}
+
+		/**
+		 * Gets <i>all</i> the plugins/motions from the Aurora.
+		 * @return  a future for the plugins
+		 * @see Aurora.Effects#getPlugins()
+		 */
+		public CompletableFuture<Plugin[]> getPlugins()
+		{
+			return supply(() -> aurora.effects().getPlugins());
+		}
+
+		/**
+		 * Uploads a <code>JSON</code> write command to the Aurora controller.
+		 * @param command  the operation to perform the write with
+		 * @return  a future for the response status code
+		 * @see Aurora.Effects#writeEffect(String)
+		 */
+		public CompletableFuture<Integer> writeEffect(String command)
+		{
+			return supply(() -> aurora.effects().writeEffect(command));
+		}
+	}
+
+	/**
+	 * Asynchronous versions of the methods in {@link Aurora.PanelLayout}.
+	 */
+	public class PanelLayout
+	{
+		/**
+		 * Gets the number of panels connected to the Aurora controller.
+		 * @param includeRhythm  whether or not to include the Rhythm as a panel
+		 * @return  a future for the number of panels
+		 * @see Aurora.PanelLayout#getNumPanels(boolean)
+		 */
+		public CompletableFuture<Integer> getNumPanels(boolean includeRhythm)
+		{
+			return supply(() -> aurora.panelLayout().getNumPanels(includeRhythm));
+		}
+
+		/**
+		 * Gets the side length of each panel connected to the Aurora.
+		 * @return  a future for the side length
+		 * @see Aurora.PanelLayout#getSideLength()
+		 */
+		public CompletableFuture<Integer> getSideLength()
+		{
+			return supply(() -> aurora.panelLayout().getSideLength());
+		}
+
+		/**
+		 * Gets an array of the connected panels.
+		 * @return  a future for the panels
+		 * @see Aurora.PanelLayout#getPanels()
+		 */
+		public CompletableFuture<Panel[]> getPanels()
+		{
+			return supply(() -> aurora.panelLayout().getPanels());
+		}
+
+		/**
+		 * Gets an array of the connected panels that are
+		 * rotated to match the global orientation.
+		 * @return  a future for the rotated panels
+		 * @see Aurora.PanelLayout#getPanelsRotated()
+		 */
+		public CompletableFuture<Panel[]> getPanelsRotated()
+		{
+			return supply(() -> aurora.panelLayout().getPanelsRotated());
+		}
+
+		/**
+		 * Finds a <code>Panel</code> object using its panel id.
+		 * @param id  the panel id for the panel
+		 * @return  a future for the panel (which completes with null if no panel is found)
+		 * @see Aurora.PanelLayout#getPanel(int)
+		 */
+		public CompletableFuture<Panel> getPanel(int id)
+		{
+			return supply(() -> aurora.panelLayout().getPanel(id));
+		}
+
+		/**
+		 * Gets the global orientation for the Aurora.
+		 * @return  a future for the global orientation
+		 * @see Aurora.PanelLayout#getGlobalOrientation()
+		 */
+		public CompletableFuture<Integer> getGlobalOrientation()
+		{
+			return supply(() -> aurora.panelLayout().getGlobalOrientation());
+		}
+
+		/**
+		 * Sets the global orientation for the Aurora.
+		 * @param orientation  the global orientation
+		 * @return  a future for the response status code
+		 * @see Aurora.PanelLayout#setGlobalOrientation(int)
+		 */
+		public CompletableFuture<Integer> setGlobalOrientation(int orientation)
+		{
+			return supply(() -> aurora.panelLayout().setGlobalOrientation(orientation));
+		}
+
+		/**
+		 * Gets the maximum global orientation for the Aurora.
+		 * @return  a future for the maximum global orientation
+		 * @see Aurora.PanelLayout#getMaxGlobalOrientation()
+		 */
+		public CompletableFuture<Integer> getMaxGlobalOrientation()
+		{
+			return supply(() -> aurora.panelLayout().getMaxGlobalOrientation());
+		}
+
+		/**
+		 * Gets the minimum global orientation for the Aurora.
+		 * @return  a future for the minimum global orientation
+		 * @see Aurora.PanelLayout#getMinGlobalOrientation()
+		 */
+		public CompletableFuture<Integer> getMinGlobalOrientation()
+		{
+			return supply(() -> aurora.panelLayout().getMinGlobalOrientation());
+		}
+	}
+
+	/**
+	 * Asynchronous versions of the methods in {@link Aurora.Rhythm}.
+	 */
+	public class Rhythm
+	{
+		/**
+		 * Indicates if the Rhythm is connected to the Light Panels or not.
+		 * @return  a future that completes with true, if the Rhythm is connected
+		 * @see Aurora.Rhythm#getConnected()
+		 */
+		public CompletableFuture<Boolean> getConnected()
+		{
+			return supply(() -> aurora.rhythm().getConnected());
+		}
+
+		/**
+		 * Indicates if the Rhythm's microphone is currently active or not.
+		 * @return  a future that completes with true, if the Rhythm is active
+		 * @see Aurora.Rhythm#getActive()
+		 */
+		public CompletableFuture<Boolean> getActive()
+		{
+			return supply(() -> aurora.rhythm().getActive());
+		}
+
+		/**
+		 * Indicates the Rhythm's Id in the Light Panel system.
+		 * @return  a future for the Rhythm's Id
+		 * @see Aurora.Rhythm#getId()
+		 */
+		public CompletableFuture<Integer> getId()
+		{
+			return supply(() -> aurora.rhythm().getId());
+		}
+
+		/**
+		 * Indicates the Rhythm's hardware version.
+		 * @return  a future for the Rhythm's hardware version
+		 * @see Aurora.Rhythm#getHardwareVersion()
+		 */
+		public CompletableFuture<String> getHardwareVersion()
+		{
+			return supply(() -> aurora.rhythm().getHardwareVersion());
+		}
+
+		/**
+		 * Indicates the Rhythm's firmware version.
+		 * @return  a future for the Rhythm's firmware version
+		 * @see Aurora.Rhythm#getFirmwareVersion()
+		 */
+		public CompletableFuture<String> getFirmwareVersion()
+		{
+			return supply(() -> aurora.rhythm().getFirmwareVersion());
+		}
+
+		/**
+		 * Indicates if an aux cable (3.5mm) is currently connected to the Rhythm.
+		 * @return  a future that completes with true, if an aux cable is connected
+		 * @see Aurora.Rhythm#auxAvailable()
+		 */
+		public CompletableFuture<Boolean> auxAvailable()
+		{
+			return supply(() -> aurora.rhythm().auxAvailable());
+		}
+
+		/**
+		 * Gets the sound source of the Rhythm (0 = microphone, 1 = aux cable).
+		 * @return  a future for the Rhythm mode
+		 * @see Aurora.Rhythm#getMode()
+		 */
+		public CompletableFuture<Integer> getMode()
+		{
+			return supply(() -> aurora.rhythm().getMode());
+		}
+
+		/**
+		 * Sets the sound source of the Rhythm (0 = microphone, 1 = aux cable).
+		 * @param mode  the Rhythm mode (0 or 1 only)
+		 * @return  a future for the response status code
+		 * @see Aurora.Rhythm#setMode(int)
+		 */
+		public CompletableFuture<Integer> setMode(int mode)
+		{
+			return supply(() -> aurora.rhythm().setMode(mode));
+		}
+
+		/**
+		 * Indicates the position and orientation of the Rhythm in the Light Panels' layout.
+		 * @return  a future for the <code>Position</code> of the Rhythm
+		 * @see Aurora.Rhythm#getPosition()
+		 */
+		public CompletableFuture<Position> getPosition()
+		{
+			return supply(() -> aurora.rhythm().getPosition());
+		}
+	}
+
+	/**
+	 * Asynchronous versions of the methods in {@link Aurora.Schedules}.
+	 */
+	public class Schedules
+	{
+		/**
+		 * Gets an array of schedules stored on the Aurora.
+		 * @return  a future for the schedules
+		 * @see Aurora.Schedules#getSchedules()
+		 */
+		public CompletableFuture<Schedule[]> getSchedules()
+		{
+			return supply(() -> aurora.schedules().getSchedules());
+		}
+
+		/**
+		 * Uploads an array of schedules to the Aurora.
+		 * @param schedules  an array of schedules
+		 * @return  a future that completes when the schedules have been uploaded
+		 * @see Aurora.Schedules#addSchedules(Schedule[])
+		 */
+		public CompletableFuture<Void> addSchedules(Schedule[] schedules)
+		{
+			return run(() -> aurora.schedules().addSchedules(schedules));
+		}
+
+		/**
+		 * Uploads a schedule to the Aurora.
+		 * @param schedule  the schedule
+		 * @return  a future that completes when the schedule has been uploaded
+		 * @see Aurora.Schedules#addSchedule(Schedule)
+		 */
+		public CompletableFuture<Void> addSchedule(Schedule schedule)
+		{
+			return run(() -> aurora.schedules().addSchedule(schedule));
+		}
+
+		/**
+		 * Deletes an array of schedules from the Aurora.
+		 * @param schedules  an array of schedules
+		 * @return  a future that completes when the schedules have been deleted
+		 * @see Aurora.Schedules#removeSchedules(Schedule[])
+		 */
+		public CompletableFuture<Void> removeSchedules(Schedule[] schedules)
+		{
+			return run(() -> aurora.schedules().removeSchedules(schedules));
+		}
+
+		/**
+		 * Deletes a schedule from the Aurora.
+		 * @param schedule  the schedule
+		 * @return  a future that completes when the schedule has been deleted
+		 * @see Aurora.Schedules#removeSchedule(Schedule)
+		 */
+		public CompletableFuture<Void> removeSchedule(Schedule schedule)
+		{
+			return run(() -> aurora.schedules().removeSchedule(schedule));
+		}
+
+		/**
+		 * Deletes an array of schedules from the Aurora using their unique schedule IDs.
+		 * @param scheduleIds  an array of schedule IDs
+		 * @return  a future that completes when the schedules have been deleted
+		 * @see Aurora.Schedules#removeSchedulesById(int[])
+		 */
+		public CompletableFuture<Void> removeSchedulesById(int[] scheduleIds)
+		{
+			return run(() -> aurora.schedules().removeSchedulesById(scheduleIds));
+		}
+
+		/**
+		 * Deletes a schedule from the Aurora using its unique schedule ID.
+		 * @param scheduleId  the schedule ID
+		 * @return  a future that completes when the schedule has been deleted
+		 * @see Aurora.Schedules#removeScheduleById(int)
+		 */
+		public CompletableFuture<Void> removeScheduleById(int scheduleId)
+		{
+			return run(() -> aurora.schedules().removeScheduleById(scheduleId));
+		}
+	}
+}
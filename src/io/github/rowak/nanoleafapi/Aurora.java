@@ -1,25 +1,39 @@
 package io.github.rowak.nanoleafapi;
 
-import java.awt.Point;
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
+import java.io.InterruptedIOException;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
-import com.github.kevinsawicki.http.HttpRequest;
 import com.github.kevinsawicki.http.HttpRequest.HttpRequestException;
 
 import io.github.rowak.nanoleafapi.StatusCodeException.ResourceNotFoundException;
 import io.github.rowak.nanoleafapi.StatusCodeException.UnauthorizedException;
 import io.github.rowak.nanoleafapi.StatusCodeException.UnprocessableEntityException;
 import io.github.rowak.nanoleafapi.effectbuilder.CustomEffectBuilder;
+import io.github.rowak.nanoleafapi.metrics.MetricsRegistry;
 import io.github.rowak.nanoleafapi.schedule.Schedule;
 
 /**
@@ -28,6 +42,18 @@ import io.github.rowak.nanoleafapi.schedule.Schedule;
  */
 public class Aurora
 {
+	/**
+	 * Runs delayed background tasks (such as coalesced state writes)
+	 * for every Aurora.
+	 */
+	static final ScheduledExecutorService SCHEDULER =
+			Executors.newSingleThreadScheduledExecutor(r ->
+			{
+				Thread t = new Thread(r, "nanoleaf-scheduler");
+				t.setDaemon(true);
+				return t;
+			});
+	
 	private String hostName, apiLevel, accessToken;
 	private int port;
 	
@@ -36,6 +62,7 @@ public class Aurora
 	private String manufacturer;
 	private String firmwareVersion;
 	private String model;
+	private boolean infoFetched;
 	
 	private State state;
 	private Effects effects;
@@ -43,6 +70,16 @@ public class Aurora
 	private Rhythm rhythm;
 	private ExternalStreaming externalStreaming;
 	private Schedules schedules;
+	private AsyncAurora async;
+	
+	private ConnectionPool pool;
+	private ReadCache cache;
+	private AuroraEvents events;
+	private EffectLibrary effectLibrary;
+	private volatile MetricsRegistry metrics;
+	private volatile RetryPolicy retryPolicy = RetryPolicy.NONE;
+	private volatile CircuitBreaker breaker;
+	private volatile PluginCache pluginCache;
 	
 	/**
 	 * Creates a new instance of the Aurora controller.
@@ -90,6 +127,129 @@ public class Aurora
 		init(metadata.getHostName(), metadata.getPort(), apiLevel, accessToken);
 	}
 	
+	/**
+	 * Creates a new instance of the Aurora controller without connecting to it.
+	 * The controller information (name, serial number, etc.) is requested
+	 * the first time that it is needed, or when {@link #fetchInfo()} is called.
+	 * @param hostName  the hostname of the Aurora controller
+	 * @param port  the port of the Aurora controller (default=16021)
+	 * @param apiLevel  the current version of the Aurora OpenAPI (for example: v1)
+	 * @param accessToken  a unique authentication token
+	 * @return  a new, unconnected Aurora
+	 */
+	public static Aurora createLazy(String hostName, int port,
+			String apiLevel, String accessToken)
+	{
+		Aurora aurora = new Aurora();
+		aurora.setup(hostName, port, apiLevel, accessToken);
+		return aurora;
+	}
+	
+	/**
+	 * Creates a new instance of the Aurora controller without connecting to it.
+	 * The controller information (name, serial number, etc.) is requested
+	 * the first time that it is needed, or when {@link #fetchInfo()} is called.
+	 * @param metadata  the <code>AuroraMetadata</code> associated with the Aurora controller
+	 * @param apiLevel  the current version of the Aurora OpenAPI (for example: v1)
+	 * @param accessToken  a unique authentication token
+	 * @return  a new, unconnected Aurora
+	 */
+	public static Aurora createLazy(AuroraMetadata metadata,
+			String apiLevel, String accessToken)
+	{
+		return createLazy(metadata.getHostName(), metadata.getPort(), apiLevel, accessToken);
+	}
+	
+	/**
+	 * Connects to many Aurora controllers at the same time, using the v1 API
+	 * and the default executor of {@link AsyncAurora}.
+	 * @param metadata  the Aurora controllers to connect to
+	 * @param accessTokens  the access token of each controller, mapped by
+	 * 						device id or by host name
+	 * @return  the controllers that were connected and the ones that failed
+	 * @see #connectAll(Collection, Map, String, Executor)
+	 */
+	public static ConnectAllResult connectAll(Collection<AuroraMetadata> metadata,
+			Map<String, String> accessTokens)
+	{
+		return connectAll(metadata, accessTokens, "v1", AsyncAurora.getDefaultExecutor());
+	}
+	
+	/**
+	 * Connects to many Aurora controllers at the same time. Every controller
+	 * is created (and its information requested) on the executor, and this
+	 * method returns once all of them have either connected or failed.
+	 * The access token of each controller is looked up by its device id first,
+	 * and then by its host name.
+	 * @param metadata  the Aurora controllers to connect to
+	 * @param accessTokens  the access token of each controller, mapped by
+	 * 						device id or by host name
+	 * @param apiLevel  the current version of the Aurora OpenAPI (for example: v1)
+	 * @param executor  the executor to connect on
+	 * @return  the controllers that were connected and the ones that failed
+	 */
+	public static ConnectAllResult connectAll(Collection<AuroraMetadata> metadata,
+			Map<String, String> accessTokens, String apiLevel, Executor executor)
+	{
+		Map<AuroraMetadata, CompletableFuture<Aurora>> futures =
+				new LinkedHashMap<AuroraMetadata, CompletableFuture<Aurora>>();
+		for (AuroraMetadata device : metadata)
+		{
+			String accessToken = device.getDeviceId() != null ?
+					accessTokens.get(device.getDeviceId()) : null;
+			if (accessToken == null)
+			{
+				accessToken = accessTokens.get(device.getHostName());
+			}
+			CompletableFuture<Aurora> future = new CompletableFuture<Aurora>();
+			futures.put(device, future);
+			if (accessToken == null)
+			{
+				future.completeExceptionally(new IllegalArgumentException(
+						"No access token for " + device.getHostName()));
+				continue;
+			}
+			String token = accessToken;
+			try
+			{
+				executor.execute(() ->
+				{
+					try
+					{
+						future.complete(new Aurora(device, apiLevel, token));
+					}
+					catch (Exception e)
+					{
+						future.completeExceptionally(e);
+					}
+				});
+			}
+			catch (RejectedExecutionException ree)
+			{
+				future.completeExceptionally(ree);
+			}
+		}
+		
+		Map<AuroraMetadata, Aurora> connected = new LinkedHashMap<AuroraMetadata, Aurora>();
+		Map<AuroraMetadata, Exception> failed = new LinkedHashMap<AuroraMetadata, Exception>();
+		for (Map.Entry<AuroraMetadata, CompletableFuture<Aurora>> entry : futures.entrySet())
+		{
+			try
+			{
+				connected.put(entry.getKey(), entry.getValue().join());
+			}
+			catch (CompletionException ce)
+			{
+				Throwable cause = ce.getCause();
+				failed.put(entry.getKey(), cause instanceof Exception ?
+						(Exception)cause : new ExecutionException(cause));
+			}
+		}
+		return new ConnectAllResult(connected, failed);
+	}
+	
+	private Aurora() {}
+	
 	/**
 	 * Initialize the Aurora object and gather initial data.
 	 * @param host  the hostname of the Aurora controller
@@ -103,6 +263,21 @@ public class Aurora
 	private void init(String hostName, int port,
 			String apiLevel, String accessToken) throws StatusCodeException,
 			UnauthorizedException, HttpRequestException
+	{
+		setup(hostName, port, apiLevel, accessToken);
+		fetchInfo();
+	}
+	
+	/**
+	 * Initialize the Aurora object without connecting to it.
+	 * @param host  the hostname of the Aurora controller
+	 * @param port  the port of the Aurora controller (default=16021)
+	 * @param apiLevel  the current version of the Aurora OpenAPI
+	 * 					(for example: "v1" or "beta")
+	 * @param accessToken  a unique authentication token
+	 */
+	private void setup(String hostName, int port,
+			String apiLevel, String accessToken)
 	{
 		this.hostName = hostName;
 		this.apiLevel = apiLevel;
@@ -115,17 +290,68 @@ public class Aurora
 		this.rhythm = new Rhythm();
 		this.externalStreaming = new ExternalStreaming();
 		this.schedules = new Schedules();
-		
-		HttpRequest req = get(getURL(""));
-		int code = req.code();
+		this.async = new AsyncAurora(this);
+		this.pool = new ConnectionPool(hostName, port);
+		this.cache = new ReadCache();
+		this.events = new AuroraEvents(this);
+		this.effectLibrary = new EffectLibrary(this);
+	}
+	
+	/**
+	 * Requests the controller information (name, serial number, manufacturer,
+	 * firmware version and model) from the Aurora. This is done automatically
+	 * by the constructors, and the first time that the information is needed
+	 * by an Aurora that was created using <code>createLazy()</code>.
+	 * @throws UnauthorizedException  if the access token is invalid
+	 * @throws HttpRequestException  if the connection to the Aurora times out
+	 */
+	public void fetchInfo() throws StatusCodeException,
+			UnauthorizedException, HttpRequestException
+	{
+		HttpResponse res = get("");
+		int code = res.code();
 		checkStatusCode(code);
-		String body = req.body();
+		String body = res.body();
 		JSONObject controllerInfo = new JSONObject(body);
-		this.name = controllerInfo.getString("name");
-		this.serialNumber = controllerInfo.getString("serialNo");
-		this.manufacturer = controllerInfo.getString("manufacturer");
-		this.firmwareVersion = controllerInfo.getString("firmwareVersion");
-		this.model = controllerInfo.getString("model");
+		synchronized (this)
+		{
+			this.name = controllerInfo.getString("name");
+			this.serialNumber = controllerInfo.getString("serialNo");
+			this.manufacturer = controllerInfo.getString("manufacturer");
+			this.firmwareVersion = controllerInfo.getString("firmwareVersion");
+			this.model = controllerInfo.getString("model");
+			this.infoFetched = true;
+		}
+	}
+	
+	/**
+	 * Checks if the controller information has been requested.
+	 * @return  true, if the controller information is available
+	 */
+	public synchronized boolean isInfoFetched()
+	{
+		return this.infoFetched;
+	}
+	
+	/**
+	 * Requests the controller information if it hasn't been requested yet.
+	 * @throws IllegalStateException  if the Aurora returns an error status code
+	 * @throws HttpRequestException  if the connection to the Aurora times out
+	 */
+	private synchronized void ensureInfo()
+	{
+		if (!infoFetched)
+		{
+			try
+			{
+				fetchInfo();
+			}
+			catch (StatusCodeException sce)
+			{
+				throw new IllegalStateException(
+						"Failed to get the controller info: " + sce.getMessage(), sce);
+			}
+		}
 	}
 	
 	/**
@@ -164,6 +390,108 @@ public class Aurora
 		return this.accessToken;
 	}
 	
+	/**
+	 * Returns the pool of persistent connections that is shared by all
+	 * requests to this Aurora. Use it to adjust the connection limit,
+	 * idle eviction and timeouts.
+	 * @return  the Aurora's <code>ConnectionPool</code>
+	 */
+	public ConnectionPool getConnectionPool()
+	{
+		return this.pool;
+	}
+	
+	/**
+	 * Returns the cache for the responses of this Aurora's getters.
+	 * The cache is disabled by default.
+	 * @return  the Aurora's <code>ReadCache</code>
+	 */
+	public ReadCache getReadCache()
+	{
+		return this.cache;
+	}
+	
+	/**
+	 * Returns the registry that receives the request metrics of this Aurora.
+	 * @return  the metrics registry, or null if metrics are disabled
+	 */
+	public MetricsRegistry getMetricsRegistry()
+	{
+		return this.metrics;
+	}
+	
+	/**
+	 * Sets the registry that receives the latency, status code, size and
+	 * in-flight measurements of every request sent to this Aurora, as well
+	 * as the external streaming datagrams. Metrics are disabled by default.
+	 * @param metrics  the metrics registry, or null to disable metrics
+	 */
+	public void setMetricsRegistry(MetricsRegistry metrics)
+	{
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * Returns the cache that stores the plugin catalog of this Aurora on disk.
+	 * @return  the plugin cache, or null if there is none (the default)
+	 */
+	public PluginCache getPluginCache()
+	{
+		return this.pluginCache;
+	}
+	
+	/**
+	 * Sets the cache that stores the plugin catalog of this Aurora on disk,
+	 * so that {@link Effects#getPlugins()} only downloads the catalog once
+	 * for each firmware version.
+	 * @param pluginCache  the plugin cache, or null to always download the catalog
+	 */
+	public void setPluginCache(PluginCache pluginCache)
+	{
+		this.pluginCache = pluginCache;
+	}
+	
+	/**
+	 * Returns the policy that decides how failed requests are retried.
+	 * @return  the retry policy ({@link RetryPolicy#NONE} by default)
+	 */
+	public RetryPolicy getRetryPolicy()
+	{
+		return this.retryPolicy;
+	}
+	
+	/**
+	 * Sets the policy that decides how failed requests are retried.
+	 * Only idempotent (GET) requests are ever retried.
+	 * @param retryPolicy  the retry policy, or null to disable retries
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy)
+	{
+		this.retryPolicy = retryPolicy != null ? retryPolicy : RetryPolicy.NONE;
+	}
+	
+	/**
+	 * Returns the circuit breaker that stops requests to this Aurora while
+	 * it is not responding.
+	 * @return  the circuit breaker, or null if there is none (the default)
+	 */
+	public CircuitBreaker getCircuitBreaker()
+	{
+		return this.breaker;
+	}
+	
+	/**
+	 * Sets the circuit breaker that stops requests to this Aurora while
+	 * it is not responding. While the breaker is open, every request fails
+	 * immediately with an <code>HttpRequestException</code> caused by a
+	 * {@link CircuitOpenException}. Each Aurora should have its own breaker.
+	 * @param breaker  the circuit breaker, or null to remove it
+	 */
+	public void setCircuitBreaker(CircuitBreaker breaker)
+	{
+		this.breaker = breaker;
+	}
+	
 	/**
 	 * Returns the Aurora's <code>State</code> object which contains
 	 * methods for accessing and modifying state information.
@@ -224,12 +552,46 @@ public class Aurora
 		return this.schedules;
 	}
 	
+	/**
+	 * Returns the Aurora's <code>AuroraEvents</code> object which is used to
+	 * subscribe to state, layout, effect and touch events.
+	 * @return  the Aurora's <code>AuroraEvents</code> object
+	 */
+	public AuroraEvents events()
+	{
+		return this.events;
+	}
+	
+	/**
+	 * Returns the Aurora's <code>EffectLibrary</code> object, which keeps a
+	 * local copy of the installed effects so that they can be read without
+	 * a request to the Aurora.
+	 * @return  the Aurora's <code>EffectLibrary</code> object
+	 */
+	public EffectLibrary effectLibrary()
+	{
+		return this.effectLibrary;
+	}
+	
+	/**
+	 * Returns the Aurora's <code>AsyncAurora</code> object which contains
+	 * non-blocking versions of the methods in this class that return a
+	 * <code>CompletableFuture</code>. Use the <code>AsyncAurora</code> object
+	 * to change the executor that runs the requests.
+	 * @return  the Aurora's <code>AsyncAurora</code> object
+	 */
+	public AsyncAurora async()
+	{
+		return this.async;
+	}
+	
 	/**
 	 * Returns the unique name of the Aurora controller.
 	 * @return  the name of the Aurora controller
 	 */
 	public String getName()
 	{
+		ensureInfo();
 		return this.name;
 	}
 	
@@ -239,6 +601,7 @@ public class Aurora
 	 */
 	public String getSerialNumber()
 	{
+		ensureInfo();
 		return this.serialNumber;
 	}
 	
@@ -248,6 +611,7 @@ public class Aurora
 	 */
 	public String getManufacturer()
 	{
+		ensureInfo();
 		return this.manufacturer;
 	}
 	
@@ -257,6 +621,7 @@ public class Aurora
 	 */
 	public String getFirmwareVersion()
 	{
+		ensureInfo();
 		return this.firmwareVersion;
 	}
 	
@@ -266,6 +631,7 @@ public class Aurora
 	 */
 	public String getModel()
 	{
+		ensureInfo();
 		return this.model;
 	}
 	
@@ -277,16 +643,49 @@ public class Aurora
 	 */
 	public int identify() throws StatusCodeException, UnauthorizedException
 	{
-		HttpRequest req = put(getURL("identify"), null);
-		checkStatusCode(req.code());
-		return req.code();
+		HttpResponse res = put("identify", null);
+		checkStatusCode(res.code());
+		return res.code();
+	}
+	
+	/**
+	 * Gets all of the information about the Aurora (state, effects,
+	 * panel layout and Rhythm) using a <i>single</i> request.
+	 * @return  a snapshot of the Aurora's current information
+	 * @throws UnauthorizedException  if the access token is invalid
+	 */
+	public AuroraSnapshot getSnapshot() throws StatusCodeException, UnauthorizedException
+	{
+		HttpResponse res = get("");
+		checkStatusCode(res.code());
+		return AuroraSnapshot.fromJSON(res.body());
 	}
 	
 	/**
 	 * Contains methods for accessing and modifying Aurora state information.
+	 * Changes made by the setters can be combined into fewer requests using
+	 * {@link #batch(StateBatch)} or {@link #setCoalescingWindow(long)}.
 	 */
 	public class State
 	{
+		/**
+		 * The status code returned by setters whose change has been
+		 * queued by a batch or the coalescing window.<br>
+		 * <b>Note: This code is not returned by the Aurora. It only means
+		 * that no request has been sent yet.</b>
+		 */
+		public static final int WRITE_QUEUED = 202;
+		
+		private final ThreadLocal<JSONObject> batchWrites = new ThreadLocal<JSONObject>();
+		/**
+		 * Held while queued changes are taken and sent, so
+		 * that they reach the Aurora in the order they were made.
+		 */
+		private final Object sendLock = new Object();
+		private JSONObject pendingWrites;
+		private Exception flushFailure;
+		private volatile long coalescingWindow;
+		
 		/**
 		 * Gets the on state of the Aurora (true = on, false = off).
 		 * @return true, if the Aurora is on
@@ -294,7 +693,7 @@ public class Aurora
 		 */
 		public boolean getOn() throws StatusCodeException
 		{
-			return Boolean.parseBoolean(get(getURL("state/on/value")).body());
+			return Boolean.parseBoolean(get("state/on/value").body());
 		}
 		
 		/**
@@ -306,10 +705,7 @@ public class Aurora
 		public int setOn(boolean on)
 				throws StatusCodeException, UnauthorizedException
 		{
-			String body = String.format("{\"on\": {\"value\": %b}}", on);
-			HttpRequest req = put(getURL("state"), body);
-			checkStatusCode(req.code());
-			return req.code();
+			return writeState("on", new JSONObject().put("value", on));
 		}
 		
 		/**
@@ -329,7 +725,7 @@ public class Aurora
 		 */
 		public int getBrightness() throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("state/brightness/value")).body());
+			return Integer.parseInt(get("state/brightness/value").body());
 		}
 		
 		/**
@@ -343,10 +739,7 @@ public class Aurora
 		public int setBrightness(int brightness)
 				throws StatusCodeException, UnauthorizedException, UnprocessableEntityException
 		{
-			String body = String.format("{\"brightness\": {\"value\": %d}}", brightness);
-			HttpRequest req = put(getURL("state"), body);
-			checkStatusCode(req.code());
-			return req.code();
+			return writeState("brightness", new JSONObject().put("value", brightness));
 		}
 		
 		/**
@@ -361,11 +754,8 @@ public class Aurora
 		public int fadeToBrightness(int brightness, int duration)
 				throws StatusCodeException, UnauthorizedException, UnprocessableEntityException
 		{
-			String body = String.format("{\"brightness\": {\"value\": %d, \"duration\": %d}}",
-					brightness, duration);
-			HttpRequest req = put(getURL("state"), body);
-			checkStatusCode(req.code());
-			return req.code();
+			return writeState("brightness", new JSONObject()
+					.put("value", brightness).put("duration", duration));
 		}
 		
 		/**
@@ -377,10 +767,7 @@ public class Aurora
 		public int increaseBrightness(int amount)
 				throws StatusCodeException, UnauthorizedException
 		{
-			String body = String.format("{\"brightness\": {\"increment\": %d}}", amount);
-			HttpRequest req = put(getURL("state"), body);
-			checkStatusCode(req.code());
-			return req.code();
+			return writeState("brightness", new JSONObject().put("increment", amount));
 		}
 		
 		/**
@@ -402,7 +789,7 @@ public class Aurora
 		 */
 		public int getMaxBrightness() throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("state/brightness/max")).body());
+			return Integer.parseInt(get("state/brightness/max").body());
 		}
 		
 		/**
@@ -412,7 +799,7 @@ public class Aurora
 		 */
 		public int getMinBrightness() throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("state/brightness/min")).body());
+			return Integer.parseInt(get("state/brightness/min").body());
 		}
 		
 		/**
@@ -422,7 +809,7 @@ public class Aurora
 		 */
 		public int getHue() throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("state/hue/value")).body());
+			return Integer.parseInt(get("state/hue/value").body());
 		}
 		
 		/**
@@ -436,10 +823,7 @@ public class Aurora
 		public int setHue(int hue)
 				throws StatusCodeException, UnauthorizedException, UnprocessableEntityException
 		{
-			String body = String.format("{\"hue\": {\"value\": %d}}", hue);
-			HttpRequest req = put(getURL("state"), body);
-			checkStatusCode(req.code());
-			return req.code();
+			return writeState("hue", new JSONObject().put("value", hue));
 		}
 		
 		/**
@@ -449,7 +833,7 @@ public class Aurora
 		 */
 		public int getMaxHue() throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("state/hue/max")).body());
+			return Integer.parseInt(get("state/hue/max").body());
 		}
 		
 		/**
@@ -459,7 +843,7 @@ public class Aurora
 		 */
 		public int getMinHue() throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("state/hue/min")).body());
+			return Integer.parseInt(get("state/hue/min").body());
 		}
 		
 		/**
@@ -469,7 +853,7 @@ public class Aurora
 		 */
 		public int getSaturation() throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("state/sat/value")).body());
+			return Integer.parseInt(get("state/sat/value").body());
 		}
 		
 		/**
@@ -483,10 +867,7 @@ public class Aurora
 		public int setSaturation(int saturation)
 				throws StatusCodeException, UnauthorizedException, UnprocessableEntityException
 		{
-			String body = String.format("{\"sat\": {\"value\": %d}}", saturation);
-			HttpRequest req = put(getURL("state"), body);
-			checkStatusCode(req.code());
-			return req.code();
+			return writeState("sat", new JSONObject().put("value", saturation));
 		}
 		
 		/**
@@ -497,7 +878,7 @@ public class Aurora
 		public int getMaxSaturation()
 				throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("state/sat/max")).body());
+			return Integer.parseInt(get("state/sat/max").body());
 		}
 		
 		/**
@@ -508,7 +889,7 @@ public class Aurora
 		public int getMinSaturation()
 				throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("state/sat/min")).body());
+			return Integer.parseInt(get("state/sat/min").body());
 		}
 		
 		/**
@@ -519,7 +900,7 @@ public class Aurora
 		public int getColorTemperature()
 				throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("state/ct/value")).body());
+			return Integer.parseInt(get("state/ct/value").body());
 		}
 		
 		/**
@@ -533,10 +914,7 @@ public class Aurora
 		public int setColorTemperature(int colorTemperature)
 				throws StatusCodeException, UnauthorizedException, UnprocessableEntityException
 		{
-			String body = String.format("{\"ct\": {\"value\": %d}}", colorTemperature);
-			HttpRequest req = put(getURL("state"), body);
-			checkStatusCode(req.code());
-			return req.code();
+			return writeState("ct", new JSONObject().put("value", colorTemperature));
 		}
 		
 		/**
@@ -547,7 +925,7 @@ public class Aurora
 		public int getMaxColorTemperature()
 				throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("state/ct/max")).body());
+			return Integer.parseInt(get("state/ct/max").body());
 		}
 		
 		/**
@@ -558,7 +936,7 @@ public class Aurora
 		public int getMinColorTemperature()
 				throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("state/ct/min")).body());
+			return Integer.parseInt(get("state/ct/min").body());
 		}
 		
 		/**
@@ -569,7 +947,7 @@ public class Aurora
 		public String getColorMode()
 				throws StatusCodeException, UnauthorizedException
 		{
-			return get(getURL("state/colorMode")).body().replace("\"", "");
+			return get("state/colorMode").body().replace("\"", "");
 		}
 		
 		/**
@@ -592,9 +970,243 @@ public class Aurora
 		public void setColor(Color color)
 				throws StatusCodeException, UnauthorizedException
 		{
-			setHue(color.getHue());
-			setSaturation(color.getSaturation());
-			setBrightness(color.getBrightness());
+			batch(state ->
+			{
+				state.setHue(color.getHue());
+				state.setSaturation(color.getSaturation());
+				state.setBrightness(color.getBrightness());
+			});
+		}
+		
+		/**
+		 * Sends several state changes to the Aurora as a single request.
+		 * Every setter that is called on this <code>State</code> object from
+		 * inside <code>batch</code> (on the same thread) is queued instead of
+		 * being sent right away. Once <code>batch</code> returns, the queued
+		 * changes are merged into one request. If a field is set more than once,
+		 * only the last value is sent (increments are added up, or applied to
+		 * the value that was set before them). Changes that are still waiting
+		 * for the coalescing window to end are sent with the batch, so the
+		 * batch always overrides them.<br>
+		 * Setters called inside a batch return {@link #WRITE_QUEUED}.
+		 * @param batch  the setter calls to send together
+		 * @return  (200 OK, 204 No Content, 401 Unauthorized, 422 Unprocessable Entity),
+		 * 			or 0 if no setters were called
+		 * @throws UnauthorizedException  if the access token is invalid
+		 * @throws UnprocessableEntityException  if one of the values is not within
+		 * 										 the maximum and minimum restrictions
+		 */
+		public int batch(StateBatch batch)
+				throws StatusCodeException, UnauthorizedException, UnprocessableEntityException
+		{
+			if (batchWrites.get() != null)
+			{
+				// Nested batches are merged into the outer batch
+				batch.apply(this);
+				return WRITE_QUEUED;
+			}
+			JSONObject writes = new JSONObject();
+			batchWrites.set(writes);
+			try
+			{
+				batch.apply(this);
+			}
+			finally
+			{
+				batchWrites.remove();
+			}
+			if (writes.length() == 0)
+			{
+				return 0;
+			}
+			synchronized (sendLock)
+			{
+				JSONObject pending;
+				synchronized (this)
+				{
+					pending = pendingWrites;
+					pendingWrites = null;
+				}
+				if (pending != null)
+				{
+					// Older changes from the coalescing window must not
+					// be sent after (and overwrite) the batch
+					for (String field : writes.keySet())
+					{
+						queue(pending, field, writes.getJSONObject(field));
+					}
+					writes = pending;
+				}
+				return sendState(writes);
+			}
+		}
+		
+		/**
+		 * Gets the coalescing window for the state setters.
+		 * @return  the coalescing window in milliseconds (0 = disabled)
+		 */
+		public long getCoalescingWindow()
+		{
+			return this.coalescingWindow;
+		}
+		
+		/**
+		 * Sets the coalescing window for the state setters. When the window is
+		 * greater than zero, the setters no longer send a request each. Instead, every
+		 * change that is made within the window is merged into one request that
+		 * is sent when the window ends. If a field is set more than once, only
+		 * the last value is sent (increments are added up, or applied to the
+		 * value that was set before them). Setters return {@link #WRITE_QUEUED}
+		 * while the window is active.<br>
+		 * <b>Note: Since queued changes are sent in the background, errors are reported
+		 * by the next call to {@link #flush()}.</b>
+		 * @param window  the coalescing window in milliseconds (0 = disabled)
+		 */
+		public void setCoalescingWindow(long window)
+		{
+			this.coalescingWindow = window;
+		}
+		
+		/**
+		 * Immediately sends all of the state changes that are waiting for
+		 * the coalescing window to end.
+		 * @return  (200 OK, 204 No Content, 401 Unauthorized, 422 Unprocessable Entity),
+		 * 			or 0 if no changes were waiting
+		 * @throws UnauthorizedException  if the access token is invalid
+		 * @throws UnprocessableEntityException  if one of the values is not within
+		 * 										 the maximum and minimum restrictions
+		 * @throws StatusCodeException  if a previous background flush failed
+		 */
+		public int flush() throws StatusCodeException,
+				UnauthorizedException, UnprocessableEntityException
+		{
+			JSONObject writes;
+			Exception failure;
+			int code;
+			synchronized (sendLock)
+			{
+				synchronized (this)
+				{
+					writes = pendingWrites;
+					pendingWrites = null;
+					failure = flushFailure;
+					flushFailure = null;
+				}
+				code = writes != null ? sendState(writes) : 0;
+			}
+			if (failure instanceof StatusCodeException)
+			{
+				throw (StatusCodeException)failure;
+			}
+			else if (failure != null)
+			{
+				throw (RuntimeException)failure;
+			}
+			return code;
+		}
+		
+		/**
+		 * Sends a change to a single state field, or queues it if a
+		 * batch or the coalescing window is active.
+		 * @param field  the name of the state field (for example: "brightness")
+		 * @param value  the new value of the field
+		 * @return  the response status code, or 202 if the change was queued
+		 */
+		private int writeState(String field, JSONObject value)
+				throws StatusCodeException
+		{
+			JSONObject batch = batchWrites.get();
+			if (batch != null)
+			{
+				queue(batch, field, value);
+				return WRITE_QUEUED;
+			}
+			long window = coalescingWindow;
+			if (window > 0)
+			{
+				boolean schedule;
+				synchronized (this)
+				{
+					schedule = pendingWrites == null;
+					if (schedule)
+					{
+						pendingWrites = new JSONObject();
+					}
+					queue(pendingWrites, field, value);
+				}
+				if (schedule)
+				{
+					SCHEDULER.schedule(this::flushInBackground,
+							window, TimeUnit.MILLISECONDS);
+				}
+				return WRITE_QUEUED;
+			}
+			return sendState(new JSONObject().put(field, value));
+		}
+		
+		/**
+		 * Merges a change into the queued changes. A new value replaces the
+		 * queued one, but an increment is added to a queued increment, or
+		 * applied to a queued value (within the brightness range, which is
+		 * the only field that can be incremented).
+		 * @param writes  the queued changes
+		 * @param field  the name of the state field
+		 * @param value  the change
+		 */
+		private void queue(JSONObject writes, String field, JSONObject value)
+		{
+			JSONObject queued = writes.optJSONObject(field);
+			if (queued != null && value.has("increment"))
+			{
+				int increment = value.getInt("increment");
+				if (queued.has("increment"))
+				{
+					value = new JSONObject().put("increment",
+							queued.getInt("increment") + increment);
+				}
+				else if (queued.has("value"))
+				{
+					// Keeps the duration of a fade
+					value = queued.put("value", Math.max(0,
+							Math.min(100, queued.getInt("value") + increment)));
+				}
+			}
+			writes.put(field, value);
+		}
+		
+		private int sendState(JSONObject writes) throws StatusCodeException
+		{
+			HttpResponse res = put("state", writes.toString());
+			checkStatusCode(res.code());
+			return res.code();
+		}
+		
+		private void flushInBackground()
+		{
+			synchronized (sendLock)
+			{
+				JSONObject writes;
+				synchronized (this)
+				{
+					writes = pendingWrites;
+					pendingWrites = null;
+				}
+				if (writes == null)
+				{
+					return;
+				}
+				try
+				{
+					sendState(writes);
+				}
+				catch (StatusCodeException | RuntimeException e)
+				{
+					synchronized (this)
+					{
+						flushFailure = e;
+					}
+				}
+			}
 		}
 	}
 	
@@ -610,7 +1222,7 @@ public class Aurora
 		 */
 		public String getCurrentEffectName() throws UnauthorizedException
 		{
-			return get(getURL("effects/select")).body().replace("\"", "");
+			return get("effects/select").body().replace("\"", "");
 		}
 		
 		/**
@@ -640,9 +1252,9 @@ public class Aurora
 			UnauthorizedException, ResourceNotFoundException, UnprocessableEntityException
 		{
 			String body = String.format("{\"select\": \"%s\"}", effectName);
-			HttpRequest req = put(getURL("effects"), body);
-			checkStatusCode(req.code());
-			return req.code();
+			HttpResponse res = put("effects", body);
+			checkStatusCode(res.code());
+			return res.code();
 		}
 		
 		/**
@@ -672,7 +1284,7 @@ public class Aurora
 		 */
 		public String[] getEffectsList() throws StatusCodeException, UnauthorizedException
 		{
-			JSONObject json = new JSONObject(get(getURL("effects")).body());
+			JSONObject json = new JSONObject(get("effects").body());
 			JSONArray arr = json.getJSONArray("effectsList");
 			String[] effects = new String[arr.length()];
 			for (int i = 0; i < arr.length(); i++)
@@ -693,26 +1305,176 @@ public class Aurora
 				UnauthorizedException, ResourceNotFoundException
 		{
 			String body = String.format("{\"write\": {\"command\": \"request\", \"animName\": \"%s\"}}", effectName);
-			HttpRequest req = put(getURL("effects"), body);
-			checkStatusCode(req.code());
-			return Effect.fromJSON(req.body());
+			HttpResponse res = query("effects", body);
+			checkStatusCode(res.code());
+			return Effect.fromJSON(res.body());
 		}
 		
 		/**
 		 * Gets an array of type <code>Effect</code> containing all of
-		 * the effects installed on the Aurora controller.
+		 * the effects installed on the Aurora controller. The effects are
+		 * requested concurrently, with as many requests in flight as the
+		 * connection pool has connections.
 		 * @return  an array of the effects installed on the Aurora controller
 		 * @throws UnauthorizedException   if the access token is invalid
+		 * @see #getAllEffects(int, Executor)
 		 */
 		public Effect[] getAllEffects() throws StatusCodeException, UnauthorizedException
 		{
+			return getAllEffects(pool.getMaxConnections(),
+					AsyncAurora.getDefaultExecutor());
+		}
+		
+		/**
+		 * Gets an array of type <code>Effect</code> containing all of
+		 * the effects installed on the Aurora controller. Every effect is
+		 * requested separately, and up to <code>maxInFlight</code> requests
+		 * are sent at once (one of them from the calling thread, so the
+		 * download always makes progress, even if the executor is busy).
+		 * The effects are in the same order as in {@link #getEffectsList()}.
+		 * If a request fails, no more requests are started, and its exception
+		 * is thrown once the requests in flight have finished.
+		 * @param maxInFlight  the maximum number of requests to send at once
+		 * 					   (more than the connection pool's maximum number
+		 * 					   of connections doesn't make it any faster)
+		 * @param executor  the executor to send the other requests on
+		 * @return  an array of the effects installed on the Aurora controller
+		 * @throws UnauthorizedException   if the access token is invalid
+		 * @throws IllegalArgumentException  if <code>maxInFlight</code> is less than 1
+		 */
+		public Effect[] getAllEffects(int maxInFlight, Executor executor)
+				throws StatusCodeException, UnauthorizedException
+		{
+			if (maxInFlight < 1)
+			{
+				throw new IllegalArgumentException("maxInFlight must be at least 1");
+			}
 			String[] list = getEffectsList();
 			Effect[] effects = new Effect[list.length];
-			for (int i = 0; i < list.length; i++)
-				effects[i] = getEffect(list[i]);
+			AtomicInteger next = new AtomicInteger();
+			AtomicBoolean failed = new AtomicBoolean();
+			int workers = Math.min(maxInFlight, list.length);
+			CompletableFuture<?>[] futures = new CompletableFuture<?>[Math.max(workers - 1, 0)];
+			for (int w = 0; w < futures.length; w++)
+			{
+				CompletableFuture<Void> future = new CompletableFuture<Void>();
+				futures[w] = future;
+				try
+				{
+					executor.execute(() ->
+					{
+						try
+						{
+							requestEffects(list, effects, next, failed);
+							future.complete(null);
+						}
+						catch (Throwable t)
+						{
+							failed.set(true);
+							future.completeExceptionally(t);
+						}
+					});
+				}
+				catch (RejectedExecutionException ree)
+				{
+					// The other workers pick up the effects of this one
+					future.complete(null);
+				}
+			}
+			
+			Throwable error = null;
+			try
+			{
+				requestEffects(list, effects, next, failed);
+			}
+			catch (Throwable t)
+			{
+				failed.set(true);
+				error = t;
+			}
+			for (CompletableFuture<?> future : futures)
+			{
+				try
+				{
+					future.join();
+				}
+				catch (CompletionException ce)
+				{
+					if (error == null)
+					{
+						error = ce.getCause();
+					}
+				}
+			}
+			if (error instanceof StatusCodeException)
+			{
+				throw (StatusCodeException)error;
+			}
+			else if (error instanceof RuntimeException)
+			{
+				throw (RuntimeException)error;
+			}
+			else if (error instanceof Error)
+			{
+				throw (Error)error;
+			}
 			return effects;
 		}
 		
+		/**
+		 * Gets all of the effects installed on the Aurora controller with a
+		 * single <code>requestAll</code> command. The response is decoded one
+		 * effect at a time (without building a <code>JSON</code> document for
+		 * the whole response), and every effect is passed to the callback as
+		 * soon as it has been decoded.
+		 * @param callback  the callback that receives the effects
+		 * @return  the number of effects
+		 * @throws UnauthorizedException   if the access token is invalid
+		 */
+		public int getAllEffects(EffectCallback callback)
+				throws StatusCodeException, UnauthorizedException
+		{
+			String body = "{\"write\": {\"command\": \"requestAll\"}}";
+			HttpResponse res = query("effects", body);
+			checkStatusCode(res.code());
+			return readAnimations(res.body(), callback);
+		}
+		
+		/**
+		 * Requests effects until every effect in the list has been
+		 * requested (by any worker) or a worker has failed.
+		 */
+		private void requestEffects(String[] list, Effect[] effects,
+				AtomicInteger next, AtomicBoolean failed)
+						throws StatusCodeException, UnauthorizedException
+		{
+			int i;
+			while (!failed.get() && (i = next.getAndIncrement()) < list.length)
+			{
+				effects[i] = getEffect(list[i]);
+			}
+		}
+		
+		/**
+		 * Decodes the effects in the <code>animations</code> array of a
+		 * <code>requestAll</code> response, one at a time.
+		 * @param json  the response
+		 * @param callback  the callback that receives the effects
+		 * @return  the number of effects
+		 */
+		private int readAnimations(String json, EffectCallback callback)
+		{
+			JSONArrayReader reader = new JSONArrayReader(json, "animations");
+			int count = 0;
+			JSONObject data;
+			while ((data = reader.next()) != null)
+			{
+				callback.onEffect(Effect.fromJSON(data));
+				count++;
+			}
+			return count;
+		}
+		
 		/**
 		 * Uploads and installs the local effect <code>effect</code> to the Aurora controller.
 		 * If the effect does not exist on the Aurora it will be created. If the effect exists
@@ -941,22 +1703,39 @@ public class Aurora
 		}
 		
 		/**
-		 * Gets <i>all</i> the plugins/motions from the Aurora.
-		 * <br><b>Note: This method is slow.</b>
+		 * Gets <i>all</i> the plugins/motions from the Aurora. If the Aurora
+		 * has a {@link PluginCache}, the plugins are loaded from the cache
+		 * when the catalog of the controller's current firmware is cached,
+		 * and the downloaded catalog is stored in the cache otherwise. The
+		 * controller information is requested again first, so a firmware
+		 * update is noticed without restarting.
+		 * <br><b>Note: Downloading the plugins is slow.</b>
 		 * @return  an array of plugins from the Aurora
 		 * @throws UnauthorizedException  if the access token is invalid
 		 */
 		public Plugin[] getPlugins() throws UnauthorizedException, StatusCodeException
 		{
+			PluginCache pluginCache = Aurora.this.pluginCache;
+			String serialNumber = null, firmwareVersion = null;
+			if (pluginCache != null)
+			{
+				// The firmware may have been updated since it was last read
+				fetchInfo();
+				serialNumber = Aurora.this.getSerialNumber();
+				firmwareVersion = Aurora.this.getFirmwareVersion();
+				Plugin[] plugins = pluginCache.load(serialNumber, firmwareVersion);
+				if (plugins != null)
+				{
+					return plugins;
+				}
+			}
 			String body = String.format("{\"write\": {\"command\": \"requestPlugins\"}}");
-			HttpRequest req = put(getURL("effects"), body);
-			checkStatusCode(req.code());
-			JSONObject json = new JSONObject(req.body());
-			JSONArray arr = json.getJSONArray("plugins");
-			Plugin[] plugins = new Plugin[arr.length()];
-			for (int i = 0; i < arr.length(); i++)
+			HttpResponse res = query("effects", body);
+			checkStatusCode(res.code());
+			Plugin[] plugins = Plugin.fromPluginsJSON(res.body());
+			if (pluginCache != null)
 			{
-				plugins[i] = Plugin.fromJSON(arr.getJSONObject(i).toString());
+				pluginCache.store(serialNumber, firmwareVersion, res.body());
 			}
 			return plugins;
 		}
@@ -990,9 +1769,11 @@ public class Aurora
 				UnauthorizedException, UnprocessableEntityException
 		{
 			String body = String.format("{\"write\": %s}", command);
-			HttpRequest req = put(getURL("effects"), body);
-			checkStatusCode(req.code());
-			return req.code();
+			HttpResponse res = isReadCommand(command) ?
+					query("effects", body) : put("effects", body);
+			checkStatusCode(res.code());
+			effectLibrary.effectWritten(command);
+			return res.code();
 		}
 	}
 	
@@ -1001,6 +1782,9 @@ public class Aurora
 	 */
 	public class PanelLayout
 	{
+		private volatile LayoutModel model;
+		private final AtomicLong modelGeneration = new AtomicLong();
+		
 		/**
 		 * Gets the number of panels connected to the Aurora controller.
 		 * @param includeRhythm  whether or not to include the Rhythm as a panel
@@ -1011,7 +1795,7 @@ public class Aurora
 		public int getNumPanels(boolean includeRhythm)
 				throws StatusCodeException, UnauthorizedException
 		{
-			int numPanels = Integer.parseInt(get(getURL("panelLayout/layout/numPanels")).body());
+			int numPanels = Integer.parseInt(get("panelLayout/layout/numPanels").body());
 			if (!includeRhythm || !Aurora.this.rhythm.getConnected())
 				numPanels--;
 			return numPanels;
@@ -1024,7 +1808,45 @@ public class Aurora
 		 */
 		public int getSideLength() throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("panelLayout/layout/sideLength")).body());
+			return Integer.parseInt(get("panelLayout/layout/sideLength").body());
+		}
+		
+		/**
+		 * Gets the cached <code>LayoutModel</code> of the Aurora. The model is
+		 * downloaded with a single request the first time it is needed, and is
+		 * then reused until it is invalidated (either by {@link #invalidateModel()}
+		 * or by a successful write to the panel layout, such as
+		 * {@link #setGlobalOrientation(int)}).
+		 * @return  the current layout model
+		 * @throws UnauthorizedException  if the access token is invalid
+		 */
+		public LayoutModel getModel()
+				throws StatusCodeException, UnauthorizedException
+		{
+			LayoutModel model = this.model;
+			if (model == null)
+			{
+				long generation = modelGeneration.get();
+				HttpResponse res = get("panelLayout");
+				checkStatusCode(res.code());
+				model = LayoutModel.fromJSON(new JSONObject(res.body()));
+				if (modelGeneration.get() == generation)
+				{
+					this.model = model;
+				}
+			}
+			return model;
+		}
+		
+		/**
+		 * Discards the cached <code>LayoutModel</code>, so that the next
+		 * layout lookup downloads the layout again. Call this if panels
+		 * have been added, removed, or rearranged.
+		 */
+		public void invalidateModel()
+		{
+			modelGeneration.incrementAndGet();
+			this.model = null;
 		}
 		
 		/**
@@ -1032,23 +1854,12 @@ public class Aurora
 		 * Each <code>Panel</code> contains the <b>original position data.</b>
 		 * @return  an array of panels
 		 * @throws UnauthorizedException  if the access token is invalid
+		 * @see #getModel()
 		 */
 		public Panel[] getPanels()
 				throws StatusCodeException, UnauthorizedException
 		{
-			JSONObject json = new JSONObject(get(getURL("panelLayout/layout")).body());
-			JSONArray arr = json.getJSONArray("positionData");
-			Panel[] pd = new Panel[arr.length()];
-			for (int i = 0; i < arr.length(); i++)
-			{
-				JSONObject data = arr.getJSONObject(i);
-				int panelId = data.getInt("panelId");
-				int x = data.getInt("x");
-				int y = data.getInt("y");
-				int o = data.getInt("o");
-				pd[i] = new Panel(panelId, x, y, o);
-			}
-			return pd;
+			return getModel().getPanels();
 		}
 		
 		/**
@@ -1057,29 +1868,12 @@ public class Aurora
 		 * Each <code>Panel</code> contains <b>modified position data.</b>
 		 * @return an array of rotated panels
 		 * @throws UnauthorizedException  if the access token is invalid
+		 * @see #getModel()
 		 */
 		public Panel[] getPanelsRotated()
 				throws StatusCodeException, UnauthorizedException
 		{
-			Panel[] panels = getPanels();
-			Point origin = getCentroid(panels);
-			int globalOrientation = getGlobalOrientation();
-			globalOrientation = globalOrientation == 360 ? 0 : globalOrientation;
-			double radAngle = Math.toRadians(globalOrientation);
-			for (Panel p : panels)
-			{
-				int x = p.getX() - origin.x;
-				int y = p.getY() - origin.y;
-				
-				double newX = x * Math.cos(radAngle) - y * Math.sin(radAngle);
-				double newY = x * Math.sin(radAngle) + y * Math.cos(radAngle);
-				
-				x = (int)(newX + origin.x);
-				y = (int)(newY + origin.y);
-				p.setX(x);
-				p.setY(y);
-			}
-			return panels;
+			return getModel().getPanelsRotated();
 		}
 		
 		/**
@@ -1088,18 +1882,12 @@ public class Aurora
 		 * @param id  the panel id for the panel
 		 * @return  a <code>Panel</code> with the same id, or null if no panel is found
 		 * @throws UnauthorizedException  if the access token is invalid
+		 * @see #getModel()
 		 */
 		public Panel getPanel(int id)
 				throws StatusCodeException, UnauthorizedException
 		{
-			for (Panel panel : getPanels())
-			{
-				if (panel.getId() == id)
-				{
-					return panel;
-				}
-			}
-			return null;
+			return getModel().getPanel(id);
 		}
 		
 		/**
@@ -1110,7 +1898,7 @@ public class Aurora
 		public int getGlobalOrientation()
 				throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("panelLayout/globalOrientation/value")).body());
+			return Integer.parseInt(get("panelLayout/globalOrientation/value").body());
 		}
 		
 		/**
@@ -1123,9 +1911,9 @@ public class Aurora
 				throws StatusCodeException, UnauthorizedException
 		{
 			String body = String.format("{\"globalOrientation\": {\"value\": %d}}", orientation);
-			HttpRequest req = put(getURL("panelLayout"), body);
-			checkStatusCode(req.code());
-			return req.code();
+			HttpResponse res = put("panelLayout", body);
+			checkStatusCode(res.code());
+			return res.code();
 		}
 		
 		/**
@@ -1136,7 +1924,7 @@ public class Aurora
 		public int getMaxGlobalOrientation()
 				throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("panelLayout/globalOrientation/max")).body());
+			return Integer.parseInt(get("panelLayout/globalOrientation/max").body());
 		}
 		
 		/**
@@ -1147,36 +1935,7 @@ public class Aurora
 		public int getMinGlobalOrientation()
 				throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("panelLayout/globalOrientation/min")).body());
-		}
-		
-		private Point getCentroid(Panel[] panels)
-		{
-			int centroidX = 0, centroidY = 0;
-			int numXPoints = 0, numYPoints = 0;
-			List<Integer> xpoints = new ArrayList<Integer>();
-			List<Integer> ypoints = new ArrayList<Integer>();
-			
-			for (Panel p : panels)
-			{
-				int x = p.getX();
-				int y = p.getY();
-				if (!xpoints.contains(x))
-				{
-					centroidX += x;
-					xpoints.add(x);
-					numXPoints++;
-				}
-				if (!ypoints.contains(y))
-				{
-					centroidY += y;
-					ypoints.add(y);
-					numYPoints++;
-				}
-			}
-			centroidX /= numXPoints;
-			centroidY /= numYPoints;
-			return new Point(centroidX, centroidY);
+			return Integer.parseInt(get("panelLayout/globalOrientation/min").body());
 		}
 	}
 	
@@ -1193,7 +1952,7 @@ public class Aurora
 		public boolean getConnected()
 				throws StatusCodeException, UnauthorizedException
 		{
-			return Boolean.parseBoolean(get(getURL("rhythm/rhythmConnected")).body());
+			return Boolean.parseBoolean(get("rhythm/rhythmConnected").body());
 		}
 		
 		/**
@@ -1204,7 +1963,7 @@ public class Aurora
 		public boolean getActive()
 				throws StatusCodeException, UnauthorizedException
 		{
-			return Boolean.parseBoolean(get(getURL("rhythm/rhythmActive")).body());
+			return Boolean.parseBoolean(get("rhythm/rhythmActive").body());
 		}
 		
 		/**
@@ -1215,7 +1974,7 @@ public class Aurora
 		public int getId()
 				throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("rhythm/rhythmId")).body());
+			return Integer.parseInt(get("rhythm/rhythmId").body());
 		}
 		
 		/**
@@ -1226,7 +1985,7 @@ public class Aurora
 		public String getHardwareVersion()
 				throws StatusCodeException, UnauthorizedException
 		{
-			return get(getURL("rhythm/hardwareVersion")).body();
+			return get("rhythm/hardwareVersion").body();
 		}
 		
 		/**
@@ -1237,7 +1996,7 @@ public class Aurora
 		public String getFirmwareVersion()
 				throws StatusCodeException, UnauthorizedException
 		{
-			return get(getURL("rhythm/firmwareVersion")).body();
+			return get("rhythm/firmwareVersion").body();
 		}
 		
 		/**
@@ -1248,7 +2007,7 @@ public class Aurora
 		public boolean auxAvailable()
 				throws StatusCodeException, UnauthorizedException
 		{
-			return Boolean.parseBoolean(get(getURL("rhythm/auxAvailable")).body());
+			return Boolean.parseBoolean(get("rhythm/auxAvailable").body());
 		}
 		
 		/**
@@ -1260,7 +2019,7 @@ public class Aurora
 		public int getMode()
 				throws StatusCodeException, UnauthorizedException
 		{
-			return Integer.parseInt(get(getURL("rhythm/rhythmMode")).body());
+			return Integer.parseInt(get("rhythm/rhythmMode").body());
 		}
 		
 		/**
@@ -1275,9 +2034,9 @@ public class Aurora
 				throws StatusCodeException, UnauthorizedException, UnprocessableEntityException
 		{
 			String body = String.format("{\"rhythmMode\": %d}", mode);
-			HttpRequest req = put(getURL("rhythm"), body);
-			checkStatusCode(req.code());
-			return req.code();
+			HttpResponse res = put("rhythm", body);
+			checkStatusCode(res.code());
+			return res.code();
 		}
 		
 		/**
@@ -1288,7 +2047,7 @@ public class Aurora
 		public Position getPosition()
 				throws StatusCodeException, UnauthorizedException
 		{
-			JSONObject json = new JSONObject(get(getURL("rhythm/rhythmPos")).body());
+			JSONObject json = new JSONObject(get("rhythm/rhythmPos").body());
 			int x = json.getInt("x");
 			int y = json.getInt("y");
 			int o = json.getInt("o");
@@ -1298,15 +2057,28 @@ public class Aurora
 	
 	/**
 	 * Contains methods for sending panel data to the
-	 * Aurora <b>very quickly</b>.
+	 * Aurora <b>very quickly</b>.<br>
+	 * All of the data is sent through a single connected <code>DatagramChannel</code>,
+	 * which is opened by {@link #enable()} and reused for every frame until
+	 * the session is closed using {@link #close()}.
 	 */
-	public class ExternalStreaming
+	public class ExternalStreaming implements AutoCloseable
 	{
 		/**
 		 * The address of the aurora controller <i>for streaming mode only</i>.
 		 */
 		InetSocketAddress address;
 		
+		private DatagramChannel channel;
+		private final StreamFrameEncoder encoder = new StreamFrameEncoder();
+		private final StreamFrame scratch = new StreamFrame();
+		private final StreamFrame delta = new StreamFrame();
+		private final StreamShadow shadow = new StreamShadow();
+		private boolean deltaEnabled;
+		private boolean fullRefreshRequested;
+		private long fullRefreshInterval;
+		private long lastFullRefresh = System.nanoTime();
+		
 		/**
 		 * Gets the <code>SocketAddress</code> containing
 		 * the host name and port of the external streaming controller.
@@ -1322,24 +2094,160 @@ public class Aurora
 		 * @param address  the <code>SocketAddress</code>
 		 * of the streaming controller
 		 */
-		public void setAddress(InetSocketAddress address)
+		public synchronized void setAddress(InetSocketAddress address)
 		{
 			this.address = address;
+			closeChannel();
+		}
+		
+		/**
+		 * Gets the wire format that frames are sent in.
+		 * @return  the wire format
+		 */
+		public synchronized StreamFormat getFormat()
+		{
+			return encoder.getFormat();
 		}
 		
 		/**
-		 * Enables external streaming mode over UDP.
+		 * Sets the wire format that frames are sent in. The format is
+		 * normally set by {@link #enable(StreamFormat)}, and only needs to
+		 * be set directly when the streaming address is set manually.
+		 * @param format  the wire format
+		 */
+		public synchronized void setFormat(StreamFormat format)
+		{
+			encoder.setFormat(format);
+		}
+		
+		/**
+		 * Enables external streaming mode over UDP using the v1 wire
+		 * format and opens the streaming session.
 		 * @throws UnauthorizedException  if the access token is invalid
+		 * @throws SocketException  if the streaming channel cannot be opened
+		 */
+		public void enable() throws StatusCodeException, SocketException
+		{
+			enable(StreamFormat.V1);
+		}
+		
+		/**
+		 * Enables external streaming mode over UDP and opens the
+		 * streaming session. Every frame that is sent during the session
+		 * is encoded in the given format. The v2 format is supported by
+		 * Canvas, Shapes and newer controllers, and is required to address
+		 * panels with ids above 255.
+		 * @param format  the wire format to stream in
+		 * @throws UnauthorizedException  if the access token is invalid
+		 * @throws SocketException  if the streaming channel cannot be opened
+		 */
+		public void enable(StreamFormat format)
+				throws StatusCodeException, SocketException
+		{
+			String body = format == StreamFormat.V1 ?
+					"{\"write\": {\"command\": \"display\", \"animType\": \"extControl\"}}" :
+					"{\"write\": {\"command\": \"display\", \"animType\": \"extControl\", " +
+					"\"extControlVersion\": \"" + format.getName() + "\"}}";
+			HttpResponse res = put("effects", body);
+			checkStatusCode(res.code());
+			InetSocketAddress address;
+			if (format == StreamFormat.V1)
+			{
+				JSONObject response = new JSONObject(res.body());
+				String host = response.getString("streamControlIpAddr");
+				int port = response.getInt("streamControlPort");
+				address = new InetSocketAddress(host, port);
+			}
+			else
+			{
+				// v2 controllers always listen on the same port and don't
+				// return the streaming address
+				address = new InetSocketAddress(hostName, StreamFormat.V2_PORT);
+			}
+			synchronized (this)
+			{
+				encoder.setFormat(format);
+				setAddress(address);
+				channel();
+				fullRefreshRequested = true;
+			}
+		}
+		
+		/**
+		 * Sets whether only the panels whose color changed are sent. The
+		 * session remembers the last color that was sent to every panel,
+		 * and when delta streaming is enabled, panels that are set to the
+		 * color they already have are left out of the datagram (and a
+		 * frame without any changes is not sent at all). Delta streaming
+		 * is disabled by default.
+		 * @param enabled  true, to send only the panels that changed
+		 * @see #setFullRefreshInterval(long)
+		 */
+		public synchronized void setDeltaEnabled(boolean enabled)
+		{
+			this.deltaEnabled = enabled;
+		}
+		
+		/**
+		 * Checks if only the panels whose color changed are sent.
+		 * @return  true, if delta streaming is enabled
+		 */
+		public synchronized boolean isDeltaEnabled()
+		{
+			return this.deltaEnabled;
+		}
+		
+		/**
+		 * Sets how often every known panel is sent again, even if its color
+		 * didn't change. Streaming uses UDP, so a lost datagram would
+		 * otherwise leave a panel with the wrong color until it changes
+		 * again. The refresh is sent with the next frame after the interval
+		 * has passed.
+		 * @param millis  the interval (in milliseconds) between full
+		 * 				  refreshes, or 0 to never refresh (the default)
+		 */
+		public synchronized void setFullRefreshInterval(long millis)
+		{
+			this.fullRefreshInterval = TimeUnit.MILLISECONDS.toNanos(millis);
+		}
+		
+		/**
+		 * Gets how often every known panel is sent again.
+		 * @return  the interval (in milliseconds) between full
+		 * 			refreshes, or 0 if full refreshes are disabled
+		 */
+		public synchronized long getFullRefreshInterval()
+		{
+			return TimeUnit.NANOSECONDS.toMillis(this.fullRefreshInterval);
+		}
+		
+		/**
+		 * Sends every known panel with the next frame, even
+		 * if delta streaming is enabled.
 		 */
-		public void enable() throws StatusCodeException
+		public synchronized void requestFullRefresh()
 		{
-			String body = "{\"write\": {\"command\": \"display\", \"animType\": \"extControl\"}}";
-			HttpRequest req = put(getURL("effects"), body);
-			checkStatusCode(req.code());
-			JSONObject response = new JSONObject(req.body());
-			String host = response.getString("streamControlIpAddr");
-			int port = response.getInt("streamControlPort");
-			this.address = new InetSocketAddress(host, port);
+			this.fullRefreshRequested = true;
+		}
+		
+		/**
+		 * Checks if the streaming session is open.
+		 * @return  true, if the streaming channel is open
+		 */
+		public synchronized boolean isOpen()
+		{
+			return channel != null && channel.isOpen();
+		}
+		
+		/**
+		 * Closes the streaming session. The Aurora stays in external
+		 * streaming mode, and the session is opened again by the next
+		 * call to {@link #enable()} or the next frame that is sent.
+		 */
+		@Override
+		public synchronized void close()
+		{
+			closeChannel();
 		}
 		
 		/**
@@ -1365,28 +2273,26 @@ public class Aurora
 		 * @throws UnauthorizedException  if the access token is invalid
 		 * @throws SocketException  if the target Aurora cannot be found or connected to
 		 * @throws IOException  if an I/O error occurs
+		 * @throws IllegalArgumentException  if a value in the animation data
+		 * 									  is too large for the v1 format
 		 */
 		public void sendAnimData(String animData) throws StatusCodeException,
 					UnauthorizedException, SocketException, IOException
 		{
-			byte[] data = animDataToBytes(animData);
-			
-			DatagramPacket packet = new DatagramPacket(data,
-					data.length, this.address.getAddress(), this.address.getPort());
-			
-			try
+			synchronized (this)
 			{
-				DatagramSocket socket = new DatagramSocket();
-				socket.send(packet);
-				socket.close();
-			}
-			catch (SocketException se)
-			{
-				throw new SocketException("Failed to connect to target Aurora.");
-			}
-			catch (IOException ioe)
-			{
-				throw new IOException("I/O error.");
+				if (encoder.getFormat() == StreamFormat.V1)
+				{
+					// The panels in the animation data aren't tracked, so the
+					// shadow can't be trusted for delta streaming anymore
+					shadow.clear();
+					send(ByteBuffer.wrap(animDataToBytes(animData)));
+				}
+				else
+				{
+					animDataToFrame(animData, scratch);
+					setPanels(scratch);
+				}
 			}
 		}
 		
@@ -1401,14 +2307,15 @@ public class Aurora
 		 * @throws UnauthorizedException  if the access token is invalid
 		 * @throws SocketException  if the target Aurora cannot be found or connected to
 		 * @throws IOException  if an I/O error occurs
+		 * @throws IllegalArgumentException  if the panel id, an RGB value or
+		 * 									  the transition time is out of range for
+		 * 									  the streaming format
 		 */
 		public void setPanel(int panelId, int red,
 				int green, int blue, int transitionTime) throws StatusCodeException,
 					UnauthorizedException, SocketException, IOException
 		{
-			String frame = String.format("1 %d 1 %d %d %d 0 %d",
-					panelId, red, green, blue, transitionTime);
-			sendAnimData(frame);
+			sendPanel(panelId, red, green, blue, 0, transitionTime);
 		}
 		
 		/**
@@ -1504,14 +2411,333 @@ public class Aurora
 					color.getGreen(), color.getBlue(), transitionTime);
 		}
 		
+		/**
+		 * Updates the colors of several panels at once. Every panel in the
+		 * frame is packed into a single datagram, so the panels change
+		 * together. Frames with more panels than fit in one datagram
+		 * (see {@link StreamFrameEncoder#getMaxPanelsPerDatagram()}) are
+		 * split across as few datagrams as possible, sent back to back.
+		 * @param frame  the frame containing the panels to update
+		 * @throws SocketException  if the target Aurora cannot be found or connected to
+		 * @throws IOException  if an I/O error occurs
+		 * @throws IllegalArgumentException  if a panel id, an RGBW value or a
+		 * 									  transition time is out of range for the
+		 * 									  streaming format (nothing is sent)
+		 */
+		public synchronized void setPanels(StreamFrame frame)
+				throws SocketException, IOException
+		{
+			StreamFrame panels = prepare(frame);
+			if (panels != null)
+			{
+				sendFrame(panels);
+			}
+		}
+		
+		/**
+		 * Records a frame in the shadow and decides which of its panels
+		 * need to be sent, based on the delta streaming and full refresh
+		 * settings. The caller must hold the session's lock until it is
+		 * done with the returned frame.
+		 * @param frame  the frame to send
+		 * @return  the panels to send (either the given frame or a frame
+		 * 			owned by the session), or null if nothing needs to be sent
+		 * @throws IllegalArgumentException  if a panel id, an RGBW value or a
+		 * 									  transition time is out of range for the
+		 * 									  streaming format
+		 */
+		synchronized StreamFrame prepare(StreamFrame frame)
+		{
+			for (int i = 0; i < frame.size(); i++)
+			{
+				encoder.checkPanel(frame.getId(i), frame.getRed(i),
+						frame.getGreen(i), frame.getBlue(i),
+						frame.getWhite(i), frame.getTransitionTime(i));
+			}
+			delta.clear();
+			for (int i = 0; i < frame.size(); i++)
+			{
+				int id = frame.getId(i), red = frame.getRed(i),
+						green = frame.getGreen(i), blue = frame.getBlue(i),
+						white = frame.getWhite(i), time = frame.getTransitionTime(i);
+				if (shadow.update(id, red, green, blue, white, time))
+				{
+					delta.setPanel(id, red, green, blue, white, time);
+				}
+			}
+			if (isFullRefreshDue())
+			{
+				return prepareFullRefresh();
+			}
+			else if (!deltaEnabled)
+			{
+				return frame;
+			}
+			return delta.isEmpty() ? null : delta;
+		}
+		
+		private void sendFrame(StreamFrame frame)
+				throws SocketException, IOException
+		{
+			int max = encoder.getMaxPanelsPerDatagram();
+			for (int from = 0; from < frame.size(); from += max)
+			{
+				int count = Math.min(max, frame.size() - from);
+				send(encoder.encode(frame, from, count));
+			}
+		}
+		
+		/**
+		 * Updates the colors of several panels at once, using parallel
+		 * arrays. If a panel id appears more than once, the last
+		 * occurrence is used.
+		 * @param count  the number of panels (the first <code>count</code>
+		 * 				 elements of each array are used)
+		 * @param ids  the panel ids
+		 * @param red  the red RGBW values
+		 * @param green  the green RGBW values
+		 * @param blue  the blue RGBW values
+		 * @param white  the white RGBW values
+		 * @param transitionTimes  the transition times (in units of 100ms)
+		 * @throws SocketException  if the target Aurora cannot be found or connected to
+		 * @throws IOException  if an I/O error occurs
+		 * @see #setPanels(StreamFrame)
+		 */
+		public synchronized void setPanels(int count, int[] ids, int[] red,
+				int[] green, int[] blue, int[] white, int[] transitionTimes)
+				throws SocketException, IOException
+		{
+			scratch.clear();
+			for (int i = 0; i < count; i++)
+			{
+				scratch.setPanel(ids[i], red[i], green[i],
+						blue[i], white[i], transitionTimes[i]);
+			}
+			setPanels(scratch);
+		}
+		
+		/**
+		 * Updates the colors of several panels at once, using parallel
+		 * arrays and a single transition time.
+		 * @param ids  the panel ids
+		 * @param red  the red RGB values
+		 * @param green  the green RGB values
+		 * @param blue  the blue RGB values
+		 * @param transitionTime  the time to transition to this frame from
+		 * 						  the previous frame (must be 1 or greater)
+		 * @throws SocketException  if the target Aurora cannot be found or connected to
+		 * @throws IOException  if an I/O error occurs
+		 * @see #setPanels(StreamFrame)
+		 */
+		public synchronized void setPanels(int[] ids, int[] red, int[] green,
+				int[] blue, int transitionTime) throws SocketException, IOException
+		{
+			scratch.clear();
+			for (int i = 0; i < ids.length; i++)
+			{
+				scratch.setPanel(ids[i], red[i], green[i],
+						blue[i], 0, transitionTime);
+			}
+			setPanels(scratch);
+		}
+		
+		/**
+		 * Updates the colors of several panels at once.
+		 * @param colors  the new color of each panel, keyed by panel id
+		 * @param transitionTime  the time to transition to this frame from
+		 * 						  the previous frame (must be 1 or greater)
+		 * @throws SocketException  if the target Aurora cannot be found or connected to
+		 * @throws IOException  if an I/O error occurs
+		 * @see #setPanels(StreamFrame)
+		 */
+		public synchronized void setPanels(Map<Integer, Color> colors,
+				int transitionTime) throws SocketException, IOException
+		{
+			scratch.clear();
+			for (Map.Entry<Integer, Color> entry : colors.entrySet())
+			{
+				scratch.setPanel(entry.getKey(), entry.getValue(), transitionTime);
+			}
+			setPanels(scratch);
+		}
+		
+		private synchronized void sendPanel(int panelId, int red, int green,
+				int blue, int white, int transitionTime) throws IOException
+		{
+			encoder.checkPanel(panelId, red, green, blue, white, transitionTime);
+			boolean changed = shadow.update(panelId, red,
+					green, blue, white, transitionTime);
+			if (isFullRefreshDue())
+			{
+				sendFullRefresh();
+			}
+			else if (changed || !deltaEnabled)
+			{
+				send(encoder.encode(panelId, red, green, blue, white, transitionTime));
+			}
+		}
+		
+		private boolean isFullRefreshDue()
+		{
+			return fullRefreshRequested || (fullRefreshInterval > 0 &&
+					System.nanoTime() - lastFullRefresh >= fullRefreshInterval);
+		}
+		
+		private void sendFullRefresh() throws SocketException, IOException
+		{
+			sendFrame(prepareFullRefresh());
+		}
+		
+		/**
+		 * Immediately resends the last color of every panel.
+		 * @throws SocketException  if the target Aurora cannot be found or connected to
+		 * @throws IOException  if an I/O error occurs
+		 */
+		synchronized void resendAll() throws SocketException, IOException
+		{
+			sendFullRefresh();
+		}
+		
+		private StreamFrame prepareFullRefresh()
+		{
+			delta.clear();
+			shadow.copyTo(delta);
+			fullRefreshRequested = false;
+			lastFullRefresh = System.nanoTime();
+			return delta;
+		}
+		
+		/**
+		 * Sends a single datagram through the streaming channel. If it
+		 * can't be sent, every known panel is sent with the next frame.
+		 * @param data  the datagram to send
+		 * @throws SocketException  if the target Aurora cannot be found or connected to
+		 * @throws IOException  if an I/O error occurs
+		 */
+		synchronized void send(ByteBuffer data) throws SocketException, IOException
+		{
+			int length = data.remaining();
+			try
+			{
+				channel().write(data);
+			}
+			catch (SocketException se)
+			{
+				closeChannel();
+				// The shadow already has the colors that weren't sent
+				fullRefreshRequested = true;
+				throw new SocketException("Failed to connect to target Aurora.");
+			}
+			catch (IOException ioe)
+			{
+				closeChannel();
+				fullRefreshRequested = true;
+				throw new IOException("I/O error.");
+			}
+			datagramSent(length);
+		}
+		
+		/**
+		 * Reports a datagram that was sent to this session's Aurora.
+		 * @param length  the size of the datagram in bytes
+		 */
+		void datagramSent(int length)
+		{
+			MetricsRegistry metrics = Aurora.this.metrics;
+			if (metrics != null)
+			{
+				metrics.datagramSent(hostName, length);
+			}
+		}
+		
+		/**
+		 * Gets the streaming channel, opening (and connecting) it if necessary.
+		 * @return  the connected streaming channel
+		 * @throws SocketException  if the channel cannot be opened
+		 */
+		private synchronized DatagramChannel channel() throws SocketException
+		{
+			if (channel == null || !channel.isOpen())
+			{
+				if (address == null)
+				{
+					throw new SocketException("External streaming is not enabled.");
+				}
+				try
+				{
+					channel = DatagramChannel.open();
+					channel.connect(address);
+				}
+				catch (IOException | UnresolvedAddressException e)
+				{
+					closeChannel();
+					throw new SocketException("Failed to connect to target Aurora.");
+				}
+			}
+			return channel;
+		}
+		
+		private synchronized void closeChannel()
+		{
+			if (channel != null)
+			{
+				try
+				{
+					channel.close();
+				}
+				catch (IOException ioe)
+				{
+					// ignore
+				}
+				channel = null;
+			}
+		}
+		
 		private byte[] animDataToBytes(String animData)
 		{
 			String[] dataStr = animData.split(" ");
 			byte[] dataBytes = new byte[dataStr.length];
 			for (int i = 0; i < dataStr.length; i++)
-				dataBytes[i] = (byte)Integer.parseInt(dataStr[i]);
+			{
+				int value = Integer.parseInt(dataStr[i]);
+				if (value < 0 || value > 255)
+				{
+					throw new IllegalArgumentException("Value " + value +
+							" can't be sent in the v1 format");
+				}
+				dataBytes[i] = (byte)value;
+			}
 			return dataBytes;
 		}
+		
+		/**
+		 * Reads static animation data (in the format
+		 * <code>nPanels [panelId nFrames [R G B W T]...]...</code>) into a
+		 * frame. Only the last frame of each panel is kept, since the
+		 * v2 format sends a single color per panel.
+		 */
+		private void animDataToFrame(String animData, StreamFrame frame)
+		{
+			String[] dataStr = animData.trim().split("\\s+");
+			frame.clear();
+			int numPanels = Integer.parseInt(dataStr[0]);
+			int i = 1;
+			for (int p = 0; p < numPanels; p++)
+			{
+				int panelId = Integer.parseInt(dataStr[i++]);
+				int numFrames = Integer.parseInt(dataStr[i++]);
+				for (int f = 0; f < numFrames; f++)
+				{
+					frame.setPanel(panelId,
+							Integer.parseInt(dataStr[i]),
+							Integer.parseInt(dataStr[i+1]),
+							Integer.parseInt(dataStr[i+2]),
+							Integer.parseInt(dataStr[i+3]),
+							Integer.parseInt(dataStr[i+4]));
+					i += 5;
+				}
+			}
+		}
 	}
 	
 	/**
@@ -1525,8 +2751,8 @@ public class Aurora
 		 */
 		public Schedule[] getSchedules()
 		{
-			HttpRequest req = HttpRequest.get(getURL("schedules"));
-			JSONObject obj = new JSONObject(req.body());
+			HttpResponse res = get("schedules");
+			JSONObject obj = new JSONObject(res.body());
 			JSONArray arr = obj.getJSONArray("schedules");
 			Schedule[] schedules = new Schedule[arr.length()];
 			for (int i = 0; i < arr.length(); i++)
@@ -1560,9 +2786,8 @@ public class Aurora
 			}
 			String body = String.format("{\"write\":{\"command\":" +
 					"\"addSchedules\",%s}}", schedulesStr);
-			HttpRequest req = HttpRequest.put(getURL("effects"));
-			req.send(body);
-			req.code();
+			HttpResponse res = put("effects", body);
+			checkStatusCode(res.code());
 		}
 		
 		/**
@@ -1631,9 +2856,8 @@ public class Aurora
 			}
 			String body = String.format("{\"write\":{\"command\":" +
 					"\"removeSchedules\",%s}}", schedulesStr);
-			HttpRequest req = HttpRequest.put(getURL("effects"));
-			req.send(body);
-			checkStatusCode(req.code());
+			HttpResponse res = put("effects", body);
+			checkStatusCode(res.code());
 		}
 		
 		/**
@@ -1650,40 +2874,200 @@ public class Aurora
 		}
 	}
 	
-	private HttpRequest get(String url)
+	private HttpResponse get(String endpoint)
+	{
+		String cached = cache.get(endpoint);
+		if (cached != null)
+		{
+			return new HttpResponse(200, cached);
+		}
+		long generation = cache.generation();
+		HttpResponse res = send("GET", endpoint, null);
+		if (res.code() == 200)
+		{
+			cache.put(endpoint, res.body(), generation);
+		}
+		return res;
+	}
+	
+	private HttpResponse post(String endpoint, String json)
+	{
+		return send("POST", endpoint, json);
+	}
+	
+	private HttpResponse put(String endpoint, String json)
+	{
+		HttpResponse res = send("PUT", endpoint, json);
+		if (res.code() >= 200 && res.code() < 300)
+		{
+			invalidateCache(endpoint);
+		}
+		return res;
+	}
+	
+	/**
+	 * Sends a write command that only reads data (such as
+	 * <code>requestAll</code>). Unlike {@link #put(String, String)},
+	 * it doesn't invalidate the read cache.
+	 * @param endpoint  the endpoint to send the command to
+	 * @param json  the request body
+	 * @return  the response
+	 */
+	private HttpResponse query(String endpoint, String json)
+	{
+		return send("PUT", endpoint, json);
+	}
+	
+	/**
+	 * Sends a request, retrying it according to the retry policy and
+	 * failing fast if the circuit breaker is open.
+	 * @param method  the request method
+	 * @param endpoint  the endpoint to send the request to
+	 * @param json  the request body, or null
+	 * @return  the response
+	 */
+	private HttpResponse send(String method, String endpoint, String json)
+	{
+		CircuitBreaker breaker = this.breaker;
+		RetryPolicy retryPolicy = this.retryPolicy;
+		int retries = 0;
+		while (true)
+		{
+			if (breaker != null && !breaker.tryAcquire())
+			{
+				throw new HttpRequestException(new CircuitOpenException(breaker));
+			}
+			HttpResponse res;
+			try
+			{
+				res = execute(method, endpoint, json);
+			}
+			catch (RuntimeException e)
+			{
+				if (breaker != null)
+				{
+					breaker.onFailure();
+				}
+				if (!retryPolicy.canRetry(method, retries))
+				{
+					throw e;
+				}
+				backoff(retryPolicy.getBackoff(retries++));
+				continue;
+			}
+			boolean serverError = res.code() >= 500;
+			if (breaker != null)
+			{
+				if (serverError)
+				{
+					breaker.onFailure();
+				}
+				else
+				{
+					breaker.onSuccess();
+				}
+			}
+			if (!serverError || !retryPolicy.canRetry(method, retries))
+			{
+				return res;
+			}
+			backoff(retryPolicy.getBackoff(retries++));
+		}
+	}
+	
+	private void backoff(long millis)
 	{
-		HttpRequest req = HttpRequest.get(url);
-		req.connectTimeout(2000);
-		return req;
+		try
+		{
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+			throw new HttpRequestException(new InterruptedIOException(
+					"Interrupted while waiting to retry"));
+		}
 	}
 	
-	private HttpRequest post(String url, String json)
+	/**
+	 * Sends a request through the connection pool and reports it
+	 * to the metrics registry (if there is one).
+	 * @param method  the request method
+	 * @param endpoint  the endpoint to send the request to
+	 * @param json  the request body, or null
+	 * @return  the response
+	 */
+	private HttpResponse execute(String method, String endpoint, String json)
+	{
+		MetricsRegistry metrics = this.metrics;
+		if (metrics == null)
+		{
+			return pool.execute(method, getPath(endpoint), json);
+		}
+		metrics.requestStarted(hostName, method, endpoint);
+		long start = System.nanoTime();
+		HttpResponse res;
+		try
+		{
+			res = pool.execute(method, getPath(endpoint), json);
+		}
+		catch (RuntimeException e)
+		{
+			metrics.requestFailed(hostName, method, endpoint, System.nanoTime() - start, e);
+			throw e;
+		}
+		metrics.requestCompleted(hostName, method, endpoint, res.code(),
+				System.nanoTime() - start, res.bytesSent(), res.bytesReceived());
+		return res;
+	}
+	
+	/**
+	 * Checks if an effect write command only reads data.
+	 * @param command  the write command
+	 * @return  true, if the command is "request", "requestAll"
+	 * 			or "requestPlugins"
+	 */
+	private static boolean isReadCommand(String command)
 	{
-		HttpRequest req = HttpRequest.post(url);
-		req.connectTimeout(2000);
-		if (json != null)
-			req.send(json);
-		return req;
+		try
+		{
+			String type = new JSONObject(command).optString("command");
+			return type.equals("request") || type.equals("requestAll") ||
+					type.equals("requestPlugins");
+		}
+		catch (JSONException je)
+		{
+			return false;
+		}
 	}
 	
-	private HttpRequest put(String url, String json)
+	/**
+	 * Removes the cached values that may have been changed by a write.
+	 * @param endpoint  the endpoint that was written to
+	 */
+	private void invalidateCache(String endpoint)
 	{
-		HttpRequest req = HttpRequest.put(url);
-		req.connectTimeout(2000);
-		if (json != null)
-			req.send(json);
-		return req;
+		cache.invalidate(endpoint);
+		if (endpoint.equals("effects"))
+		{
+			// Selecting an effect also changes the color mode
+			cache.invalidate("state/colorMode");
+		}
+		else if (endpoint.equals("panelLayout"))
+		{
+			panelLayout.invalidateModel();
+		}
 	}
 	
 	/**
-	 * Constructs a full URL to make an Aurora API call.
+	 * Constructs the request path to make an Aurora API call.
 	 * @param endpoint  the final location in the API call (used to navigate <code>JSON</code>)
-	 * @return  a completed URL (ready to be sent)
+	 * @return  a completed request path (ready to be sent)
 	 */
-	private String getURL(String endpoint)
+	String getPath(String endpoint)
 	{
-		return String.format("http://%s:%d/api/%s/%s/%s",
-				hostName, port, apiLevel, accessToken, endpoint);
+		return String.format("/api/%s/%s/%s",
+				apiLevel, accessToken, endpoint);
 	}
 	
 	/**
@@ -1691,8 +3075,13 @@ public class Aurora
 	 * @param code  the response status code
 	 * @throws StatusCodeException  if <code>code</code> matches an error status code
 	 */
-	private void checkStatusCode(int code) throws StatusCodeException
+	void checkStatusCode(int code) throws StatusCodeException
 	{
+		MetricsRegistry metrics = this.metrics;
+		if (metrics != null && code >= 400)
+		{
+			metrics.statusCodeError(hostName, code);
+		}
 		switch (code)
 		{
 			case 400:
@@ -0,0 +1,173 @@
+package io.github.rowak.nanoleafapi;
+
+import org.json.JSONObject;
+
+/**
+ * A single event received from the Aurora's event stream.
+ * Every event has a type and an attribute that identifies what changed
+ * (for example: {@link EventType#STATE} and {@link #ATTRIBUTE_BRIGHTNESS}).
+ * Touch events have a panel id and a gesture instead.
+ */
+public class AuroraEvent
+{
+	/** The on state changed (<code>STATE</code> events, boolean value). */
+	public static final int ATTRIBUTE_ON = 1;
+	/** The brightness changed (<code>STATE</code> events, int value). */
+	public static final int ATTRIBUTE_BRIGHTNESS = 2;
+	/** The hue changed (<code>STATE</code> events, int value). */
+	public static final int ATTRIBUTE_HUE = 3;
+	/** The saturation changed (<code>STATE</code> events, int value). */
+	public static final int ATTRIBUTE_SATURATION = 4;
+	/** The color temperature changed (<code>STATE</code> events, int value). */
+	public static final int ATTRIBUTE_COLOR_TEMPERATURE = 5;
+	/** The color mode changed (<code>STATE</code> events, string value). */
+	public static final int ATTRIBUTE_COLOR_MODE = 6;
+	/** The panel layout changed (<code>LAYOUT</code> events, <code>JSON</code> value). */
+	public static final int ATTRIBUTE_LAYOUT = 1;
+	/** The global orientation changed (<code>LAYOUT</code> events, int value). */
+	public static final int ATTRIBUTE_GLOBAL_ORIENTATION = 2;
+	/** The selected effect changed (<code>EFFECTS</code> events, string value). */
+	public static final int ATTRIBUTE_SELECTED_EFFECT = 1;
+
+	/** A panel was tapped once. */
+	public static final int GESTURE_SINGLE_TAP = 0;
+	/** A panel was tapped twice. */
+	public static final int GESTURE_DOUBLE_TAP = 1;
+	/** The panels were swiped up. */
+	public static final int GESTURE_SWIPE_UP = 2;
+	/** The panels were swiped down. */
+	public static final int GESTURE_SWIPE_DOWN = 3;
+	/** The panels were swiped left. */
+	public static final int GESTURE_SWIPE_LEFT = 4;
+	/** The panels were swiped right. */
+	public static final int GESTURE_SWIPE_RIGHT = 5;
+
+	private EventType type;
+	private int attribute;
+	private Object value;
+	private int panelId;
+	private int gesture;
+
+	/**
+	 * Creates a new event.
+	 * @param type  the type of the event
+	 * @param attribute  the attribute that changed (-1 for touch events)
+	 * @param value  the new value of the attribute (null for touch events)
+	 * @param panelId  the id of the touched panel (-1 if not a touch event)
+	 * @param gesture  the touch gesture (-1 if not a touch event)
+	 */
+	public AuroraEvent(EventType type, int attribute,
+			Object value, int panelId, int gesture)
+	{
+		this.type = type;
+		this.attribute = attribute;
+		this.value = value;
+		this.panelId = panelId;
+		this.gesture = gesture;
+	}
+
+	/**
+	 * Creates an event from a single element of the
+	 * "events" array sent by the Aurora.
+	 * @param type  the type of the event
+	 * @param json  the event <code>JSON</code>
+	 * @return  the parsed event
+	 */
+	static AuroraEvent fromJSON(EventType type, JSONObject json)
+	{
+		if (type == EventType.TOUCH)
+		{
+			return new AuroraEvent(type, -1, null,
+					json.optInt("panelId", -1), json.optInt("gesture", -1));
+		}
+		return new AuroraEvent(type, json.optInt("attr", -1),
+				json.opt("value"), -1, -1);
+	}
+
+	/**
+	 * Gets the type of the event.
+	 * @return  the event type
+	 */
+	public EventType getType()
+	{
+		return this.type;
+	}
+
+	/**
+	 * Gets the attribute that changed. The meaning of the attribute
+	 * depends on the type of the event (see the <code>ATTRIBUTE_</code> constants).
+	 * @return  the attribute, or -1 for touch events
+	 */
+	public int getAttribute()
+	{
+		return this.attribute;
+	}
+
+	/**
+	 * Gets the new value of the attribute as it was sent by the Aurora.
+	 * @return  the new value (a <code>Boolean</code>, <code>Integer</code>,
+	 * 			<code>String</code> or <code>JSONObject</code>), or null
+	 */
+	public Object getValue()
+	{
+		return this.value;
+	}
+
+	/**
+	 * Gets the new value of the attribute as a boolean.
+	 * @return  the value, or false if the value is not a boolean
+	 */
+	public boolean getBooleanValue()
+	{
+		return value instanceof Boolean ? (Boolean)value :
+			Boolean.parseBoolean(String.valueOf(value));
+	}
+
+	/**
+	 * Gets the new value of the attribute as an int.
+	 * @return  the value, or -1 if the value is not a number
+	 */
+	public int getIntValue()
+	{
+		return value instanceof Number ? ((Number)value).intValue() : -1;
+	}
+
+	/**
+	 * Gets the new value of the attribute as a string.
+	 * @return  the value, or null if there is no value
+	 */
+	public String getStringValue()
+	{
+		return value != null ? value.toString() : null;
+	}
+
+	/**
+	 * Gets the id of the panel that was touched.
+	 * @return  the panel id, or -1 if this is not a touch event
+	 */
+	public int getPanelId()
+	{
+		return this.panelId;
+	}
+
+	/**
+	 * Gets the touch gesture (see the <code>GESTURE_</code> constants).
+	 * @return  the gesture, or -1 if this is not a touch event
+	 */
+	public int getGesture()
+	{
+		return this.gesture;
+	}
+
+	@Override
+	public String toString()
+	{
+		if (type == EventType.TOUCH)
+		{
+			return String.format("AuroraEvent[%s, panelId=%d, gesture=%d]",
+					type, panelId, gesture);
+		}
+		return String.format("AuroraEvent[%s, attribute=%d, value=%s]",
+				type, attribute, value);
+	}
+}
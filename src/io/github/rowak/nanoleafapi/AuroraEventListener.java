@@ -0,0 +1,14 @@
+package io.github.rowak.nanoleafapi;
+
+/**
+ * Receives events from an {@link AuroraEvents} subscription.
+ */
+@FunctionalInterface
+public interface AuroraEventListener
+{
+	/**
+	 * Called (on the subscription's thread) for every event that is received.
+	 * @param event  the event
+	 */
+	void onEvent(AuroraEvent event);
+}
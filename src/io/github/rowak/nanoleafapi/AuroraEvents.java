@@ -0,0 +1,585 @@
+package io.github.rowak.nanoleafapi;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import io.github.rowak.nanoleafapi.StatusCodeException.UnauthorizedException;
+
+/**
+ * Subscribes to the Aurora's event stream (server-sent events), so that
+ * changes to the state, panel layout and selected effect, as well as
+ * touch gestures, can be received as they happen instead of polling the
+ * getters. Each subscription keeps a single streaming connection open,
+ * parses every event as soon as it arrives, and reconnects automatically
+ * if the connection is lost. A connection that stays silent for longer
+ * than {@link #READ_TIMEOUT} (for example, because the Aurora lost power
+ * without closing it) is also treated as lost.
+ * <p>
+ * Events also keep the Aurora's {@link ReadCache} and
+ * {@link LayoutModel} up to date by invalidating the values that changed.
+ */
+public class AuroraEvents
+{
+	/**
+	 * The default delay (in milliseconds) before reconnecting
+	 * after the event stream is lost.
+	 */
+	public static final long DEFAULT_RECONNECT_DELAY = 1000;
+
+	/**
+	 * The minimum delay (in milliseconds) before reconnecting. A shorter
+	 * <code>retry</code> time sent by the Aurora is raised to this value.
+	 */
+	public static final long MIN_RECONNECT_DELAY = 100;
+
+	/**
+	 * The maximum delay (in milliseconds) between reconnection attempts.
+	 * The delay doubles after every failed attempt until it reaches this value.
+	 */
+	public static final long MAX_RECONNECT_DELAY = 30000;
+
+	/**
+	 * The time (in milliseconds) that the event stream may stay silent
+	 * before the connection is considered lost. This is a bit longer than
+	 * the interval of the keep-alive messages that the Aurora sends while
+	 * there are no events.
+	 */
+	public static final int READ_TIMEOUT = 90000;
+
+	/**
+	 * The state endpoint for each <code>STATE</code> event attribute.
+	 */
+	private static final String[] STATE_ENDPOINTS =
+	{
+		null, "state/on", "state/brightness", "state/hue",
+		"state/sat", "state/ct", "state/colorMode"
+	};
+
+	private Aurora aurora;
+	private List<Subscription> subscriptions;
+
+	/**
+	 * Creates the event subscriptions for an Aurora.
+	 * @param aurora  the Aurora to receive events from
+	 */
+	AuroraEvents(Aurora aurora)
+	{
+		this.aurora = aurora;
+		this.subscriptions = new CopyOnWriteArrayList<Subscription>();
+	}
+
+	/**
+	 * Subscribes to one or more types of events. A new streaming connection
+	 * is opened in the background, and the listener is called for every
+	 * event that is received until the subscription is closed.
+	 * @param listener  the listener to call for each event
+	 * @param types  the types of events to receive (all types if none are given)
+	 * @return  the new subscription
+	 */
+	public Subscription subscribe(AuroraEventListener listener, EventType... types)
+	{
+		if (types.length == 0)
+		{
+			types = EventType.values();
+		}
+		Subscription subscription = new Subscription(listener, types);
+		subscriptions.add(subscription);
+		subscription.thread.start();
+		return subscription;
+	}
+
+	/**
+	 * Gets the subscriptions that are currently open.
+	 * @return  a list of the open subscriptions
+	 */
+	public List<Subscription> getSubscriptions()
+	{
+		return new ArrayList<Subscription>(subscriptions);
+	}
+
+	/**
+	 * Closes every open subscription.
+	 */
+	public void closeAll()
+	{
+		for (Subscription subscription : subscriptions)
+		{
+			subscription.close();
+		}
+	}
+
+	private void invalidate(AuroraEvent event)
+	{
+		ReadCache cache = aurora.getReadCache();
+		switch (event.getType())
+		{
+			case STATE:
+				int attribute = event.getAttribute();
+				if (attribute > 0 && attribute < STATE_ENDPOINTS.length)
+				{
+					cache.invalidate(STATE_ENDPOINTS[attribute]);
+				}
+				else
+				{
+					cache.invalidate("state");
+				}
+				break;
+			case LAYOUT:
+				cache.invalidate("panelLayout");
+				aurora.panelLayout().invalidateModel();
+				break;
+			case EFFECTS:
+				cache.invalidate("effects/select");
+				cache.invalidate("state/colorMode");
+				aurora.effectLibrary().invalidate();
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * A single subscription to the Aurora's event stream.
+	 */
+	public class Subscription implements AutoCloseable
+	{
+		private AuroraEventListener listener;
+		private EventType[] types;
+		private Thread thread;
+		private volatile Socket socket;
+		private volatile boolean connected, closed;
+		private volatile Exception lastError;
+		private volatile long eventCount;
+		private long reconnectDelay, currentDelay;
+
+		private Subscription(AuroraEventListener listener, EventType[] types)
+		{
+			this.listener = listener;
+			this.types = types.clone();
+			this.reconnectDelay = DEFAULT_RECONNECT_DELAY;
+			this.currentDelay = reconnectDelay;
+			this.thread = new Thread(this::run, "nanoleaf-events");
+			this.thread.setDaemon(true);
+		}
+
+		/**
+		 * Gets the types of events that this subscription receives.
+		 * @return  the event types
+		 */
+		public EventType[] getTypes()
+		{
+			return this.types.clone();
+		}
+
+		/**
+		 * Checks if the event stream is currently connected.
+		 * @return  true, if the event stream is connected
+		 */
+		public boolean isConnected()
+		{
+			return this.connected;
+		}
+
+		/**
+		 * Checks if the subscription has been closed. A subscription is
+		 * closed by {@link #close()}, or if the access token is rejected.
+		 * @return  true, if the subscription is closed
+		 */
+		public boolean isClosed()
+		{
+			return this.closed;
+		}
+
+		/**
+		 * Gets the error that caused the most recent disconnect.
+		 * @return  the most recent error, or null if there were no errors
+		 */
+		public Exception getLastError()
+		{
+			return this.lastError;
+		}
+
+		/**
+		 * Gets the number of events that have been received.
+		 * @return  the number of events
+		 */
+		public long getEventCount()
+		{
+			return this.eventCount;
+		}
+
+		/**
+		 * Stops receiving events and closes the event stream.
+		 */
+		@Override
+		public void close()
+		{
+			synchronized (this)
+			{
+				closed = true;
+				notifyAll();
+			}
+			subscriptions.remove(this);
+			closeSocket();
+		}
+
+		private void run()
+		{
+			while (!closed)
+			{
+				try
+				{
+					stream();
+				}
+				catch (UnauthorizedException ue)
+				{
+					lastError = ue;
+					close();
+				}
+				catch (SocketTimeoutException ste)
+				{
+					// Nothing was received, not even a keep-alive, so the
+					// connection is gone even though it was never closed
+					lastError = ste;
+				}
+				catch (StatusCodeException | IOException | RuntimeException e)
+				{
+					if (!closed)
+					{
+						lastError = e;
+					}
+				}
+				connected = false;
+				closeSocket();
+				waitToReconnect();
+			}
+		}
+
+		private void waitToReconnect()
+		{
+			synchronized (this)
+			{
+				long deadline = System.currentTimeMillis() + currentDelay;
+				long remaining = currentDelay;
+				while (!closed && remaining > 0)
+				{
+					try
+					{
+						wait(remaining);
+					}
+					catch (InterruptedException ie)
+					{
+						Thread.currentThread().interrupt();
+						return;
+					}
+					remaining = deadline - System.currentTimeMillis();
+				}
+			}
+			currentDelay = Math.min(currentDelay * 2, MAX_RECONNECT_DELAY);
+		}
+
+		private void stream() throws StatusCodeException, IOException
+		{
+			Socket socket = new Socket();
+			this.socket = socket;
+			if (closed)
+			{
+				return;
+			}
+			socket.setKeepAlive(true);
+			socket.setTcpNoDelay(true);
+			socket.setSoTimeout(READ_TIMEOUT);
+			socket.connect(new InetSocketAddress(aurora.getHostName(), aurora.getPort()),
+					aurora.getConnectionPool().getConnectTimeout());
+
+			StringBuilder ids = new StringBuilder();
+			for (EventType type : types)
+			{
+				ids.append(ids.length() > 0 ? "," : "").append(type.getId());
+			}
+			String request = "GET " + aurora.getPath("events?id=" + ids) + " HTTP/1.1\r\n" +
+					"Host: " + aurora.getHostName() + ":" + aurora.getPort() + "\r\n" +
+					"Accept: text/event-stream\r\n\r\n";
+			OutputStream out = socket.getOutputStream();
+			out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+			out.flush();
+
+			LineReader reader = new LineReader(new BufferedInputStream(socket.getInputStream()));
+			String statusLine = reader.readLine();
+			if (statusLine == null)
+			{
+				throw new EOFException("Connection closed by " + aurora.getHostName());
+			}
+			String[] status = statusLine.split(" ", 3);
+			int code = status.length > 1 ? Integer.parseInt(status[1]) : -1;
+			boolean chunked = false;
+			String line;
+			while ((line = reader.readLine()) != null && !line.isEmpty())
+			{
+				String lower = line.toLowerCase(Locale.ROOT);
+				if (lower.startsWith("transfer-encoding:") && lower.contains("chunked"))
+				{
+					chunked = true;
+				}
+			}
+			if (code != 200)
+			{
+				aurora.checkStatusCode(code);
+				throw new IOException("Unexpected status code: " + code);
+			}
+			if (chunked)
+			{
+				reader = new LineReader(new ChunkedInputStream(reader.in));
+			}
+			connected = true;
+			currentDelay = reconnectDelay;
+
+			String id = null;
+			StringBuilder data = new StringBuilder();
+			while ((line = reader.readLine()) != null)
+			{
+				if (line.isEmpty())
+				{
+					if (data.length() > 0)
+					{
+						dispatch(id, data.toString());
+					}
+					id = null;
+					data.setLength(0);
+					continue;
+				}
+				if (line.charAt(0) == ':')
+				{
+					continue;
+				}
+				int colon = line.indexOf(':');
+				String field = colon != -1 ? line.substring(0, colon) : line;
+				String value = colon != -1 ? line.substring(colon + 1) : "";
+				if (value.startsWith(" "))
+				{
+					value = value.substring(1);
+				}
+				switch (field)
+				{
+					case "id":
+						id = value;
+						break;
+					case "data":
+						if (data.length() > 0)
+						{
+							data.append('\n');
+						}
+						data.append(value);
+						break;
+					case "retry":
+						try
+						{
+							long retry = Long.parseLong(value.trim());
+							if (retry >= 0)
+							{
+								// Never reconnect in a tight loop
+								reconnectDelay = Math.min(Math.max(retry,
+										MIN_RECONNECT_DELAY), MAX_RECONNECT_DELAY);
+							}
+						}
+						catch (NumberFormatException nfe)
+						{
+							// ignore
+						}
+						break;
+				}
+			}
+			if (!closed)
+			{
+				throw new EOFException("Event stream closed by " + aurora.getHostName());
+			}
+		}
+
+		private void dispatch(String id, String data)
+		{
+			EventType type;
+			JSONArray events;
+			try
+			{
+				type = EventType.fromId(Integer.parseInt(id.trim()));
+				events = new JSONObject(data).getJSONArray("events");
+			}
+			catch (NullPointerException | NumberFormatException | JSONException e)
+			{
+				// Not an event that can be parsed
+				return;
+			}
+			if (type == null || !Arrays.asList(types).contains(type))
+			{
+				return;
+			}
+			for (int i = 0; i < events.length(); i++)
+			{
+				JSONObject json = events.optJSONObject(i);
+				if (json == null)
+				{
+					continue;
+				}
+				AuroraEvent event = AuroraEvent.fromJSON(type, json);
+				eventCount++;
+				invalidate(event);
+				try
+				{
+					listener.onEvent(event);
+				}
+				catch (RuntimeException re)
+				{
+					// A listener error should not close the event stream
+				}
+			}
+		}
+
+		private void closeSocket()
+		{
+			Socket socket = this.socket;
+			if (socket != null)
+			{
+				try
+				{
+					socket.close();
+				}
+				catch (IOException ioe)
+				{
+					// ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads UTF-8 lines from a stream one at a time, without
+	 * reading ahead past the end of the current line.
+	 */
+	private static class LineReader
+	{
+		private InputStream in;
+		private byte[] buffer = new byte[256];
+
+		private LineReader(InputStream in)
+		{
+			this.in = in;
+		}
+
+		private String readLine() throws IOException
+		{
+			int length = 0;
+			int c;
+			while ((c = in.read()) != -1)
+			{
+				if (c == '\n')
+				{
+					if (length > 0 && buffer[length - 1] == '\r')
+					{
+						length--;
+					}
+					return new String(buffer, 0, length, StandardCharsets.UTF_8);
+				}
+				if (length == buffer.length)
+				{
+					buffer = Arrays.copyOf(buffer, length * 2);
+				}
+				buffer[length++] = (byte)c;
+			}
+			return length > 0 ? new String(buffer, 0, length, StandardCharsets.UTF_8) : null;
+		}
+	}
+
+	/**
+	 * Decodes a chunked response body as it is read.
+	 */
+	private static class ChunkedInputStream extends InputStream
+	{
+		private InputStream in;
+		private int remaining;
+		private boolean finished;
+
+		private ChunkedInputStream(InputStream in)
+		{
+			this.in = in;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			if (!nextChunk())
+			{
+				return -1;
+			}
+			remaining--;
+			return in.read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			if (!nextChunk())
+			{
+				return -1;
+			}
+			int n = in.read(b, off, Math.min(len, remaining));
+			if (n > 0)
+			{
+				remaining -= n;
+			}
+			return n;
+		}
+
+		private boolean nextChunk() throws IOException
+		{
+			if (finished)
+			{
+				return false;
+			}
+			if (remaining > 0)
+			{
+				return true;
+			}
+			StringBuilder sizeLine = new StringBuilder();
+			int c;
+			while ((c = in.read()) != '\n')
+			{
+				if (c == -1)
+				{
+					finished = true;
+					return false;
+				}
+				sizeLine.append((char)c);
+			}
+			String size = sizeLine.toString().trim();
+			if (size.isEmpty())
+			{
+				// The line break after the previous chunk
+				return nextChunk();
+			}
+			int ext = size.indexOf(';');
+			remaining = Integer.parseInt(ext >= 0 ? size.substring(0, ext).trim() : size, 16);
+			if (remaining == 0)
+			{
+				finished = true;
+				return false;
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,593 @@
+package io.github.rowak.nanoleafapi;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * An immutable, point-in-time copy of all of the information that an Aurora
+ * controller reports about itself (state, effects, panel layout and Rhythm).
+ * A snapshot is created from a <i>single</i> request to the controller using
+ * {@link Aurora#getSnapshot()}, so it is much faster than calling each getter
+ * in <code>Aurora</code> individually.
+ */
+public class AuroraSnapshot
+{
+	private long time;
+	private String name;
+	private String serialNumber;
+	private String manufacturer;
+	private String firmwareVersion;
+	private String model;
+
+	private State state;
+	private Effects effects;
+	private PanelLayout panelLayout;
+	private Rhythm rhythm;
+
+	private AuroraSnapshot() {}
+
+	/**
+	 * Parses a snapshot from the <code>JSON</code> data returned
+	 * by the root endpoint of the Aurora OpenAPI.
+	 * @param json  the <code>JSON</code> data to convert
+	 * @return  a new <code>AuroraSnapshot</code> equivalent
+	 * 			to the <code>JSON</code> data
+	 */
+	public static AuroraSnapshot fromJSON(String json)
+	{
+		return fromJSON(new JSONObject(json));
+	}
+
+	/**
+	 * Parses a snapshot from the <code>JSON</code> data returned
+	 * by the root endpoint of the Aurora OpenAPI.
+	 * @param json  the <code>JSON</code> data to convert
+	 * @return  a new <code>AuroraSnapshot</code> equivalent
+	 * 			to the <code>JSON</code> data
+	 */
+	public static AuroraSnapshot fromJSON(JSONObject json)
+	{
+		AuroraSnapshot snapshot = new AuroraSnapshot();
+		snapshot.time = System.currentTimeMillis();
+		snapshot.name = json.optString("name", null);
+		snapshot.serialNumber = json.optString("serialNo", null);
+		snapshot.manufacturer = json.optString("manufacturer", null);
+		snapshot.firmwareVersion = json.optString("firmwareVersion", null);
+		snapshot.model = json.optString("model", null);
+		snapshot.state = new State(json.optJSONObject("state"));
+		snapshot.effects = new Effects(json.optJSONObject("effects"));
+		snapshot.rhythm = new Rhythm(json.optJSONObject("rhythm"));
+		snapshot.panelLayout = new PanelLayout(json.optJSONObject("panelLayout"),
+				snapshot.rhythm.getConnected());
+		return snapshot;
+	}
+
+	/**
+	 * Gets the time that this snapshot was taken.
+	 * @return  the time in milliseconds since the epoch
+	 */
+	public long getTime()
+	{
+		return this.time;
+	}
+
+	/**
+	 * Gets the unique name of the Aurora controller.
+	 * @return  the name of the Aurora controller
+	 */
+	public String getName()
+	{
+		return this.name;
+	}
+
+	/**
+	 * Gets the unique serial number of the Aurora controller.
+	 * @return  the serial number of the Aurora controller
+	 */
+	public String getSerialNumber()
+	{
+		return this.serialNumber;
+	}
+
+	/**
+	 * Gets the name of the manufacturer of the Aurora controller.
+	 * @return  the name of the manufacturer
+	 */
+	public String getManufacturer()
+	{
+		return this.manufacturer;
+	}
+
+	/**
+	 * Gets the firmware version of the Aurora controller.
+	 * @return  the firmware version
+	 */
+	public String getFirmwareVersion()
+	{
+		return this.firmwareVersion;
+	}
+
+	/**
+	 * Gets the model of the Aurora controller.
+	 * @return  the model of the Aurora controller
+	 */
+	public String getModel()
+	{
+		return this.model;
+	}
+
+	/**
+	 * Gets the state information contained in this snapshot.
+	 * @return  the snapshot's <code>State</code> object
+	 */
+	public State state()
+	{
+		return this.state;
+	}
+
+	/**
+	 * Gets the effects information contained in this snapshot.
+	 * @return  the snapshot's <code>Effects</code> object
+	 */
+	public Effects effects()
+	{
+		return this.effects;
+	}
+
+	/**
+	 * Gets the panel layout information contained in this snapshot.
+	 * @return  the snapshot's <code>PanelLayout</code> object
+	 */
+	public PanelLayout panelLayout()
+	{
+		return this.panelLayout;
+	}
+
+	/**
+	 * Gets the Rhythm information contained in this snapshot.
+	 * @return  the snapshot's <code>Rhythm</code> object
+	 */
+	public Rhythm rhythm()
+	{
+		return this.rhythm;
+	}
+
+	private static JSONObject optObject(JSONObject json, String key)
+	{
+		JSONObject obj = json != null ? json.optJSONObject(key) : null;
+		return obj != null ? obj : new JSONObject();
+	}
+
+	/**
+	 * The Aurora state information contained in a snapshot.
+	 * @see Aurora.State
+	 */
+	public static class State
+	{
+		private boolean on;
+		private int brightness, maxBrightness, minBrightness;
+		private int hue, maxHue, minHue;
+		private int saturation, maxSaturation, minSaturation;
+		private int colorTemperature, maxColorTemperature, minColorTemperature;
+		private String colorMode;
+
+		private State(JSONObject json)
+		{
+			JSONObject brightness = optObject(json, "brightness");
+			JSONObject hue = optObject(json, "hue");
+			JSONObject sat = optObject(json, "sat");
+			JSONObject ct = optObject(json, "ct");
+			this.on = optObject(json, "on").optBoolean("value");
+			this.brightness = brightness.optInt("value", -1);
+			this.maxBrightness = brightness.optInt("max", -1);
+			this.minBrightness = brightness.optInt("min", -1);
+			this.hue = hue.optInt("value", -1);
+			this.maxHue = hue.optInt("max", -1);
+			this.minHue = hue.optInt("min", -1);
+			this.saturation = sat.optInt("value", -1);
+			this.maxSaturation = sat.optInt("max", -1);
+			this.minSaturation = sat.optInt("min", -1);
+			this.colorTemperature = ct.optInt("value", -1);
+			this.maxColorTemperature = ct.optInt("max", -1);
+			this.minColorTemperature = ct.optInt("min", -1);
+			this.colorMode = json != null ? json.optString("colorMode", null) : null;
+		}
+
+		/**
+		 * Gets the on state of the Aurora (true = on, false = off).
+		 * @return  true, if the Aurora is on
+		 */
+		public boolean getOn()
+		{
+			return this.on;
+		}
+
+		/**
+		 * Gets the master brightness of the Aurora.
+		 * @return  the brightness of the Aurora
+		 */
+		public int getBrightness()
+		{
+			return this.brightness;
+		}
+
+		/**
+		 * Gets the maximum brightness of the Aurora.
+		 * @return  the maximum brightness
+		 */
+		public int getMaxBrightness()
+		{
+			return this.maxBrightness;
+		}
+
+		/**
+		 * Gets the minimum brightness of the Aurora.
+		 * @return  the minimum brightness
+		 */
+		public int getMinBrightness()
+		{
+			return this.minBrightness;
+		}
+
+		/**
+		 * Gets the hue of the Aurora (static/custom effects only).
+		 * @return  the hue of the Aurora
+		 */
+		public int getHue()
+		{
+			return this.hue;
+		}
+
+		/**
+		 * Gets the maximum hue of the Aurora.
+		 * @return  the maximum hue
+		 */
+		public int getMaxHue()
+		{
+			return this.maxHue;
+		}
+
+		/**
+		 * Gets the minimum hue of the Aurora.
+		 * @return  the minimum hue
+		 */
+		public int getMinHue()
+		{
+			return this.minHue;
+		}
+
+		/**
+		 * Gets the saturation of the Aurora (static/custom effects only).
+		 * @return  the saturation of the Aurora
+		 */
+		public int getSaturation()
+		{
+			return this.saturation;
+		}
+
+		/**
+		 * Gets the maximum saturation of the Aurora.
+		 * @return  the maximum saturation
+		 */
+		public int getMaxSaturation()
+		{
+			return this.maxSaturation;
+		}
+
+		/**
+		 * Gets the minimum saturation of the Aurora.
+		 * @return  the minimum saturation
+		 */
+		public int getMinSaturation()
+		{
+			return this.minSaturation;
+		}
+
+		/**
+		 * Gets the color temperature of the Aurora (color temperature effect only).
+		 * @return  the color temperature of the Aurora
+		 */
+		public int getColorTemperature()
+		{
+			return this.colorTemperature;
+		}
+
+		/**
+		 * Gets the maximum color temperature of the Aurora.
+		 * @return  the maximum color temperature
+		 */
+		public int getMaxColorTemperature()
+		{
+			return this.maxColorTemperature;
+		}
+
+		/**
+		 * Gets the minimum color temperature of the Aurora.
+		 * @return  the minimum color temperature
+		 */
+		public int getMinColorTemperature()
+		{
+			return this.minColorTemperature;
+		}
+
+		/**
+		 * Gets the color mode of the Aurora.
+		 * @return  the color mode
+		 */
+		public String getColorMode()
+		{
+			return this.colorMode;
+		}
+
+		/**
+		 * Gets the color (HSB/RGB) of the Aurora.<br>
+		 * <b>Note: This is only meaningful if the Aurora is displaying a solid color.</b>
+		 * @return  the color of the Aurora
+		 */
+		public Color getColor()
+		{
+			return Color.fromHSB(hue, saturation, brightness);
+		}
+	}
+
+	/**
+	 * The Aurora effects information contained in a snapshot.
+	 * @see Aurora.Effects
+	 */
+	public static class Effects
+	{
+		private String currentEffectName;
+		private String[] effectsList;
+
+		private Effects(JSONObject json)
+		{
+			this.currentEffectName = json != null ? json.optString("select", null) : null;
+			JSONArray arr = json != null ? json.optJSONArray("effectsList") : null;
+			this.effectsList = new String[arr != null ? arr.length() : 0];
+			for (int i = 0; i < effectsList.length; i++)
+			{
+				effectsList[i] = arr.getString(i);
+			}
+		}
+
+		/**
+		 * Gets the name of the currently selected effect on the Aurora controller.
+		 * @return  the name of the effect
+		 */
+		public String getCurrentEffectName()
+		{
+			return this.currentEffectName;
+		}
+
+		/**
+		 * Gets a string array of all the effects installed on the Aurora controller.
+		 * @return  a string array of all the effects
+		 */
+		public String[] getEffectsList()
+		{
+			return this.effectsList.clone();
+		}
+	}
+
+	/**
+	 * The Aurora panel layout information contained in a snapshot.
+	 * @see Aurora.PanelLayout
+	 */
+	public static class PanelLayout
+	{
+		private int numPanels;
+		private int sideLength;
+		private Panel[] panels;
+		private int globalOrientation, maxGlobalOrientation, minGlobalOrientation;
+		private boolean rhythmConnected;
+
+		private PanelLayout(JSONObject json, boolean rhythmConnected)
+		{
+			JSONObject layout = optObject(json, "layout");
+			JSONObject orientation = optObject(json, "globalOrientation");
+			this.numPanels = layout.optInt("numPanels", 0);
+			this.sideLength = layout.optInt("sideLength", -1);
+			JSONArray arr = layout.optJSONArray("positionData");
+			this.panels = new Panel[arr != null ? arr.length() : 0];
+			for (int i = 0; i < panels.length; i++)
+			{
+				JSONObject data = arr.getJSONObject(i);
+				panels[i] = new Panel(data.getInt("panelId"),
+						data.getInt("x"), data.getInt("y"), data.getInt("o"));
+			}
+			this.globalOrientation = orientation.optInt("value", -1);
+			this.maxGlobalOrientation = orientation.optInt("max", -1);
+			this.minGlobalOrientation = orientation.optInt("min", -1);
+			this.rhythmConnected = rhythmConnected;
+		}
+
+		/**
+		 * Gets the number of panels connected to the Aurora controller.
+		 * @param includeRhythm  whether or not to include the Rhythm as a panel
+		 * 		   (inluded by default in the OpenAPI)
+		 * @return  the number of panels
+		 */
+		public int getNumPanels(boolean includeRhythm)
+		{
+			return !includeRhythm || !rhythmConnected ? numPanels - 1 : numPanels;
+		}
+
+		/**
+		 * Gets the side length of each panel connected to the Aurora.
+		 * @return  the side length of each panel
+		 */
+		public int getSideLength()
+		{
+			return this.sideLength;
+		}
+
+		/**
+		 * Gets an array of the connected panels.
+		 * Each <code>Panel</code> contains the <b>original position data.</b>
+		 * @return  an array of panels
+		 */
+		public Panel[] getPanels()
+		{
+			Panel[] copy = new Panel[panels.length];
+			for (int i = 0; i < panels.length; i++)
+			{
+				Panel p = panels[i];
+				copy[i] = new Panel(p.getId(), p.getX(), p.getY(), p.getOrientation());
+			}
+			return copy;
+		}
+
+		/**
+		 * Finds a <code>Panel</code> object using its panel id.
+		 * @param id  the panel id for the panel
+		 * @return  a <code>Panel</code> with the same id, or null if no panel is found
+		 */
+		public Panel getPanel(int id)
+		{
+			for (Panel p : panels)
+			{
+				if (p.getId() == id)
+				{
+					return new Panel(p.getId(), p.getX(), p.getY(), p.getOrientation());
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Gets the global orientation for the Aurora.
+		 * @return  the global orientation
+		 */
+		public int getGlobalOrientation()
+		{
+			return this.globalOrientation;
+		}
+
+		/**
+		 * Gets the maximum global orientation for the Aurora.
+		 * @return  the maximum global orientation
+		 */
+		public int getMaxGlobalOrientation()
+		{
+			return this.maxGlobalOrientation;
+		}
+
+		/**
+		 * Gets the minimum global orientation for the Aurora.
+		 * @return  the minimum global orientation
+		 */
+		public int getMinGlobalOrientation()
+		{
+			return this.minGlobalOrientation;
+		}
+	}
+
+	/**
+	 * The Aurora Rhythm information contained in a snapshot.
+	 * @see Aurora.Rhythm
+	 */
+	public static class Rhythm
+	{
+		private boolean connected;
+		private boolean active;
+		private int id;
+		private String hardwareVersion;
+		private String firmwareVersion;
+		private boolean auxAvailable;
+		private int mode;
+		private Position position;
+
+		private Rhythm(JSONObject json)
+		{
+			if (json == null)
+			{
+				json = new JSONObject();
+			}
+			this.connected = json.optBoolean("rhythmConnected");
+			this.active = json.optBoolean("rhythmActive");
+			this.id = json.optInt("rhythmId", -1);
+			this.hardwareVersion = json.isNull("hardwareVersion") ?
+					null : json.optString("hardwareVersion", null);
+			this.firmwareVersion = json.isNull("firmwareVersion") ?
+					null : json.optString("firmwareVersion", null);
+			this.auxAvailable = json.optBoolean("auxAvailable");
+			this.mode = json.optInt("rhythmMode", -1);
+			JSONObject pos = json.optJSONObject("rhythmPos");
+			this.position = pos != null ? new Position(pos.getInt("x"),
+					pos.getInt("y"), pos.getInt("o")) : null;
+		}
+
+		/**
+		 * Indicates if the Rhythm is connected to the Light Panels or not.
+		 * @return  true, if the Rhythm is connected
+		 */
+		public boolean getConnected()
+		{
+			return this.connected;
+		}
+
+		/**
+		 * Indicates if the Rhythm's microphone is currently active or not.
+		 * @return  true, if the Rhythm is active
+		 */
+		public boolean getActive()
+		{
+			return this.active;
+		}
+
+		/**
+		 * Indicates the Rhythm's Id in the Light Panel system.
+		 * @return  the Rhythm's Id (or -1 if the Rhythm is not connected)
+		 */
+		public int getId()
+		{
+			return this.id;
+		}
+
+		/**
+		 * Indicates the Rhythm's hardware version.
+		 * @return  the Rhythm's hardware version (or null if the Rhythm is not connected)
+		 */
+		public String getHardwareVersion()
+		{
+			return this.hardwareVersion;
+		}
+
+		/**
+		 * Indicates the Rhythm's firmware version.
+		 * @return  the Rhythm's firmware version (or null if the Rhythm is not connected)
+		 */
+		public String getFirmwareVersion()
+		{
+			return this.firmwareVersion;
+		}
+
+		/**
+		 * Indicates if an aux cable (3.5mm) is currently connected to the Rhythm.
+		 * @return  true, if an aux cable is connected
+		 */
+		public boolean auxAvailable()
+		{
+			return this.auxAvailable;
+		}
+
+		/**
+		 * Gets the sound source of the Rhythm (0 = microphone, 1 = aux cable).
+		 * @return  the Rhythm mode (or -1 if the Rhythm is not connected)
+		 */
+		public int getMode()
+		{
+			return this.mode;
+		}
+
+		/**
+		 * Indicates the position and orientation of the Rhythm in the Light Panels' layout.
+		 * @return  the <code>Position</code> of the Rhythm (or null if the Rhythm is not connected)
+		 */
+		public Position getPosition()
+		{
+			return position != null ? new Position(position.getX(),
+					position.getY(), position.getOrientation()) : null;
+		}
+	}
+}
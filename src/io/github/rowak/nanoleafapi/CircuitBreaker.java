@@ -0,0 +1,294 @@
+package io.github.rowak.nanoleafapi;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Stops sending requests to an Aurora that is not responding. After a number
+ * of consecutive failures (requests that fail without a response, or with a
+ * 5xx status code) the breaker <i>opens</i>, and every request fails
+ * immediately with a {@link CircuitOpenException} instead of waiting for a
+ * timeout. Once the open duration has passed, the breaker becomes
+ * <i>half-open</i> and lets a single probe request through. If the probe
+ * succeeds, the breaker closes again; otherwise it stays open for another
+ * open duration.
+ * <p>
+ * Listeners are notified of every state change, which makes it possible to
+ * skip controllers that are down without sending any requests to them.
+ */
+public class CircuitBreaker
+{
+	/**
+	 * The default number of consecutive failures that open the breaker.
+	 */
+	public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+	/**
+	 * The default time (in milliseconds) that the breaker stays open.
+	 */
+	public static final long DEFAULT_OPEN_DURATION = 10000;
+
+	/**
+	 * The states of a circuit breaker.
+	 */
+	public enum State
+	{
+		/**
+		 * Requests are sent normally.
+		 */
+		CLOSED,
+
+		/**
+		 * Requests fail immediately.
+		 */
+		OPEN,
+
+		/**
+		 * A single probe request is allowed to test the Aurora.
+		 */
+		HALF_OPEN
+	}
+
+	/**
+	 * Receives the state changes of a circuit breaker.
+	 */
+	@FunctionalInterface
+	public interface Listener
+	{
+		/**
+		 * Called (on the thread of the request that caused it)
+		 * when the state of the breaker changes.
+		 * @param breaker  the circuit breaker
+		 * @param from  the previous state
+		 * @param to  the new state
+		 */
+		void stateChanged(CircuitBreaker breaker, State from, State to);
+	}
+
+	private String name;
+	private int failureThreshold;
+	private long openDuration;
+	private State state;
+	private int failures;
+	private long openedAt;
+	private boolean probing;
+	private List<Listener> listeners;
+
+	/**
+	 * Creates a new circuit breaker with the default threshold and duration.
+	 * @param name  the name of the breaker (for example: the controller's host name)
+	 */
+	public CircuitBreaker(String name)
+	{
+		this(name, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION);
+	}
+
+	/**
+	 * Creates a new circuit breaker.
+	 * @param name  the name of the breaker (for example: the controller's host name)
+	 * @param failureThreshold  the number of consecutive failures that open the breaker
+	 * @param openDuration  the time (in milliseconds) that the breaker stays open
+	 */
+	public CircuitBreaker(String name, int failureThreshold, long openDuration)
+	{
+		if (failureThreshold < 1 || openDuration < 0)
+		{
+			throw new IllegalArgumentException("Invalid circuit breaker settings");
+		}
+		this.name = name;
+		this.failureThreshold = failureThreshold;
+		this.openDuration = openDuration;
+		this.state = State.CLOSED;
+		this.listeners = new CopyOnWriteArrayList<Listener>();
+	}
+
+	/**
+	 * Gets the name of the breaker.
+	 * @return  the name of the breaker
+	 */
+	public String getName()
+	{
+		return this.name;
+	}
+
+	/**
+	 * Gets the number of consecutive failures that open the breaker.
+	 * @return  the failure threshold
+	 */
+	public int getFailureThreshold()
+	{
+		return this.failureThreshold;
+	}
+
+	/**
+	 * Gets the time that the breaker stays open.
+	 * @return  the open duration in milliseconds
+	 */
+	public long getOpenDuration()
+	{
+		return this.openDuration;
+	}
+
+	/**
+	 * Gets the current state of the breaker. An open breaker is
+	 * reported as open until the next request probes the Aurora.
+	 * @return  the current state
+	 */
+	public synchronized State getState()
+	{
+		return this.state;
+	}
+
+	/**
+	 * Gets the number of consecutive failures.
+	 * @return  the number of consecutive failures
+	 */
+	public synchronized int getFailureCount()
+	{
+		return this.failures;
+	}
+
+	/**
+	 * Gets the time remaining until an open breaker allows a probe request.
+	 * @return  the remaining time in milliseconds, or 0 if the breaker is not open
+	 */
+	public synchronized long getRemainingOpenTime()
+	{
+		if (state != State.OPEN)
+		{
+			return 0;
+		}
+		return Math.max(0, openedAt + openDuration - System.currentTimeMillis());
+	}
+
+	/**
+	 * Adds a listener that is notified of state changes.
+	 * @param listener  the listener
+	 */
+	public void addListener(Listener listener)
+	{
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener.
+	 * @param listener  the listener
+	 */
+	public void removeListener(Listener listener)
+	{
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Closes the breaker and clears the failure count.
+	 */
+	public void reset()
+	{
+		State from;
+		synchronized (this)
+		{
+			from = state;
+			state = State.CLOSED;
+			failures = 0;
+			probing = false;
+		}
+		fireStateChanged(from, State.CLOSED);
+	}
+
+	/**
+	 * Checks if a request may be sent. If the breaker is open and the open
+	 * duration has passed, the breaker becomes half-open and this request
+	 * is the probe.
+	 * @return  true, if the request may be sent
+	 */
+	boolean tryAcquire()
+	{
+		synchronized (this)
+		{
+			switch (state)
+			{
+				case CLOSED:
+					return true;
+				case HALF_OPEN:
+					if (probing)
+					{
+						return false;
+					}
+					probing = true;
+					return true;
+				default:
+					if (System.currentTimeMillis() - openedAt < openDuration)
+					{
+						return false;
+					}
+					state = State.HALF_OPEN;
+					probing = true;
+			}
+		}
+		fireStateChanged(State.OPEN, State.HALF_OPEN);
+		return true;
+	}
+
+	/**
+	 * Records a request that reached the Aurora.
+	 */
+	void onSuccess()
+	{
+		State from;
+		synchronized (this)
+		{
+			failures = 0;
+			probing = false;
+			from = state;
+			if (from == State.CLOSED)
+			{
+				return;
+			}
+			state = State.CLOSED;
+		}
+		fireStateChanged(from, State.CLOSED);
+	}
+
+	/**
+	 * Records a request that failed.
+	 */
+	void onFailure()
+	{
+		State from;
+		synchronized (this)
+		{
+			failures++;
+			from = state;
+			if (from == State.CLOSED && failures < failureThreshold)
+			{
+				return;
+			}
+			probing = false;
+			openedAt = System.currentTimeMillis();
+			if (from == State.OPEN)
+			{
+				return;
+			}
+			state = State.OPEN;
+		}
+		fireStateChanged(from, State.OPEN);
+	}
+
+	private void fireStateChanged(State from, State to)
+	{
+		if (from == to)
+		{
+			return;
+		}
+		for (Listener listener : listeners)
+		{
+			listener.stateChanged(this, from, to);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("CircuitBreaker[%s, %s]", name, getState());
+	}
+}
@@ -0,0 +1,33 @@
+package io.github.rowak.nanoleafapi;
+
+import java.io.IOException;
+
+/**
+ * The cause of the <code>HttpRequestException</code> that is thrown when a
+ * request is not sent because the Aurora's {@link CircuitBreaker} is open.
+ */
+public class CircuitOpenException extends IOException
+{
+	private static final long serialVersionUID = 2915093742188416351L;
+
+	private CircuitBreaker breaker;
+
+	/**
+	 * Creates a new exception.
+	 * @param breaker  the open circuit breaker
+	 */
+	public CircuitOpenException(CircuitBreaker breaker)
+	{
+		super("Circuit breaker for " + breaker.getName() + " is open");
+		this.breaker = breaker;
+	}
+
+	/**
+	 * Gets the circuit breaker that rejected the request.
+	 * @return  the circuit breaker
+	 */
+	public CircuitBreaker getCircuitBreaker()
+	{
+		return this.breaker;
+	}
+}
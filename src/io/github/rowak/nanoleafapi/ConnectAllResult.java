@@ -0,0 +1,68 @@
+package io.github.rowak.nanoleafapi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of {@link Aurora#connectAll(java.util.Collection, Map)}.
+ * Contains the controllers that were connected and the
+ * errors of the ones that could not be connected.
+ */
+public class ConnectAllResult
+{
+	private Map<AuroraMetadata, Aurora> connected;
+	private Map<AuroraMetadata, Exception> failed;
+
+	/**
+	 * Creates a new result.
+	 * @param connected  the connected controllers
+	 * @param failed  the errors of the controllers that could not be connected
+	 */
+	ConnectAllResult(Map<AuroraMetadata, Aurora> connected,
+			Map<AuroraMetadata, Exception> failed)
+	{
+		this.connected = Collections.unmodifiableMap(connected);
+		this.failed = Collections.unmodifiableMap(failed);
+	}
+
+	/**
+	 * Gets the controllers that were connected, mapped by their metadata.
+	 * @return  the connected controllers
+	 */
+	public Map<AuroraMetadata, Aurora> getConnected()
+	{
+		return this.connected;
+	}
+
+	/**
+	 * Gets the controllers that were connected.
+	 * @return  a list of the connected controllers
+	 */
+	public List<Aurora> getAuroras()
+	{
+		return new ArrayList<Aurora>(connected.values());
+	}
+
+	/**
+	 * Gets the error of each controller that could not be connected.
+	 * The errors are usually a <code>StatusCodeException</code> (for example:
+	 * if the access token is invalid) or an <code>HttpRequestException</code>
+	 * (if the controller could not be reached).
+	 * @return  the errors, mapped by the metadata of the controllers
+	 */
+	public Map<AuroraMetadata, Exception> getFailed()
+	{
+		return this.failed;
+	}
+
+	/**
+	 * Checks if every controller was connected.
+	 * @return  true, if no controllers failed
+	 */
+	public boolean isComplete()
+	{
+		return failed.isEmpty();
+	}
+}
@@ -0,0 +1,677 @@
+package io.github.rowak.nanoleafapi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.github.kevinsawicki.http.HttpRequest.HttpRequestException;
+
+/**
+ * A pool of persistent (keep-alive) HTTP connections to a single
+ * Aurora controller. Every request made by an {@link Aurora} object
+ * (and all of its inner classes) goes through the pool that belongs to
+ * that Aurora, so consecutive calls reuse an open TCP connection
+ * instead of connecting to the controller every time.
+ */
+public class ConnectionPool
+{
+	/**
+	 * The default maximum number of simultaneous connections.
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS = 4;
+
+	/**
+	 * The default time (in milliseconds) that an unused connection is kept open.
+	 */
+	public static final int DEFAULT_IDLE_TIMEOUT = 5000;
+
+	/**
+	 * The default connect timeout (in milliseconds).
+	 */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 2000;
+
+	/**
+	 * The default read timeout (in milliseconds).
+	 */
+	public static final int DEFAULT_READ_TIMEOUT = 10000;
+
+	/**
+	 * Closes idle connections for every pool in the JVM.
+	 */
+	private static final ScheduledExecutorService EVICTOR =
+			Executors.newSingleThreadScheduledExecutor(r ->
+			{
+				Thread t = new Thread(r, "nanoleaf-connection-evictor");
+				t.setDaemon(true);
+				return t;
+			});
+
+	private String hostName;
+	private int port;
+	private volatile int maxConnections;
+	private int idleTimeout;
+	private int connectTimeout;
+	private int readTimeout;
+	private final ThreadLocal<Integer> threadReadTimeout = new ThreadLocal<Integer>();
+
+	private Permits permits;
+	private Deque<Connection> idle;
+	private boolean evictionScheduled;
+	/**
+	 * Incremented by {@link #closeIdleConnections()}, so that the
+	 * connections that were in use at the time are closed when
+	 * they are returned.
+	 */
+	private int generation;
+
+	/**
+	 * Creates a new connection pool for an Aurora controller
+	 * using the default settings.
+	 * @param hostName  the hostname of the Aurora controller
+	 * @param port  the port of the Aurora controller (default=16021)
+	 */
+	public ConnectionPool(String hostName, int port)
+	{
+		this(hostName, port, DEFAULT_MAX_CONNECTIONS);
+	}
+
+	/**
+	 * Creates a new connection pool for an Aurora controller.
+	 * @param hostName  the hostname of the Aurora controller
+	 * @param port  the port of the Aurora controller (default=16021)
+	 * @param maxConnections  the maximum number of connections that
+	 * 						  can be open to the controller at once
+	 */
+	public ConnectionPool(String hostName, int port, int maxConnections)
+	{
+		if (maxConnections < 1)
+		{
+			throw new IllegalArgumentException("maxConnections must be at least 1");
+		}
+		this.hostName = hostName;
+		this.port = port;
+		this.maxConnections = maxConnections;
+		this.idleTimeout = DEFAULT_IDLE_TIMEOUT;
+		this.connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+		this.readTimeout = DEFAULT_READ_TIMEOUT;
+		this.permits = new Permits(maxConnections);
+		this.idle = new ArrayDeque<Connection>();
+	}
+
+	/**
+	 * Gets the maximum number of connections that
+	 * can be open to the controller at once.
+	 * @return  the maximum number of connections
+	 */
+	public int getMaxConnections()
+	{
+		return this.maxConnections;
+	}
+
+	/**
+	 * Sets the maximum number of connections that can be open to the
+	 * controller at once. If more connections than the new maximum are
+	 * in use, new requests wait until enough of them are returned.
+	 * @param maxConnections  the maximum number of connections
+	 */
+	public synchronized void setMaxConnections(int maxConnections)
+	{
+		if (maxConnections < 1)
+		{
+			throw new IllegalArgumentException("maxConnections must be at least 1");
+		}
+		int change = maxConnections - this.maxConnections;
+		if (change > 0)
+		{
+			permits.release(change);
+		}
+		else if (change < 0)
+		{
+			permits.reduce(-change);
+		}
+		this.maxConnections = maxConnections;
+	}
+
+	/**
+	 * Gets the time that an unused connection is kept open before it is closed.
+	 * @return  the idle timeout in milliseconds
+	 */
+	public int getIdleTimeout()
+	{
+		return this.idleTimeout;
+	}
+
+	/**
+	 * Sets the time that an unused connection is kept open before it is closed.
+	 * @param idleTimeout  the idle timeout in milliseconds
+	 */
+	public void setIdleTimeout(int idleTimeout)
+	{
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * Gets the connect timeout. This is also the maximum time that a request
+	 * will wait for a free connection when all connections are in use.
+	 * @return  the connect timeout in milliseconds
+	 */
+	public int getConnectTimeout()
+	{
+		return this.connectTimeout;
+	}
+
+	/**
+	 * Sets the connect timeout. This is also the maximum time that a request
+	 * will wait for a free connection when all connections are in use.
+	 * @param connectTimeout  the connect timeout in milliseconds
+	 */
+	public void setConnectTimeout(int connectTimeout)
+	{
+		this.connectTimeout = connectTimeout;
+	}
+
+	/**
+	 * Gets the read timeout of the requests.
+	 * @return  the read timeout in milliseconds (0 = no timeout)
+	 */
+	public int getReadTimeout()
+	{
+		return this.readTimeout;
+	}
+
+	/**
+	 * Sets the read timeout of the requests.
+	 * @param readTimeout  the read timeout in milliseconds (0 = no timeout)
+	 */
+	public void setReadTimeout(int readTimeout)
+	{
+		this.readTimeout = readTimeout;
+	}
+
+	/**
+	 * Overrides the read timeout for the requests that are made
+	 * by the current thread.
+	 * @param readTimeout  the read timeout in milliseconds (0 = no timeout),
+	 * 					   or -1 to use the pool's read timeout again
+	 */
+	void setThreadReadTimeout(int readTimeout)
+	{
+		if (readTimeout < 0)
+		{
+			threadReadTimeout.remove();
+		}
+		else
+		{
+			threadReadTimeout.set(readTimeout);
+		}
+	}
+
+	/**
+	 * Gets the number of open connections that are not currently in use.
+	 * @return  the number of idle connections
+	 */
+	public synchronized int getIdleConnectionCount()
+	{
+		return this.idle.size();
+	}
+
+	/**
+	 * Gets the number of connections that are currently in use.
+	 * @return  the number of leased connections
+	 */
+	public int getLeasedConnectionCount()
+	{
+		return this.maxConnections - this.permits.availablePermits();
+	}
+
+	/**
+	 * Closes every idle connection that has been unused
+	 * for longer than the idle timeout.
+	 */
+	public void evictIdleConnections()
+	{
+		long now = System.currentTimeMillis();
+		synchronized (this)
+		{
+			for (Iterator<Connection> it = idle.iterator(); it.hasNext();)
+			{
+				Connection conn = it.next();
+				if (now - conn.lastUsed >= idleTimeout)
+				{
+					it.remove();
+					conn.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Closes every idle connection. Connections that are in use
+	 * are closed as soon as they are returned to the pool.
+	 * The pool can still be used afterwards.
+	 */
+	public void closeIdleConnections()
+	{
+		synchronized (this)
+		{
+			generation++;
+			while (!idle.isEmpty())
+			{
+				idle.pop().close();
+			}
+		}
+	}
+
+	/**
+	 * Sends a request to the controller and reads the full response.
+	 * @param method  the request method (GET, PUT, POST, ...)
+	 * @param path  the request path (for example: /api/v1/TOKEN/state)
+	 * @param body  the request body, or null to send an empty body
+	 * @return  the response from the controller
+	 * @throws HttpRequestException  if the connection to the Aurora fails or times out
+	 */
+	HttpResponse execute(String method, String path, String body)
+	{
+		byte[] payload = body != null ? body.getBytes(StandardCharsets.UTF_8) : null;
+		acquirePermit();
+		try
+		{
+			Connection conn = pollIdle();
+			if (conn != null)
+			{
+				try
+				{
+					return exchange(conn, method, path, payload);
+				}
+				catch (IOException ioe)
+				{
+					conn.close();
+					// The controller may have closed the kept-alive connection
+					// before we used it (the write still succeeds, but the
+					// read fails with EOF or a reset); try again with a fresh
+					// connection. A request that timed out was received and
+					// may have been applied, so only a GET is sent again.
+					if (conn.responseStarted || (ioe instanceof SocketTimeoutException &&
+							!method.equals("GET")))
+					{
+						throw new HttpRequestException(ioe);
+					}
+				}
+			}
+			conn = open();
+			try
+			{
+				return exchange(conn, method, path, payload);
+			}
+			catch (IOException ioe)
+			{
+				conn.close();
+				throw new HttpRequestException(ioe);
+			}
+		}
+		finally
+		{
+			permits.release();
+		}
+	}
+
+	private void acquirePermit()
+	{
+		try
+		{
+			if (!permits.tryAcquire(connectTimeout > 0 ? connectTimeout : Long.MAX_VALUE,
+					TimeUnit.MILLISECONDS))
+			{
+				throw new HttpRequestException(new IOException(
+						"Timed out waiting for a connection to " + hostName + ":" + port));
+			}
+		}
+		catch (InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+			throw new HttpRequestException(new IOException("Interrupted"));
+		}
+	}
+
+	private synchronized Connection pollIdle()
+	{
+		long now = System.currentTimeMillis();
+		while (!idle.isEmpty())
+		{
+			Connection conn = idle.pop();
+			if (now - conn.lastUsed < idleTimeout && !conn.socket.isClosed())
+			{
+				return conn;
+			}
+			conn.close();
+		}
+		return null;
+	}
+
+	private void release(Connection conn)
+	{
+		conn.lastUsed = System.currentTimeMillis();
+		synchronized (this)
+		{
+			if (conn.generation != generation)
+			{
+				conn.close();
+				return;
+			}
+			idle.push(conn);
+			if (evictionScheduled)
+			{
+				return;
+			}
+			evictionScheduled = true;
+		}
+		EVICTOR.schedule(this::runEviction, idleTimeout, TimeUnit.MILLISECONDS);
+	}
+
+	private void runEviction()
+	{
+		evictIdleConnections();
+		synchronized (this)
+		{
+			evictionScheduled = !idle.isEmpty();
+			if (!evictionScheduled)
+			{
+				return;
+			}
+		}
+		EVICTOR.schedule(this::runEviction, idleTimeout, TimeUnit.MILLISECONDS);
+	}
+
+	private Connection open()
+	{
+		Socket socket = new Socket();
+		try
+		{
+			socket.setTcpNoDelay(true);
+			socket.setKeepAlive(true);
+			socket.connect(new InetSocketAddress(hostName, port), connectTimeout);
+			socket.setSoTimeout(readTimeout);
+			Connection conn = new Connection(socket);
+			conn.readTimeout = readTimeout;
+			synchronized (this)
+			{
+				conn.generation = generation;
+			}
+			return conn;
+		}
+		catch (IOException ioe)
+		{
+			try
+			{
+				socket.close();
+			}
+			catch (IOException ioe2)
+			{
+				// ignore
+			}
+			throw new HttpRequestException(ioe);
+		}
+	}
+
+	private HttpResponse exchange(Connection conn, String method,
+			String path, byte[] payload) throws IOException
+	{
+		conn.responseStarted = false;
+		Integer override = threadReadTimeout.get();
+		int timeout = override != null ? override : readTimeout;
+		if (conn.readTimeout != timeout)
+		{
+			conn.socket.setSoTimeout(timeout);
+			conn.readTimeout = timeout;
+		}
+		StringBuilder head = new StringBuilder();
+		head.append(method).append(' ').append(path).append(" HTTP/1.1\r\n");
+		head.append("Host: ").append(hostName).append(':').append(port).append("\r\n");
+		head.append("Connection: keep-alive\r\n");
+		if (payload != null || !method.equals("GET"))
+		{
+			head.append("Content-Type: application/json\r\n");
+			head.append("Content-Length: ").append(payload != null ? payload.length : 0).append("\r\n");
+		}
+		head.append("\r\n");
+		conn.out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+		if (payload != null)
+		{
+			conn.out.write(payload);
+		}
+		conn.out.flush();
+
+		String statusLine = readLine(conn.in);
+		if (statusLine == null)
+		{
+			throw new EOFException("Connection closed by " + hostName);
+		}
+		conn.responseStarted = true;
+		String[] status = statusLine.split(" ", 3);
+		if (status.length < 2)
+		{
+			throw new IOException("Malformed status line: " + statusLine);
+		}
+		int code = parseNumber(status[1], 10, statusLine);
+		boolean keepAlive = !status[0].equals("HTTP/1.0");
+		long contentLength = -1;
+		boolean chunked = false;
+		String line;
+		while ((line = readLine(conn.in)) != null && !line.isEmpty())
+		{
+			int colon = line.indexOf(':');
+			if (colon < 0)
+			{
+				continue;
+			}
+			String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+			String value = line.substring(colon + 1).trim();
+			if (name.equals("content-length"))
+			{
+				contentLength = parseNumber(value, 10, line);
+			}
+			else if (name.equals("transfer-encoding"))
+			{
+				chunked = value.toLowerCase(Locale.ROOT).contains("chunked");
+			}
+			else if (name.equals("connection"))
+			{
+				keepAlive = !value.equalsIgnoreCase("close") &&
+						(keepAlive || value.equalsIgnoreCase("keep-alive"));
+			}
+		}
+
+		byte[] body;
+		if (method.equals("HEAD") || code == 204 || code == 304 || code / 100 == 1)
+		{
+			body = new byte[0];
+		}
+		else if (chunked)
+		{
+			body = readChunked(conn.in);
+		}
+		else if (contentLength >= 0)
+		{
+			body = readFully(conn.in, (int)contentLength);
+		}
+		else
+		{
+			body = readToEnd(conn.in);
+			keepAlive = false;
+		}
+
+		if (keepAlive)
+		{
+			release(conn);
+		}
+		else
+		{
+			conn.close();
+		}
+		return new HttpResponse(code, new String(body, StandardCharsets.UTF_8),
+				payload != null ? payload.length : 0, body.length);
+	}
+
+	private static String readLine(InputStream in) throws IOException
+	{
+		StringBuilder line = new StringBuilder();
+		int c;
+		while ((c = in.read()) != -1)
+		{
+			if (c == '\n')
+			{
+				int len = line.length();
+				if (len > 0 && line.charAt(len - 1) == '\r')
+				{
+					line.setLength(len - 1);
+				}
+				return line.toString();
+			}
+			line.append((char)c);
+		}
+		return line.length() > 0 ? line.toString() : null;
+	}
+
+	/**
+	 * Parses a number in a response, so that a malformed
+	 * response fails like any other I/O error.
+	 * @param value  the number
+	 * @param radix  the radix of the number
+	 * @param line  the line that the number is from
+	 * @return  the number
+	 * @throws IOException  if the number is malformed
+	 */
+	private static int parseNumber(String value, int radix, String line) throws IOException
+	{
+		try
+		{
+			int n = Integer.parseInt(value, radix);
+			if (n < 0)
+			{
+				throw new NumberFormatException();
+			}
+			return n;
+		}
+		catch (NumberFormatException nfe)
+		{
+			throw new IOException("Malformed response line: " + line);
+		}
+	}
+
+	private static byte[] readFully(InputStream in, int length) throws IOException
+	{
+		byte[] data = new byte[length];
+		int off = 0;
+		while (off < length)
+		{
+			int n = in.read(data, off, length - off);
+			if (n == -1)
+			{
+				throw new EOFException("Unexpected end of response body");
+			}
+			off += n;
+		}
+		return data;
+	}
+
+	private static byte[] readChunked(InputStream in) throws IOException
+	{
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		while (true)
+		{
+			String sizeLine = readLine(in);
+			if (sizeLine == null)
+			{
+				throw new EOFException("Unexpected end of chunked response body");
+			}
+			int ext = sizeLine.indexOf(';');
+			int size = parseNumber((ext >= 0 ?
+					sizeLine.substring(0, ext) : sizeLine).trim(), 16, sizeLine);
+			if (size == 0)
+			{
+				// Skip the trailer
+				String line;
+				while ((line = readLine(in)) != null && !line.isEmpty());
+				return data.toByteArray();
+			}
+			data.write(readFully(in, size));
+			readLine(in);
+		}
+	}
+
+	private static byte[] readToEnd(InputStream in) throws IOException
+	{
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int n;
+		while ((n = in.read(buffer)) != -1)
+		{
+			data.write(buffer, 0, n);
+		}
+		return data.toByteArray();
+	}
+
+	/**
+	 * A single open connection to the controller.
+	 */
+	private static class Connection
+	{
+		private Socket socket;
+		private InputStream in;
+		private OutputStream out;
+		private long lastUsed;
+		private int generation, readTimeout;
+		private boolean responseStarted;
+
+		private Connection(Socket socket) throws IOException
+		{
+			this.socket = socket;
+			this.in = new BufferedInputStream(socket.getInputStream());
+			this.out = new BufferedOutputStream(socket.getOutputStream());
+		}
+
+		private void close()
+		{
+			try
+			{
+				socket.close();
+			}
+			catch (IOException ioe)
+			{
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * A fair semaphore whose number of permits can be reduced.
+	 */
+	private static class Permits extends Semaphore
+	{
+		private Permits(int permits)
+		{
+			super(permits, true);
+		}
+
+		private void reduce(int reduction)
+		{
+			reducePermits(reduction);
+		}
+	}
+}
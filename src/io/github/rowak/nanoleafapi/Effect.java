@@ -1,10 +1,11 @@
 package io.github.rowak.nanoleafapi;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
 
 import io.github.rowak.nanoleafapi.StatusCodeException.UnauthorizedException;
@@ -13,24 +14,75 @@ import io.github.rowak.nanoleafapi.StatusCodeException.UnprocessableEntityExcept
 /**
  * A <i>local</i> interface for an Aurora effect.
  * Setter methods in this class will not have an effect on the Aurora.
+ * <p>
+ * Every effect property is stored in a typed field: the time and
+ * brightness ranges and the numeric settings are primitives, the type
+ * and direction are enums, and the palette is packed into an
+ * <code>int</code> per color (plus the probabilities, if the palette has
+ * any). A property value that doesn't fit its field (for example, an
+ * animation type that this API doesn't know about) is kept as it is,
+ * so every effect survives a round trip through <code>JSON</code>.
  */
 public class Effect
 {
+	/*
+	 * Bits of the properties that are set
+	 */
+	private static final int NAME = 1, VERSION = 1 << 1, ANIM_DATA = 1 << 2,
+			PALETTE = 1 << 3, TRANS_TIME = 1 << 4, WINDOW_SIZE = 1 << 5,
+			FLOW_FACTOR = 1 << 6, DELAY_TIME = 1 << 7, LOOP = 1 << 8,
+			COLOR_TYPE = 1 << 9, ANIM_TYPE = 1 << 10, PLUGIN_TYPE = 1 << 11,
+			PLUGIN_UUID = 1 << 12, PLUGIN_OPTIONS = 1 << 13,
+			EXPLODE_FACTOR = 1 << 14, BRIGHTNESS_RANGE = 1 << 15,
+			DIRECTION = 1 << 16;
+	
 	/**
-	 * Names of the available effect properties.
+	 * The properties that are set (a combination of the property bits).
 	 */
-	private static final String[] PROPERTIES_NAMES =
-		{
-			"animName", "version", "animData", "palette", "transTime",
-			"windowSize", "flowFactor", "delayTime", "loop",
-			"colorType", "animType", "pluginType", "pluginUuid",
-			"pluginOptions", "explodeFactor", "brightnessRange",
-			"direction", "loop"
-		};
+	private int present;
+	
+	/*
+	 * The string properties. A property that is set to null
+	 * was set to null in the JSON data.
+	 */
+	private String name, version, animData, colorType, pluginType, pluginUuid;
+	private Type animType;
+	private Direction direction;
+	private boolean loop;
+	private int windowSize;
+	private double flowFactor, explodeFactor;
+	private int minTransTime, maxTransTime;
+	private int minDelayTime, maxDelayTime;
+	private int minBrightness, maxBrightness;
+	
 	/**
-	 * Properties for the local effect object.
+	 * The palette colors, packed as hue (16 bits), saturation (8 bits)
+	 * and brightness (8 bits).
 	 */
-	private Map<Object, Object> properties;
+	private int[] palette;
+	
+	/**
+	 * The probability of each palette color (-1 if it has none),
+	 * or null if none of the colors have a probability.
+	 */
+	private double[] probabilities;
+	
+	/**
+	 * The plugin options, in the form [{"name": NAME, "value": VALUE}].
+	 * The array is replaced (never modified) when an option changes.
+	 */
+	private JSONArray pluginOptions;
+	
+	/**
+	 * The property values that don't fit their typed fields, or null.
+	 */
+	private Map<String, Object> other;
+	
+	/**
+	 * The cached hash code, or 0 if it hasn't been computed
+	 * since the effect last changed.
+	 */
+	private int hash;
 	
 	/**
 	 * The availbale effect types.<br>
@@ -59,7 +111,6 @@ public class Effect
 	 */
 	public Effect()
 	{
-		this.properties = new HashMap<Object, Object>();
 	}
 	
 	/**
@@ -71,18 +122,63 @@ public class Effect
 	 */
 	public static Effect fromJSON(String json)
 	{
-		JSONObject data = new JSONObject(json);
+		return fromJSON(new JSONObject(json));
+	}
+	
+	/**
+	 * Creates a new <code>Effect</code> from <code>JSON</code>
+	 * data that has already been parsed.
+	 * @param data  the parsed <code>JSON</code> data
+	 * @return  a new <code>Effect</code> equivalent
+	 * 			to the <code>JSON</code> data
+	 */
+	static Effect fromJSON(JSONObject data)
+	{
 		Effect ef = new Effect();
-		ef.properties = new HashMap<Object, Object>();
-		for (String property : Effect.PROPERTIES_NAMES)
+		for (String key : data.keySet())
 		{
-			if (data.has(property))
-			{
-				ef.properties.put(property, data.get(property));
-			}
+			ef.read(key, data.get(key));
 		}
-		final Effect effect = ef;
-		return effect;
+		return ef;
+	}
+	
+	/**
+	 * Creates a copy of this effect. The copy can be modified
+	 * without changing this effect.
+	 * @return  a new <code>Effect</code> with the same properties
+	 */
+	Effect copy()
+	{
+		Effect ef = new Effect();
+		ef.present = present;
+		ef.name = name;
+		ef.version = version;
+		ef.animData = animData;
+		ef.colorType = colorType;
+		ef.pluginType = pluginType;
+		ef.pluginUuid = pluginUuid;
+		ef.animType = animType;
+		ef.direction = direction;
+		ef.loop = loop;
+		ef.windowSize = windowSize;
+		ef.flowFactor = flowFactor;
+		ef.explodeFactor = explodeFactor;
+		ef.minTransTime = minTransTime;
+		ef.maxTransTime = maxTransTime;
+		ef.minDelayTime = minDelayTime;
+		ef.maxDelayTime = maxDelayTime;
+		ef.minBrightness = minBrightness;
+		ef.maxBrightness = maxBrightness;
+		// The arrays are replaced (never modified) by the setters
+		ef.palette = palette;
+		ef.probabilities = probabilities;
+		ef.pluginOptions = pluginOptions;
+		if (other != null)
+		{
+			ef.other = new HashMap<String, Object>(other);
+		}
+		ef.hash = hash;
+		return ef;
 	}
 	
 	/**
@@ -98,16 +194,10 @@ public class Effect
 	 */
 	public String toJSON(String writeCommand)
 	{
-		JSONObject json = new JSONObject();
+		JSONObject json = toJSONObject();
 		if (writeCommand != null && writeCommand != "")
 			json.put("command", writeCommand);
-		
-		for (Object key : properties.keySet())
-		{
-			Object value = properties.get(key);
-			json.put((String)key, value);
-		}
-		
+	
 		return json.toString();
 	}
 	
@@ -132,13 +222,82 @@ public class Effect
 	
 	/**
 	 * Checks if two effects are equal based on their properties.
+	 * The order of the properties and the representation of numbers
+	 * in the <code>JSON</code> data (for example, 2 or 2.0) don't matter.
 	 * @param other  the effect to compare this effect to
 	 * @return  true, if the effects are equal
 	 */
 	@Override
 	public boolean equals(Object other)
 	{
-		return this.toString().equals(other.toString());
+		if (this == other)
+		{
+			return true;
+		}
+		if (!(other instanceof Effect))
+		{
+			return false;
+		}
+		Effect ef = (Effect)other;
+		if (this.present != ef.present || this.hashCode() != ef.hashCode())
+		{
+			return false;
+		}
+		return equal(name, ef.name) && equal(version, ef.version) &&
+				equal(animData, ef.animData) && equal(colorType, ef.colorType) &&
+				equal(pluginType, ef.pluginType) && equal(pluginUuid, ef.pluginUuid) &&
+				animType == ef.animType && direction == ef.direction &&
+				(!isSet(LOOP) || loop == ef.loop) &&
+				(!isSet(WINDOW_SIZE) || windowSize == ef.windowSize) &&
+				(!isSet(FLOW_FACTOR) || JSONValues.equal(flowFactor, ef.flowFactor)) &&
+				(!isSet(EXPLODE_FACTOR) || JSONValues.equal(explodeFactor, ef.explodeFactor)) &&
+				(!isSet(TRANS_TIME) || (minTransTime == ef.minTransTime &&
+						maxTransTime == ef.maxTransTime)) &&
+				(!isSet(DELAY_TIME) || (minDelayTime == ef.minDelayTime &&
+						maxDelayTime == ef.maxDelayTime)) &&
+				(!isSet(BRIGHTNESS_RANGE) || (minBrightness == ef.minBrightness &&
+						maxBrightness == ef.maxBrightness)) &&
+				Arrays.equals(palette, ef.palette) &&
+				probabilitiesEqual(probabilities, ef.probabilities) &&
+				JSONValues.equal(pluginOptions, ef.pluginOptions) &&
+				JSONValues.equal(this.other, ef.other);
+	}
+	
+	/**
+	 * Gets a hash code for this effect that is consistent with
+	 * {@link #equals(Object)}. The hash code is cached until
+	 * the effect changes.
+	 * @return  the hash code
+	 */
+	@Override
+	public int hashCode()
+	{
+		int h = this.hash;
+		if (h == 0)
+		{
+			h = present;
+			h = 31 * h + hash(name);
+			h = 31 * h + hash(version);
+			h = 31 * h + hash(animData);
+			h = 31 * h + hash(colorType);
+			h = 31 * h + hash(pluginType);
+			h = 31 * h + hash(pluginUuid);
+			h = 31 * h + (isSet(ANIM_TYPE) ? animType.ordinal() : -1);
+			h = 31 * h + (isSet(DIRECTION) ? direction.ordinal() : -1);
+			h = 31 * h + (isSet(LOOP) && loop ? 1 : 0);
+			h = 31 * h + (isSet(WINDOW_SIZE) ? windowSize : 0);
+			h = 31 * h + (isSet(FLOW_FACTOR) ? JSONValues.hash(flowFactor) : 0);
+			h = 31 * h + (isSet(EXPLODE_FACTOR) ? JSONValues.hash(explodeFactor) : 0);
+			h = 31 * h + (isSet(TRANS_TIME) ? 31 * minTransTime + maxTransTime : 0);
+			h = 31 * h + (isSet(DELAY_TIME) ? 31 * minDelayTime + maxDelayTime : 0);
+			h = 31 * h + (isSet(BRIGHTNESS_RANGE) ? 31 * minBrightness + maxBrightness : 0);
+			h = 31 * h + Arrays.hashCode(palette);
+			h = 31 * h + probabilitiesHash(probabilities);
+			h = 31 * h + JSONValues.hash(pluginOptions);
+			h = 31 * h + JSONValues.hash(other);
+			this.hash = h;
+		}
+		return h;
 	}
 	
 	/**
@@ -221,12 +380,21 @@ public class Effect
 	}
 	
 	/**
-	 * Gets a map of properties belonging to this effect.
-	 * @return  the properties of this effect
+	 * Gets a map of properties belonging to this effect. The map is an
+	 * unmodifiable copy, with the values in their <code>JSON</code> form
+	 * (for example, the palette is a <code>JSONArray</code>). Use the
+	 * setters to change the effect.
+	 * @return  an unmodifiable map of the properties of this effect
 	 */
 	public Map<Object, Object> getProperties()
 	{
-		return this.properties;
+		JSONObject json = toJSONObject();
+		Map<Object, Object> properties = new HashMap<Object, Object>();
+		for (String key : json.keySet())
+		{
+			properties.put(key, json.get(key));
+		}
+		return Collections.unmodifiableMap(properties);
 	}
 	
 	/**
@@ -239,8 +407,8 @@ public class Effect
 	 */
 	public PluginOptions getPluginOptions()
 	{
-		//return (JSONArray)this.properties.get("pluginOptions");
-		return PluginOptions.fromJSON(this.properties.get("pluginOptions").toString());
+		Object options = isSet(PLUGIN_OPTIONS) ? pluginOptions : getOther("pluginOptions");
+		return PluginOptions.fromJSON(String.valueOf(options));
 	}
 	
 	/**
@@ -251,7 +419,8 @@ public class Effect
 	 */
 	public void setPluginOptions(PluginOptions options)
 	{
-		properties.put("pluginOptions", new JSONArray(options.toJSON()));
+		this.pluginOptions = new JSONArray(options.toJSON());
+		set(PLUGIN_OPTIONS, "pluginOptions");
 	}
 	
 	/**
@@ -260,7 +429,7 @@ public class Effect
 	 */
 	public String getName()
 	{
-		return (String)this.properties.get("animName");
+		return this.name;
 	}
 	
 	/**
@@ -269,7 +438,8 @@ public class Effect
 	 */
 	public void setName(String name)
 	{
-		this.properties.put("animName", name);
+		this.name = name;
+		set(NAME, "animName");
 	}
 	
 	/**
@@ -278,7 +448,7 @@ public class Effect
 	 */
 	public String getVersion()
 	{
-		return (String)this.properties.get("version");
+		return this.version;
 	}
 	
 	/**
@@ -287,7 +457,8 @@ public class Effect
 	 */
 	public void setVersion(String version)
 	{
-		this.properties.put("version", version);
+		this.version = version;
+		set(VERSION, "version");
 	}
 	
 	/**
@@ -296,7 +467,12 @@ public class Effect
 	 */
 	public boolean getLoop()
 	{
-		return safeGetProperty("loop", Boolean.TYPE);
+		if (isSet(LOOP))
+		{
+			return this.loop;
+		}
+		Object value = getPluginOptionValue("loop");
+		return value instanceof Boolean ? (Boolean)value : false;
 	}
 	
 	/**
@@ -305,7 +481,16 @@ public class Effect
 	 */
 	public void setLoop(boolean loop)
 	{
-		safeSetProperty("loop", loop);
+		if (this.animType == Effect.Type.PLUGIN &&
+				"2.0".equals(this.version))
+		{
+			setPluginOption("loop", loop);
+		}
+		else
+		{
+			this.loop = loop;
+			set(LOOP, "loop");
+		}
 	}
 	
 	/**
@@ -314,8 +499,19 @@ public class Effect
 	 */
 	public Color[] getPalette()
 	{
-		JSONArray json = safeGetProperty("palette", JSONArray.class);
-		return json != null ? jsonToPalette(json) : null;
+		if (!isSet(PALETTE))
+		{
+			Object other = getOther("palette");
+			return other instanceof JSONArray ? jsonToPalette((JSONArray)other) : null;
+		}
+		Color[] colors = new Color[palette.length];
+		for (int i = 0; i < palette.length; i++)
+		{
+			int color = palette[i];
+			colors[i] = Color.fromHSB(color >>> 16, (color >>> 8) & 0xFF,
+					color & 0xFF, probabilities != null ? probabilities[i] : -1);
+		}
+		return colors;
 	}
 	
 	/**
@@ -326,16 +522,26 @@ public class Effect
 	{
 		if (palette != null)
 		{
-			JSONArray arr = new JSONArray(palette);
-			for (Object o : arr)
+			int[] colors = new int[palette.length];
+			double[] probabilities = null;
+			for (int i = 0; i < palette.length; i++)
 			{
-				JSONObject jobj = (JSONObject)o;
-				if (jobj.getDouble("probability") == -1.0)
+				Color color = palette[i];
+				colors[i] = packColor(color.getHue(),
+						color.getSaturation(), color.getBrightness());
+				if (color.getProbability() != -1.0)
 				{
-					jobj.remove("probability");
+					if (probabilities == null)
+					{
+						probabilities = new double[palette.length];
+						Arrays.fill(probabilities, -1);
+					}
+					probabilities[i] = color.getProbability();
 				}
 			}
-			this.properties.put("palette", arr);
+			this.palette = colors;
+			this.probabilities = probabilities;
+			set(PALETTE, "palette");
 		}
 		else
 		{
@@ -359,7 +565,7 @@ public class Effect
 	 */
 	public int getMaxTransTime()
 	{
-		return (Integer)safeGetMaxMinProperty("transTime", "maxValue");
+		return isSet(TRANS_TIME) ? this.maxTransTime : -1;
 	}
 	
 	/**
@@ -368,7 +574,8 @@ public class Effect
 	 */
 	public void setMaxTransTime(int transTime)
 	{
-		safeSetMaxMinProperty("transTime", "maxValue", transTime);
+		setRange(TRANS_TIME, "transTime");
+		this.maxTransTime = transTime;
 	}
 	
 	/**
@@ -377,7 +584,7 @@ public class Effect
 	 */
 	public int getMinTransTime()
 	{
-		return (Integer)safeGetMaxMinProperty("transTime", "minValue");
+		return isSet(TRANS_TIME) ? this.minTransTime : -1;
 	}
 	
 	/**
@@ -386,7 +593,8 @@ public class Effect
 	 */
 	public void setMinTransTime(int transTime)
 	{
-		safeSetMaxMinProperty("transTime", "minValue", transTime);
+		setRange(TRANS_TIME, "transTime");
+		this.minTransTime = transTime;
 	}
 	
 	/**
@@ -395,7 +603,12 @@ public class Effect
 	 */
 	public int getWindowSize()
 	{
-		return safeGetProperty("windowSize", Integer.class);
+		if (isSet(WINDOW_SIZE))
+		{
+			return this.windowSize;
+		}
+		Object value = getPluginOptionValue("windowSize");
+		return value instanceof Number ? ((Number)value).intValue() : -1;
 	}
 	
 	/**
@@ -404,7 +617,8 @@ public class Effect
 	 */
 	public void setWindowSize(int size)
 	{
-		this.properties.put("windowSize", size);
+		this.windowSize = size;
+		set(WINDOW_SIZE, "windowSize");
 	}
 	
 	/**
@@ -413,7 +627,12 @@ public class Effect
 	 */
 	public double getFlowFactor()
 	{
-		return safeGetProperty("flowFactor", Double.class);
+		if (isSet(FLOW_FACTOR))
+		{
+			return this.flowFactor;
+		}
+		Object value = getPluginOptionValue("flowFactor");
+		return value instanceof Number ? ((Number)value).doubleValue() : -1.0;
 	}
 	
 	/**
@@ -422,7 +641,8 @@ public class Effect
 	 */
 	public void setFlowFactor(double factor)
 	{
-		this.properties.put("flowFactor", factor);
+		this.flowFactor = factor;
+		set(FLOW_FACTOR, "flowFactor");
 	}
 	
 	/**
@@ -441,7 +661,7 @@ public class Effect
 	 */
 	public int getMaxDelayTime()
 	{
-		return (Integer)safeGetMaxMinProperty("delayTime", "maxValue");
+		return isSet(DELAY_TIME) ? this.maxDelayTime : -1;
 	}
 	
 	/**
@@ -450,7 +670,8 @@ public class Effect
 	 */
 	public void setMaxDelayTime(int delay)
 	{
-		safeSetMaxMinProperty("delayTime", "maxValue", delay);
+		setRange(DELAY_TIME, "delayTime");
+		this.maxDelayTime = delay;
 	}
 	
 	/**
@@ -459,7 +680,7 @@ public class Effect
 	 */
 	public int getMinDelayTime()
 	{
-		return (Integer)safeGetMaxMinProperty("delayTime", "minValue");
+		return isSet(DELAY_TIME) ? this.minDelayTime : -1;
 	}
 	
 	/**
@@ -468,7 +689,8 @@ public class Effect
 	 */
 	public void setMinDelayTime(int delay)
 	{
-		safeSetMaxMinProperty("delayTime", "minValue", delay);
+		setRange(DELAY_TIME, "delayTime");
+		this.minDelayTime = delay;
 	}
 	
 	/**
@@ -477,8 +699,7 @@ public class Effect
 	 */
 	public String getColorType()
 	{
-		//return (String)safeGetProperty("colorType", "");
-		return safeGetProperty("colorType", String.class);
+		return getStringProperty(COLOR_TYPE, this.colorType, "colorType");
 	}
 	
 	/**
@@ -487,7 +708,8 @@ public class Effect
 	 */
 	public void setColorType(String type)
 	{
-		this.properties.put("colorType", type);
+		this.colorType = type;
+		set(COLOR_TYPE, "colorType");
 	}
 	
 	/**
@@ -496,16 +718,7 @@ public class Effect
 	 */
 	public Effect.Type getAnimType()
 	{
-		String type = (String)this.properties.get("animType");
-		Effect.Type validType = null;
-		for (Effect.Type t : Effect.Type.values())
-		{
-			if (t.toString().toLowerCase().equals(type))
-			{
-				validType = t;
-			}
-		}
-		return validType;
+		return this.animType;
 	}
 	
 	/**
@@ -516,7 +729,8 @@ public class Effect
 	{
 		if (type != null)
 		{
-			this.properties.put("animType", type.toString().toLowerCase());
+			this.animType = type;
+			set(ANIM_TYPE, "animType");
 		}
 		else
 		{
@@ -530,7 +744,7 @@ public class Effect
 	 */
 	public String getPluginType()
 	{
-		return safeGetProperty("pluginType", String.class);
+		return getStringProperty(PLUGIN_TYPE, this.pluginType, "pluginType");
 	}
 	
 	/**
@@ -539,7 +753,8 @@ public class Effect
 	 */
 	public void setPluginType(String type)
 	{
-		this.properties.put("pluginType", type);
+		this.pluginType = type;
+		set(PLUGIN_TYPE, "pluginType");
 	}
 	
 	/**
@@ -548,7 +763,12 @@ public class Effect
 	 */
 	public double getExplodeFactor()
 	{
-		return safeGetProperty("explodeFactor", Double.class);
+		if (isSet(EXPLODE_FACTOR))
+		{
+			return this.explodeFactor;
+		}
+		Object value = getPluginOptionValue("explodeFactor");
+		return value instanceof Number ? ((Number)value).doubleValue() : -1.0;
 	}
 	
 	/**
@@ -557,7 +777,8 @@ public class Effect
 	 */
 	public void setExplodeFactor(double factor)
 	{
-		this.properties.put("explodeFactor", factor);
+		this.explodeFactor = factor;
+		set(EXPLODE_FACTOR, "explodeFactor");
 	}
 	
 	/**
@@ -576,7 +797,7 @@ public class Effect
 	 */
 	public int getMaxBrightness()
 	{
-		return (Integer)safeGetMaxMinProperty("brightnessRange", "maxValue");
+		return isSet(BRIGHTNESS_RANGE) ? this.maxBrightness : -1;
 	}
 	
 	/**
@@ -585,7 +806,8 @@ public class Effect
 	 */
 	public void setMaxBrightness(int brightness)
 	{
-		safeSetMaxMinProperty("brightnessRange", "maxValue", brightness);
+		setRange(BRIGHTNESS_RANGE, "brightnessRange");
+		this.maxBrightness = brightness;
 	}
 	
 	/**
@@ -594,7 +816,7 @@ public class Effect
 	 */
 	public int getMinBrightness()
 	{
-		return (Integer)safeGetMaxMinProperty("brightnessRange", "minValue");
+		return isSet(BRIGHTNESS_RANGE) ? this.minBrightness : -1;
 	}
 	
 	/**
@@ -603,7 +825,8 @@ public class Effect
 	 */
 	public void setMinBrightness(int brightness)
 	{
-		safeSetMaxMinProperty("brightnessRange", "minValue", brightness);
+		setRange(BRIGHTNESS_RANGE, "brightnessRange");
+		this.minBrightness = brightness;
 	}
 	
 	/**
@@ -612,14 +835,7 @@ public class Effect
 	 */
 	public Effect.Direction getDirection()
 	{
-		String direction = (String)this.properties.get("direction");
-		Effect.Direction validDirection = null;
-		for (Effect.Direction d : Effect.Direction.values())
-		{
-			if (d.toString().toLowerCase().equals(direction))
-				validDirection = d;
-		}
-		return validDirection;
+		return this.direction;
 	}
 	
 	/**
@@ -630,7 +846,8 @@ public class Effect
 	{
 		if (direction != null)
 		{
-			this.properties.put("direction", direction.toString().toLowerCase());
+			this.direction = direction;
+			set(DIRECTION, "direction");
 		}
 		else
 		{
@@ -644,7 +861,7 @@ public class Effect
 	 */
 	public String getPluginUuid()
 	{
-		return safeGetProperty("pluginUuid", String.class);
+		return getStringProperty(PLUGIN_UUID, this.pluginUuid, "pluginUuid");
 	}
 	
 	/**
@@ -653,7 +870,8 @@ public class Effect
 	 */
 	public void setPluginUuid(String uuid)
 	{
-		this.properties.put("pluginUuid", uuid);
+		this.pluginUuid = uuid;
+		set(PLUGIN_UUID, "pluginUuid");
 	}
 	
 	/**
@@ -662,7 +880,7 @@ public class Effect
 	 */
 	public String getAnimData()
 	{
-		return safeGetProperty("animData", String.class);
+		return getStringProperty(ANIM_DATA, this.animData, "animData");
 	}
 	
 	/**
@@ -671,7 +889,268 @@ public class Effect
 	 */
 	public void setAnimData(String data)
 	{
-		this.properties.put("animData", data);
+		this.animData = data;
+		set(ANIM_DATA, "animData");
+	}
+	
+	/**
+	 * Reads a property from the <code>JSON</code> data into its typed field.
+	 * Properties that this class doesn't know about are ignored.
+	 * @param key  the name of the property
+	 * @param value  the <code>JSON</code> value of the property
+	 */
+	private void read(String key, Object value)
+	{
+		boolean typed = true;
+		switch (key)
+		{
+			case "animName":
+				typed = readString(NAME, value);
+				if (typed)
+					name = stringValue(value);
+				break;
+			case "version":
+				typed = readString(VERSION, value);
+				if (typed)
+					version = stringValue(value);
+				break;
+			case "animData":
+				typed = readString(ANIM_DATA, value);
+				if (typed)
+					animData = stringValue(value);
+				break;
+			case "colorType":
+				typed = readString(COLOR_TYPE, value);
+				if (typed)
+					colorType = stringValue(value);
+				break;
+			case "pluginType":
+				typed = readString(PLUGIN_TYPE, value);
+				if (typed)
+					pluginType = stringValue(value);
+				break;
+			case "pluginUuid":
+				typed = readString(PLUGIN_UUID, value);
+				if (typed)
+					pluginUuid = stringValue(value);
+				break;
+			case "animType":
+				animType = value instanceof String ?
+						parseEnum(Type.values(), (String)value) : null;
+				typed = animType != null;
+				if (typed)
+					present |= ANIM_TYPE;
+				break;
+			case "direction":
+				direction = value instanceof String ?
+						parseEnum(Direction.values(), (String)value) : null;
+				typed = direction != null;
+				if (typed)
+					present |= DIRECTION;
+				break;
+			case "loop":
+				typed = value instanceof Boolean;
+				if (typed)
+				{
+					loop = (Boolean)value;
+					present |= LOOP;
+				}
+				break;
+			case "windowSize":
+				typed = isInt(value);
+				if (typed)
+				{
+					windowSize = ((Number)value).intValue();
+					present |= WINDOW_SIZE;
+				}
+				break;
+			case "flowFactor":
+				typed = value instanceof Number;
+				if (typed)
+				{
+					flowFactor = ((Number)value).doubleValue();
+					present |= FLOW_FACTOR;
+				}
+				break;
+			case "explodeFactor":
+				typed = value instanceof Number;
+				if (typed)
+				{
+					explodeFactor = ((Number)value).doubleValue();
+					present |= EXPLODE_FACTOR;
+				}
+				break;
+			case "transTime":
+				typed = isRange(value);
+				if (typed)
+				{
+					minTransTime = ((JSONObject)value).getInt("minValue");
+					maxTransTime = ((JSONObject)value).getInt("maxValue");
+					present |= TRANS_TIME;
+				}
+				break;
+			case "delayTime":
+				typed = isRange(value);
+				if (typed)
+				{
+					minDelayTime = ((JSONObject)value).getInt("minValue");
+					maxDelayTime = ((JSONObject)value).getInt("maxValue");
+					present |= DELAY_TIME;
+				}
+				break;
+			case "brightnessRange":
+				typed = isRange(value);
+				if (typed)
+				{
+					minBrightness = ((JSONObject)value).getInt("minValue");
+					maxBrightness = ((JSONObject)value).getInt("maxValue");
+					present |= BRIGHTNESS_RANGE;
+				}
+				break;
+			case "palette":
+				typed = value instanceof JSONArray && readPalette((JSONArray)value);
+				if (typed)
+					present |= PALETTE;
+				break;
+			case "pluginOptions":
+				typed = value instanceof JSONArray;
+				if (typed)
+				{
+					pluginOptions = (JSONArray)value;
+					present |= PLUGIN_OPTIONS;
+				}
+				break;
+			default:
+				return;
+		}
+		if (!typed)
+		{
+			if (other == null)
+			{
+				other = new HashMap<String, Object>(4);
+			}
+			other.put(key, value);
+		}
+	}
+	
+	/**
+	 * Creates the <code>JSON</code> data for the properties of this effect.
+	 * @return  the <code>JSON</code> data
+	 */
+	private JSONObject toJSONObject()
+	{
+		JSONObject json = new JSONObject();
+		if (other != null)
+		{
+			for (Map.Entry<String, Object> entry : other.entrySet())
+			{
+				json.put(entry.getKey(), entry.getValue());
+			}
+		}
+		putString(json, NAME, "animName", name);
+		putString(json, VERSION, "version", version);
+		putString(json, ANIM_DATA, "animData", animData);
+		putString(json, COLOR_TYPE, "colorType", colorType);
+		putString(json, PLUGIN_TYPE, "pluginType", pluginType);
+		putString(json, PLUGIN_UUID, "pluginUuid", pluginUuid);
+		if (isSet(ANIM_TYPE))
+			json.put("animType", animType.toString().toLowerCase());
+		if (isSet(DIRECTION))
+			json.put("direction", direction.toString().toLowerCase());
+		if (isSet(LOOP))
+			json.put("loop", loop);
+		if (isSet(WINDOW_SIZE))
+			json.put("windowSize", windowSize);
+		if (isSet(FLOW_FACTOR))
+			json.put("flowFactor", flowFactor);
+		if (isSet(EXPLODE_FACTOR))
+			json.put("explodeFactor", explodeFactor);
+		if (isSet(TRANS_TIME))
+			json.put("transTime", rangeToJSON(minTransTime, maxTransTime));
+		if (isSet(DELAY_TIME))
+			json.put("delayTime", rangeToJSON(minDelayTime, maxDelayTime));
+		if (isSet(BRIGHTNESS_RANGE))
+			json.put("brightnessRange", rangeToJSON(minBrightness, maxBrightness));
+		if (isSet(PALETTE))
+			json.put("palette", paletteToJSON());
+		if (isSet(PLUGIN_OPTIONS))
+			json.put("pluginOptions", new JSONArray(pluginOptions.toString()));
+		return json;
+	}
+	
+	private boolean isSet(int property)
+	{
+		return (present & property) != 0;
+	}
+	
+	/**
+	 * Marks a property as set, replacing any value that didn't fit its field.
+	 * @param property  the property bit
+	 * @param key  the name of the property
+	 */
+	private void set(int property, String key)
+	{
+		present |= property;
+		hash = 0;
+		if (other != null)
+		{
+			other.remove(key);
+		}
+	}
+	
+	/**
+	 * Marks a range property as set. A range that wasn't set
+	 * starts at 0 (maximum and minimum).
+	 * @param property  the property bit
+	 * @param key  the name of the property
+	 */
+	private void setRange(int property, String key)
+	{
+		hash = 0;
+		if (!isSet(property))
+		{
+			switch (property)
+			{
+				case TRANS_TIME:
+					minTransTime = maxTransTime = 0;
+					break;
+				case DELAY_TIME:
+					minDelayTime = maxDelayTime = 0;
+					break;
+				default:
+					minBrightness = maxBrightness = 0;
+					break;
+			}
+			set(property, key);
+		}
+	}
+	
+	private Object getOther(String key)
+	{
+		return other != null ? other.get(key) : null;
+	}
+	
+	/**
+	 * Gets a string property, or the plugin option of the same name
+	 * if the property isn't set.
+	 * @param property  the property bit
+	 * @param value  the value of the property
+	 * @param key  the name of the property
+	 * @return  the value, "null" if the value is a <code>JSON</code> null,
+	 * 			or null if the property and the plugin option aren't set
+	 */
+	private String getStringProperty(int property, String value, String key)
+	{
+		if (isSet(property))
+		{
+			return value != null ? value : "null";
+		}
+		Object option = getPluginOptionValue(key);
+		if (option == null)
+		{
+			return null;
+		}
+		return JSONObject.NULL.equals(option) ? "null" : String.valueOf(option);
 	}
 	
 	/**
@@ -682,29 +1161,30 @@ public class Effect
 	 */
 	private void setPluginOption(String option, Object value)
 	{
-		JSONArray pluginOptions = (JSONArray)this.properties.get("pluginOptions");
-		JSONObject optionObject = null;
-		for (Object o : pluginOptions)
+		if (pluginOptions == null)
+		{
+			return;
+		}
+		JSONArray options = new JSONArray(pluginOptions.toString());
+		for (Object o : options)
 		{
 			JSONObject jo = (JSONObject)o;
 			if (jo.get("name").equals(option))
 			{
-				optionObject = jo;
+				jo.put("value", value);
 			}
 		}
-		if (optionObject != null)
-			optionObject.put("value", value);
-		this.properties.put("pluginOptions", pluginOptions);
+		this.pluginOptions = options;
+		this.hash = 0;
 	}
 	
 	/**
-	 * Gets a plugin option from the effect's plugin options array.
+	 * Gets the value of a plugin option from the effect's plugin options array.
 	 * @param option  the plugin option to get
-	 * @return  a <code>JSONObject</code> containing the plugin option (name and value)
+	 * @return  the value of the option, or null if the option isn't set
 	 */
-	private JSONObject getPluginOption(String option)
+	private Object getPluginOptionValue(String option)
 	{
-		JSONArray pluginOptions = (JSONArray)this.properties.get("pluginOptions");
 		if (pluginOptions != null)
 		{
 			for (Object o : pluginOptions)
@@ -712,7 +1192,7 @@ public class Effect
 				JSONObject jo = (JSONObject)o;
 				if (jo.get("name").equals(option))
 				{
-					return jo;
+					return jo.opt("value");
 				}
 			}
 		}
@@ -720,144 +1200,233 @@ public class Effect
 	}
 	
 	/**
-	 * Attempts to locate then return the specified property as type <code>T</code>.
-	 * @param property  the property to get
-	 * @param type  the type of the property (for return and parsing type)
-	 * @return  the value of the specified property as type <code>T</code>
-	 * 			or <code>"null"/-1/-1.0/false</code> if the property cannot be located
+	 * Reads the colors of a palette into the packed palette.
+	 * @param arr  the palette in <code>JSON</code> format
+	 * @return  true, if every color could be packed
 	 */
-	private <T> T safeGetProperty(String property, Class<T> type)
+	private boolean readPalette(JSONArray arr)
 	{
-		JSONObject option = getPluginOption(property);
-		if (this.properties.containsKey(property))
+		int[] colors = new int[arr.length()];
+		double[] probabilities = null;
+		for (int i = 0; i < arr.length(); i++)
 		{
-			T value = (T)this.properties.get(property);
-			// Special handling for double types (bug? double json values are formatted as ints)
-			if (type.equals(Double.class) && value instanceof Integer)
-				value = (T)new Double((Integer)value);
-			// Special handling for null strings
-			if ((value == null || value.equals(null)) && type.equals(String.class))
-				return (T)"null";
-			return value;
+			JSONObject color = arr.optJSONObject(i);
+			if (color == null)
+			{
+				return false;
+			}
+			int known = 0;
+			for (String key : color.keySet())
+			{
+				if (key.equals("hue") || key.equals("saturation") ||
+						key.equals("brightness") || key.equals("probability"))
+				{
+					known++;
+				}
+			}
+			Object hue = color.opt("hue"), sat = color.opt("saturation"),
+					brightness = color.opt("brightness");
+			if (known != color.length() || !isInt(hue) || !isInt(sat) ||
+					!isInt(brightness) || !fitsColor(((Number)hue).intValue(),
+							((Number)sat).intValue(), ((Number)brightness).intValue()))
+			{
+				// The palette is kept as it is
+				return false;
+			}
+			colors[i] = packColor(((Number)hue).intValue(),
+					((Number)sat).intValue(), ((Number)brightness).intValue());
+			if (color.has("probability"))
+			{
+				Object probability = color.get("probability");
+				if (!(probability instanceof Number))
+				{
+					return false;
+				}
+				if (probabilities == null)
+				{
+					probabilities = new double[arr.length()];
+					Arrays.fill(probabilities, -1);
+				}
+				probabilities[i] = ((Number)probability).doubleValue();
+			}
 		}
-		else if (option != null)
+		this.palette = colors;
+		this.probabilities = probabilities;
+		return true;
+	}
+	
+	/**
+	 * Converts the packed palette into <code>JSON</code> format.
+	 * @return  the palette in <code>JSON</code> format
+	 */
+	private JSONArray paletteToJSON()
+	{
+		JSONArray arr = new JSONArray();
+		for (int i = 0; i < palette.length; i++)
 		{
-			T value = (T)option.get("value");
-			// Special handling for double types (bug? double json values are formatted as ints)
-			if (type.equals(Double.class) && value instanceof Integer)
-				value = (T)new Double((Integer)value);
-			// Special handling for null strings
-			if ((value.equals(null) || value.equals(null)) && type.equals(String.class))
-				return (T)"null";
-			return value;
+			JSONObject color = new JSONObject();
+			color.put("hue", palette[i] >>> 16);
+			color.put("saturation", (palette[i] >>> 8) & 0xFF);
+			color.put("brightness", palette[i] & 0xFF);
+			if (probabilities != null && probabilities[i] != -1)
+			{
+				color.put("probability", probabilities[i]);
+			}
+			arr.put(color);
 		}
-		else if (type.equals(Integer.class))
+		return arr;
+	}
+	
+	/**
+	 * Converts a palette that couldn't be packed into a color array.
+	 * @param json  the palette in <code>JSON</code> format
+	 * @return  the color palette
+	 */
+	private static Color[] jsonToPalette(JSONArray json)
+	{
+		Color[] palette = new Color[json.length()];
+		for (int i = 0; i < json.length(); i++)
 		{
-			return (T)new Integer(-1);
+			JSONObject color = json.getJSONObject(i);
+			palette[i] = Color.fromHSB(color.getInt("hue"),
+					color.getInt("saturation"), color.getInt("brightness"),
+					color.optDouble("probability", -1));
 		}
-		else if (type.equals(Double.class))
+		return palette;
+	}
+	
+	private static boolean probabilitiesEqual(double[] a, double[] b)
+	{
+		if (a == null || b == null)
 		{
-			return (T)new Double(-1.0);
+			return a == b;
 		}
-		else if (type.equals(boolean.class))
+		if (a.length != b.length)
 		{
-			return (T)new Boolean(false);
+			return false;
 		}
-		else
+		for (int i = 0; i < a.length; i++)
 		{
-			return null;
+			if (!JSONValues.equal(a[i], b[i]))
+			{
+				return false;
+			}
 		}
+		return true;
 	}
 	
-	/**
-	 * Properly sets a property's value, accounting for all effect versions.
-	 * @param property  the name of the property being updated
-	 * @param value  the new value of the property
-	 */
-	private void safeSetProperty(String property, Object value)
+	private static int probabilitiesHash(double[] probabilities)
 	{
-		if (this.getAnimType() != null &&
-				this.getAnimType().equals(Effect.Type.PLUGIN) &&
-				this.getVersion().equals("2.0"))
+		if (probabilities == null)
 		{
-			setPluginOption(property, value);
+			return 0;
 		}
-		else
+		int h = 1;
+		for (double probability : probabilities)
 		{
-			this.properties.put(property, value);
+			h = 31 * h + JSONValues.hash(probability);
 		}
+		return h;
 	}
 	
-	/**
-	 * Properly gets a max/min effect property value.
-	 * @param property  the max/min property to get
-	 * @param maxMin  either "max" or "min" for the max/min values respectively
-	 * @return  the value of the max/min property
-	 */
-	private Object safeGetMaxMinProperty(String property, String maxMin)
+	private static boolean equal(String a, String b)
 	{
-		JSONObject propertyRange = (JSONObject)this.properties.get(property);
-		if (propertyRange != null)
+		return a == null ? b == null : a.equals(b);
+	}
+	
+	private static int hash(String value)
+	{
+		return value != null ? value.hashCode() : 0;
+	}
+	
+	private static int packColor(int hue, int saturation, int brightness)
+	{
+		if (!fitsColor(hue, saturation, brightness))
 		{
-			return propertyRange.opt(maxMin);
+			throw new IllegalArgumentException("Color out of range: h=" +
+					hue + ", s=" + saturation + ", b=" + brightness);
 		}
-		else
+		return hue << 16 | saturation << 8 | brightness;
+	}
+	
+	private static boolean fitsColor(int hue, int saturation, int brightness)
+	{
+		return hue >= 0 && hue <= 0xFFFF && saturation >= 0 &&
+				saturation <= 0xFF && brightness >= 0 && brightness <= 0xFF;
+	}
+	
+	private static JSONObject rangeToJSON(int min, int max)
+	{
+		JSONObject range = new JSONObject();
+		range.put("maxValue", max);
+		range.put("minValue", min);
+		return range;
+	}
+	
+	private boolean readString(int property, Object value)
+	{
+		boolean typed = value instanceof String || JSONObject.NULL.equals(value);
+		if (typed)
+		{
+			present |= property;
+		}
+		return typed;
+	}
+	
+	private static String stringValue(Object value)
+	{
+		return value instanceof String ? (String)value : null;
+	}
+	
+	private void putString(JSONObject json, int property, String key, String value)
+	{
+		if (isSet(property))
 		{
-			return -1;
+			json.put(key, value != null ? value : JSONObject.NULL);
 		}
 	}
 	
 	/**
-	 * Properly sets a max/min effect property value.
-	 * @param property  the max/min property to set
-	 * @param maxMin  either "max" or "min" for the max/min values respectively
-	 * @param value  the new max/min value
+	 * Checks if a value is a whole number that fits in an <code>int</code>.
 	 */
-	private void safeSetMaxMinProperty(String property, String maxMin, int value)
+	private static boolean isInt(Object value)
 	{
-		JSONObject propertyRange = (JSONObject)this.properties.get(property);
-		if (propertyRange != null)
+		if (value instanceof Integer || value instanceof Short || value instanceof Byte)
 		{
-			propertyRange.put(maxMin, value);
+			return true;
 		}
-		else
+		if (value instanceof Number)
 		{
-			propertyRange = new JSONObject();
-			propertyRange.put("maxValue", 0);
-			propertyRange.put("minValue", 0);
-			propertyRange.put(maxMin, value);
-			this.properties.put(property, propertyRange);
+			double d = ((Number)value).doubleValue();
+			return d == Math.rint(d) && d >= Integer.MIN_VALUE && d <= Integer.MAX_VALUE;
 		}
+		return false;
 	}
 	
 	/**
-	 * Converts a json-formatted <code>Color[]</code> array
-	 * into a <code>Color[]</code> array object.
-	 * @param arr  the <code>JSONArray</code> object
-	 * 			   containing the <code>Color[]</code> array
-	 * @return  a <code>Color[]</code> array object
+	 * Checks if a value is a range with whole number
+	 * <code>minValue</code> and <code>maxValue</code> members.
 	 */
-	private Color[] jsonToPalette(JSONArray arr)
+	private static boolean isRange(Object value)
 	{
-		Color[] palette = new Color[arr.length()];
-		for (int i = 0; i < arr.length(); i++)
+		if (!(value instanceof JSONObject))
 		{
-			JSONObject colors = arr.getJSONObject(i);
-			int hue = colors.getInt("hue");
-			int sat = colors.getInt("saturation");
-			int brightness = colors.getInt("brightness");
-			palette[i] = Color.fromHSB(hue,
-					sat, brightness);
-			try
-			{
-				double probability = colors.getDouble("probability");
-				palette[i].setProbability(probability);
-			}
-			catch (JSONException je)
+			return false;
+		}
+		JSONObject range = (JSONObject)value;
+		return range.length() == 2 && isInt(range.opt("minValue")) &&
+				isInt(range.opt("maxValue"));
+	}
+	
+	private static <E extends Enum<E>> E parseEnum(E[] values, String name)
+	{
+		for (E e : values)
+		{
+			if (e.toString().toLowerCase().equals(name))
 			{
-				palette[i].setProbability(-1);
+				return e;
 			}
 		}
-		return palette;
+		return null;
 	}
 }
@@ -0,0 +1,16 @@
+package io.github.rowak.nanoleafapi;
+
+/**
+ * Receives the effects that are downloaded by
+ * {@link Aurora.Effects#getAllEffects(EffectCallback)}.
+ */
+@FunctionalInterface
+public interface EffectCallback
+{
+	/**
+	 * Called (on the downloading thread) for every effect, as soon
+	 * as it has been decoded.
+	 * @param effect  the effect
+	 */
+	void onEffect(Effect effect);
+}
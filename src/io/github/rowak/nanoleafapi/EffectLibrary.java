@@ -0,0 +1,404 @@
+package io.github.rowak.nanoleafapi;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import io.github.rowak.nanoleafapi.StatusCodeException.ResourceNotFoundException;
+import io.github.rowak.nanoleafapi.StatusCodeException.UnauthorizedException;
+
+/**
+ * A local copy of the effects that are installed on an Aurora. The
+ * library keeps the list of effect names and the parsed effects (along
+ * with a hash of each effect's content), so reading them doesn't require
+ * a request to the Aurora. Effects are downloaded the first time they
+ * are read.
+ * <p>
+ * The library is refreshed (by requesting the effects list and comparing
+ * it to the cached list) only when it has been marked as stale, which
+ * happens when an <code>EFFECTS</code> event is received by any of the
+ * Aurora's event subscriptions (see {@link #subscribe()}), or when
+ * {@link #invalidate()} is called. Only the effects that were removed
+ * from the list are forgotten. Effects that are added, deleted or renamed
+ * through the same <code>Aurora</code> object are applied to the library
+ * directly.
+ * <p>
+ * Use {@link Aurora#effectLibrary()} to get the library of an Aurora.
+ */
+public class EffectLibrary implements AutoCloseable
+{
+	private final Aurora aurora;
+	private final Map<String, Entry> entries;
+	private String[] names;
+	private long version;
+	private AuroraEvents.Subscription subscription;
+	private volatile boolean stale;
+
+	/**
+	 * Creates an empty effect library.
+	 * @param aurora  the Aurora that the effects are installed on
+	 */
+	EffectLibrary(Aurora aurora)
+	{
+		this.aurora = aurora;
+		this.entries = new HashMap<String, Entry>();
+	}
+
+	/**
+	 * Gets the names of the installed effects.
+	 * @return  a string array of all the effects
+	 * @throws UnauthorizedException  if the access token is invalid
+	 */
+	public synchronized String[] getEffectsList()
+			throws StatusCodeException, UnauthorizedException
+	{
+		ensureFresh();
+		return names.clone();
+	}
+
+	/**
+	 * Gets an installed effect. The effect is a copy, so it
+	 * can be modified without changing the library.
+	 * @param effectName  the name of the effect
+	 * @return  the effect
+	 * @throws UnauthorizedException  if the access token is invalid
+	 * @throws ResourceNotFoundException  if the effect <code>effectName</code>
+	 * 									  is not installed
+	 */
+	public synchronized Effect getEffect(String effectName)
+			throws StatusCodeException, UnauthorizedException, ResourceNotFoundException
+	{
+		return entry(effectName).effect.copy();
+	}
+
+	/**
+	 * Gets all of the installed effects. The effects that haven't been
+	 * downloaded yet are downloaded with a single request.
+	 * @return  copies of the installed effects, in the
+	 * 			same order as {@link #getEffectsList()}
+	 * @throws UnauthorizedException  if the access token is invalid
+	 */
+	public synchronized Effect[] getAllEffects()
+			throws StatusCodeException, UnauthorizedException
+	{
+		ensureFresh();
+		int missing = 0;
+		for (String name : names)
+		{
+			if (!entries.containsKey(name))
+			{
+				missing++;
+			}
+		}
+		if (missing > 1)
+		{
+			download();
+		}
+		Effect[] effects = new Effect[names.length];
+		for (int i = 0; i < names.length; i++)
+		{
+			effects[i] = entry(names[i]).effect.copy();
+		}
+		return effects;
+	}
+
+	/**
+	 * Gets the hash of an installed effect's content. The hash changes
+	 * whenever any property of the effect (including its name) changes.
+	 * @param effectName  the name of the effect
+	 * @return  the content hash
+	 * @throws UnauthorizedException  if the access token is invalid
+	 * @throws ResourceNotFoundException  if the effect <code>effectName</code>
+	 * 									  is not installed
+	 */
+	public synchronized int getContentHash(String effectName)
+			throws StatusCodeException, UnauthorizedException, ResourceNotFoundException
+	{
+		return entry(effectName).hash;
+	}
+
+	/**
+	 * Checks if an effect with the same name and content as a local
+	 * effect is installed.
+	 * @param effect  the local effect
+	 * @return  true, if the effect is installed and unchanged
+	 * @throws UnauthorizedException  if the access token is invalid
+	 */
+	public synchronized boolean contains(Effect effect)
+			throws StatusCodeException, UnauthorizedException
+	{
+		ensureFresh();
+		String name = effect.getName();
+		if (name == null || !Arrays.asList(names).contains(name))
+		{
+			return false;
+		}
+		Entry entry = entry(name);
+		return entry.effect.equals(effect);
+	}
+
+	/**
+	 * Gets the version of the library, which increases every
+	 * time the list of effects or an effect changes.
+	 * @return  the version
+	 */
+	public synchronized long getVersion()
+	{
+		return this.version;
+	}
+
+	/**
+	 * Marks the library as stale, so that the effects list is
+	 * requested again the next time the library is read.
+	 */
+	public void invalidate()
+	{
+		this.stale = true;
+	}
+
+	/**
+	 * Requests the effects list and updates the library if it changed.
+	 * The effects that are no longer installed are forgotten, and the
+	 * new effects are downloaded the first time they are read.
+	 * @return  true, if the effects list changed
+	 * @throws UnauthorizedException  if the access token is invalid
+	 */
+	public synchronized boolean refresh()
+			throws StatusCodeException, UnauthorizedException
+	{
+		stale = false;
+		// The list has to come from the controller, not the read cache
+		aurora.getReadCache().invalidate("effects");
+		String[] list;
+		try
+		{
+			list = aurora.effects().getEffectsList();
+		}
+		catch (StatusCodeException | RuntimeException e)
+		{
+			stale = true;
+			throw e;
+		}
+		if (names != null && Arrays.equals(names, list))
+		{
+			return false;
+		}
+		Set<String> installed = new HashSet<String>(Arrays.asList(list));
+		entries.keySet().retainAll(installed);
+		names = list;
+		version++;
+		return true;
+	}
+
+	/**
+	 * Downloads every installed effect again (with a single request) and
+	 * replaces the effects whose content changed. This also notices effects
+	 * that were changed by other clients without being renamed.
+	 * @return  true, if the effects list or any effect changed
+	 * @throws UnauthorizedException  if the access token is invalid
+	 */
+	public synchronized boolean reload()
+			throws StatusCodeException, UnauthorizedException
+	{
+		boolean changed = refresh();
+		return download() || changed;
+	}
+
+	/**
+	 * Forgets every effect. The library is loaded again
+	 * the next time it is read.
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+		names = null;
+		version++;
+	}
+
+	/**
+	 * Subscribes to the Aurora's <code>EFFECTS</code> events, so that the
+	 * library notices the changes that are made by other clients. Events
+	 * that are received by other subscriptions also mark the library as
+	 * stale, so this isn't needed if such a subscription is already open.
+	 */
+	public synchronized void subscribe()
+	{
+		if (subscription == null || subscription.isClosed())
+		{
+			// The events invalidate the library before they reach the listener
+			subscription = aurora.events().subscribe(event -> {}, EventType.EFFECTS);
+		}
+	}
+
+	/**
+	 * Closes the library's event subscription (if there is one).
+	 * The cached effects are kept.
+	 */
+	@Override
+	public synchronized void close()
+	{
+		if (subscription != null)
+		{
+			subscription.close();
+			subscription = null;
+		}
+	}
+
+	/**
+	 * Applies a write command that was successfully sent to the
+	 * Aurora through the same <code>Aurora</code> object.
+	 * @param command  the write command
+	 */
+	synchronized void effectWritten(String command)
+	{
+		if (names == null)
+		{
+			return;
+		}
+		try
+		{
+			JSONObject json = new JSONObject(command);
+			String name = json.optString("animName", null);
+			switch (json.optString("command"))
+			{
+				case "add":
+					// The controller may fill in properties that are missing
+					// from the local effect, so download the effect again
+					entries.remove(name);
+					addName(name);
+					version++;
+					break;
+				case "delete":
+					entries.remove(name);
+					removeName(name);
+					version++;
+					break;
+				case "rename":
+					String newName = json.getString("newName");
+					Entry entry = entries.remove(name);
+					entries.remove(newName);
+					if (entry != null)
+					{
+						Effect effect = entry.effect.copy();
+						effect.setName(newName);
+						entries.put(newName, new Entry(effect));
+					}
+					removeName(newName);
+					int i = Arrays.asList(names).indexOf(name);
+					if (i >= 0)
+					{
+						// Keep the position that the controller lists it at
+						names[i] = newName;
+					}
+					else
+					{
+						addName(newName);
+					}
+					version++;
+					break;
+				default:
+					break;
+			}
+		}
+		catch (JSONException je)
+		{
+			stale = true;
+		}
+	}
+
+	private void ensureFresh() throws StatusCodeException, UnauthorizedException
+	{
+		if (names == null || stale)
+		{
+			refresh();
+		}
+	}
+
+	private Entry entry(String effectName) throws StatusCodeException,
+			UnauthorizedException, ResourceNotFoundException
+	{
+		ensureFresh();
+		Entry entry = entries.get(effectName);
+		if (entry == null)
+		{
+			if (!Arrays.asList(names).contains(effectName))
+			{
+				throw new StatusCodeException().new ResourceNotFoundException();
+			}
+			entry = new Entry(aurora.effects().getEffect(effectName));
+			entries.put(effectName, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Downloads every installed effect and stores the
+	 * ones that are new or whose content changed.
+	 * @return  true, if an effect that was already downloaded changed
+	 */
+	private boolean download() throws StatusCodeException, UnauthorizedException
+	{
+		Set<String> installed = new HashSet<String>(Arrays.asList(names));
+		boolean[] changed = new boolean[1];
+		aurora.effects().getAllEffects(effect ->
+		{
+			String name = effect.getName();
+			if (!installed.contains(name))
+			{
+				return;
+			}
+			Entry entry = new Entry(effect);
+			Entry previous = entries.put(name, entry);
+			if (previous != null && !previous.effect.equals(entry.effect))
+			{
+				changed[0] = true;
+			}
+		});
+		if (changed[0])
+		{
+			version++;
+		}
+		return changed[0];
+	}
+
+	private void addName(String name)
+	{
+		if (name != null && !Arrays.asList(names).contains(name))
+		{
+			names = Arrays.copyOf(names, names.length + 1);
+			names[names.length - 1] = name;
+		}
+	}
+
+	private void removeName(String name)
+	{
+		int i = Arrays.asList(names).indexOf(name);
+		if (i >= 0)
+		{
+			String[] list = new String[names.length - 1];
+			System.arraycopy(names, 0, list, 0, i);
+			System.arraycopy(names, i + 1, list, i, list.length - i);
+			names = list;
+		}
+	}
+
+	/**
+	 * A downloaded effect and the hash of its content.
+	 */
+	private static class Entry
+	{
+		private final Effect effect;
+		private final int hash;
+
+		private Entry(Effect effect)
+		{
+			this.effect = effect;
+			this.hash = effect.hashCode();
+		}
+	}
+}
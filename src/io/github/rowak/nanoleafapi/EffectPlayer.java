@@ -0,0 +1,474 @@
+package io.github.rowak.nanoleafapi;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+import io.github.rowak.nanoleafapi.tools.CustomAnimDataParser;
+
+/**
+ * Plays a custom effect on the client by streaming its frames to the Aurora
+ * in real time, instead of uploading the whole effect with
+ * <code>displayEffect</code>. Playback starts immediately, and can be
+ * paused, resumed and moved to any position.
+ * <p>
+ * The effect is compiled once into a schedule of keyframes, indexed by tick.
+ * A tick is 100ms, the unit of the transition times in the animation data.
+ * Every keyframe is sent at the tick where its transition starts, with its
+ * own transition time, so the Aurora interpolates between keyframes just
+ * like it does for an uploaded effect. All of the keyframes of a tick are
+ * sent in a single update.
+ * <p>
+ * A looping effect repeats every time its longest panel finishes. Panels
+ * with shorter sequences repeat within each loop and restart with the
+ * longest panel.
+ * <p>
+ * The effect is checked against the streaming session's format when the
+ * player is created. Transition times that are longer than the format can
+ * carry (255 ticks in the v1 format) are shortened to the longest one it
+ * can, which keeps the timing of the keyframes but ends the transition
+ * early. Errors while sending are recorded (see {@link #getLastError()})
+ * and playback continues.
+ */
+public class EffectPlayer implements AutoCloseable
+{
+	/**
+	 * The length of a tick in milliseconds.
+	 */
+	public static final long TICK_MILLIS = 100;
+
+	private static final long TICK_NANOS = TICK_MILLIS * 1_000_000L;
+
+	private final Aurora.ExternalStreaming streaming;
+	private final boolean loop;
+	private final int length;
+	private final Thread thread;
+	private final StreamFrame frame = new StreamFrame();
+
+	/*
+	 * The keyframes, sorted by tick. The keyframes of tick t are at
+	 * positions tickStart[t] (inclusive) to tickStart[t+1] (exclusive).
+	 */
+	private int[] tickStart;
+	private int[] ids, red, green, blue, white, transitionTimes;
+
+	private int tick;
+	private long origin;
+	private boolean started, paused = true, finished;
+	private volatile boolean closed;
+	private volatile int generation;
+	private volatile Exception lastError;
+
+	/**
+	 * Creates a player for a custom effect. The player loops if
+	 * the effect loops.
+	 * @param streaming  the external streaming session to send the frames through
+	 * @param effect  the effect (must be a <code>CUSTOM</code> effect)
+	 * @throws IllegalArgumentException  if the effect is not a custom effect,
+	 * 									 or a panel id or RGBW value can't be
+	 * 									 sent in the session's format
+	 */
+	public EffectPlayer(Aurora.ExternalStreaming streaming, Effect effect)
+	{
+		this(streaming, parse(effect), effect.getLoop());
+	}
+
+	/**
+	 * Creates a player for parsed custom animation data.
+	 * @param streaming  the external streaming session to send the frames through
+	 * @param parser  the parsed animation data
+	 * @param loop  whether playback should loop
+	 * @throws IllegalArgumentException  if a panel id or RGBW value can't
+	 * 									 be sent in the session's format
+	 */
+	public EffectPlayer(Aurora.ExternalStreaming streaming,
+			CustomAnimDataParser parser, boolean loop)
+	{
+		this.streaming = streaming;
+		this.loop = loop;
+		this.length = compile(parser.getFramesByPanel(), streaming.getFormat());
+		this.thread = new Thread(this::run, "nanoleaf-player");
+		this.thread.setDaemon(true);
+		this.thread.setPriority(Thread.MAX_PRIORITY);
+	}
+
+	/**
+	 * Starts or resumes playback from the current position. If playback
+	 * has finished, it starts again from the beginning.
+	 * @throws IllegalStateException  if the player is closed
+	 */
+	public synchronized void play()
+	{
+		if (closed)
+		{
+			throw new IllegalStateException("Player is closed");
+		}
+		if (!paused)
+		{
+			return;
+		}
+		if (finished)
+		{
+			tick = 0;
+			finished = false;
+		}
+		paused = false;
+		origin = System.nanoTime() - tick * TICK_NANOS;
+		sendCatchUp();
+		if (!started)
+		{
+			started = true;
+			thread.start();
+		}
+		wake();
+	}
+
+	/**
+	 * Pauses playback at the current position. The panels keep the colors
+	 * (and finish the transitions) that were last sent.
+	 */
+	public synchronized void pause()
+	{
+		if (!paused)
+		{
+			paused = true;
+			wake();
+		}
+	}
+
+	/**
+	 * Moves playback to a position. The panels are immediately set to the
+	 * colors they would have at that position, and if the player is
+	 * playing, it continues from there.
+	 * @param millis  the position in milliseconds (rounded down to a
+	 * 				  whole tick, and wrapped around if the player loops)
+	 */
+	public synchronized void seek(long millis)
+	{
+		long position = Math.max(millis, 0) / TICK_MILLIS;
+		if (loop)
+		{
+			position %= length;
+		}
+		tick = (int)Math.min(position, length);
+		finished = !loop && tick == length;
+		if (finished)
+		{
+			paused = true;
+		}
+		origin = System.nanoTime() - tick * TICK_NANOS;
+		sendCatchUp();
+		wake();
+	}
+
+	/**
+	 * Gets the current playback position.
+	 * @return  the position in milliseconds
+	 */
+	public synchronized long getPosition()
+	{
+		return tick * TICK_MILLIS;
+	}
+
+	/**
+	 * Gets the length of one pass through the effect.
+	 * @return  the duration in milliseconds
+	 */
+	public long getDuration()
+	{
+		return length * TICK_MILLIS;
+	}
+
+	/**
+	 * Checks if the player loops.
+	 * @return  true, if the player loops
+	 */
+	public boolean isLooping()
+	{
+		return this.loop;
+	}
+
+	/**
+	 * Checks if the player is playing.
+	 * @return  true, if the player is playing
+	 */
+	public synchronized boolean isPlaying()
+	{
+		return !paused && !closed;
+	}
+
+	/**
+	 * Checks if playback reached the end of a non-looping effect.
+	 * @return  true, if playback has finished
+	 */
+	public synchronized boolean isFinished()
+	{
+		return this.finished;
+	}
+
+	/**
+	 * Gets the error that was thrown by the most recent failed send.
+	 * @return  the most recent error, or null if there were no errors
+	 */
+	public Exception getLastError()
+	{
+		return this.lastError;
+	}
+
+	/**
+	 * Stops playback. A closed player can't be played again.
+	 */
+	@Override
+	public synchronized void close()
+	{
+		closed = true;
+		paused = true;
+		wake();
+	}
+
+	private void run()
+	{
+		while (!closed)
+		{
+			int generation;
+			long deadline;
+			synchronized (this)
+			{
+				generation = this.generation;
+				deadline = origin + tick * TICK_NANOS;
+				if (paused)
+				{
+					deadline = Long.MAX_VALUE;
+				}
+			}
+			if (deadline == Long.MAX_VALUE)
+			{
+				LockSupport.park(this);
+				continue;
+			}
+			while (!closed && generation == this.generation &&
+					!StreamingRenderer.parkUntil(deadline))
+			{
+				// keep waiting
+			}
+			synchronized (this)
+			{
+				if (!closed && generation == this.generation)
+				{
+					step();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sends the keyframes of the current tick and moves to the next tick.
+	 */
+	private void step()
+	{
+		if (tick == length)
+		{
+			// Only reached when looping, since the last tick of a
+			// non-looping effect finishes playback
+			tick = 0;
+			origin += length * TICK_NANOS;
+		}
+		frame.clear();
+		for (int i = tickStart[tick]; i < tickStart[tick+1]; i++)
+		{
+			frame.setPanel(ids[i], red[i], green[i],
+					blue[i], white[i], transitionTimes[i]);
+		}
+		send();
+		tick++;
+		if (tick == length && !loop)
+		{
+			finished = true;
+			paused = true;
+		}
+	}
+
+	/**
+	 * Sends the colors that every panel has at the current tick,
+	 * including the part of each transition that is still left.
+	 */
+	private void sendCatchUp()
+	{
+		if (tick == 0)
+		{
+			return;
+		}
+		frame.clear();
+		for (int t = 0; t < tick; t++)
+		{
+			for (int i = tickStart[t]; i < tickStart[t+1]; i++)
+			{
+				int remaining = Math.max(0, t + transitionTimes[i] - tick);
+				frame.setPanel(ids[i], red[i], green[i],
+						blue[i], white[i], remaining);
+			}
+		}
+		send();
+	}
+
+	private void send()
+	{
+		if (frame.isEmpty())
+		{
+			return;
+		}
+		try
+		{
+			streaming.setPanels(frame);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			// For example, the session was switched to a format that
+			// can't carry the effect; the frame is skipped
+			lastError = e;
+		}
+	}
+
+	private void wake()
+	{
+		generation++;
+		LockSupport.unpark(thread);
+	}
+
+	/**
+	 * Compiles the frames of every panel into the keyframe schedule.
+	 * @param framesByPanel  the frames of each panel
+	 * @param format  the format that the frames will be sent in
+	 * @return  the length of the schedule in ticks
+	 * @throws IllegalArgumentException  if a panel id or RGBW value
+	 * 									 can't be sent in the format
+	 */
+	private int compile(Map<Integer, List<Frame>> framesByPanel, StreamFormat format)
+	{
+		for (Map.Entry<Integer, List<Frame>> entry : framesByPanel.entrySet())
+		{
+			int panelId = entry.getKey();
+			if (panelId < 0 || panelId > format.getMaxPanelId())
+			{
+				throw new IllegalArgumentException("Panel id " + panelId +
+						" can't be sent in the " + format.getName() + " format");
+			}
+			for (Frame f : entry.getValue())
+			{
+				if (!isRGBW(f.getRed()) || !isRGBW(f.getGreen()) ||
+						!isRGBW(f.getBlue()) || !isRGBW(f.getWhite()))
+				{
+					throw new IllegalArgumentException("Frame of panel " + panelId +
+							" has an RGBW value out of range (0-255)");
+				}
+			}
+		}
+		int maxTransitionTime = format.getMaxTransitionTime();
+
+		int length = 1;
+		for (List<Frame> frames : framesByPanel.values())
+		{
+			length = Math.max(length, getLength(frames));
+		}
+
+		// Count the keyframes of each tick
+		int[] counts = new int[length + 1];
+		int total = 0;
+		for (List<Frame> frames : framesByPanel.values())
+		{
+			int panelLength = getLength(frames);
+			for (int start = 0; start < length; start += panelLength)
+			{
+				int t = start;
+				for (Frame f : frames)
+				{
+					if (t >= length)
+					{
+						break;
+					}
+					counts[t]++;
+					total++;
+					t += f.getTransitionTime();
+				}
+				if (!loop || panelLength == 0)
+				{
+					break;
+				}
+			}
+		}
+
+		tickStart = new int[length + 1];
+		for (int t = 0; t < length; t++)
+		{
+			tickStart[t+1] = tickStart[t] + counts[t];
+		}
+		ids = new int[total];
+		red = new int[total];
+		green = new int[total];
+		blue = new int[total];
+		white = new int[total];
+		transitionTimes = new int[total];
+
+		// Fill in the keyframes, using the counts as the
+		// next free position of each tick
+		System.arraycopy(tickStart, 0, counts, 0, length);
+		for (Map.Entry<Integer, List<Frame>> entry : framesByPanel.entrySet())
+		{
+			int panelId = entry.getKey();
+			List<Frame> frames = entry.getValue();
+			int panelLength = getLength(frames);
+			for (int start = 0; start < length; start += panelLength)
+			{
+				int t = start;
+				for (Frame f : frames)
+				{
+					if (t >= length)
+					{
+						break;
+					}
+					int i = counts[t]++;
+					ids[i] = panelId;
+					red[i] = f.getRed();
+					green[i] = f.getGreen();
+					blue[i] = f.getBlue();
+					white[i] = f.getWhite();
+					// The next keyframe still starts on time, even
+					// if the transition had to be shortened
+					transitionTimes[i] = Math.min(f.getTransitionTime(),
+							maxTransitionTime);
+					t += f.getTransitionTime();
+				}
+				if (!loop || panelLength == 0)
+				{
+					break;
+				}
+			}
+		}
+		return length;
+	}
+
+	private static int getLength(List<Frame> frames)
+	{
+		int length = 0;
+		for (Frame f : frames)
+		{
+			length += f.getTransitionTime();
+		}
+		return length;
+	}
+
+	private static boolean isRGBW(int value)
+	{
+		return value >= 0 && value <= 255;
+	}
+
+	private static CustomAnimDataParser parse(Effect effect)
+	{
+		if (effect.getAnimType() != Effect.Type.CUSTOM)
+		{
+			throw new IllegalArgumentException("Only custom effects can be played");
+		}
+		return new CustomAnimDataParser(effect);
+	}
+}
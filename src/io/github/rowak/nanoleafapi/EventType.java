@@ -0,0 +1,61 @@
+package io.github.rowak.nanoleafapi;
+
+/**
+ * The types of events that can be subscribed to using {@link AuroraEvents}.
+ */
+public enum EventType
+{
+	/**
+	 * Changes to the on state, brightness, hue, saturation,
+	 * color temperature or color mode.
+	 */
+	STATE(1),
+
+	/**
+	 * Changes to the panel layout or the global orientation.
+	 */
+	LAYOUT(2),
+
+	/**
+	 * Changes to the selected effect.
+	 */
+	EFFECTS(3),
+
+	/**
+	 * Touch gestures on the panels (only for devices that support touch).
+	 */
+	TOUCH(4);
+
+	private int id;
+
+	private EventType(int id)
+	{
+		this.id = id;
+	}
+
+	/**
+	 * Gets the id that the Aurora uses for this type of event.
+	 * @return  the event type id
+	 */
+	public int getId()
+	{
+		return this.id;
+	}
+
+	/**
+	 * Gets the event type with the given id.
+	 * @param id  the event type id
+	 * @return  the event type, or null if there is no type with the id
+	 */
+	public static EventType fromId(int id)
+	{
+		for (EventType type : values())
+		{
+			if (type.id == id)
+			{
+				return type;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,75 @@
+package io.github.rowak.nanoleafapi;
+
+/**
+ * A fully-read response to a request sent through a {@link ConnectionPool}.
+ * Mirrors the <code>code()</code>/<code>body()</code> accessors of the
+ * <code>HttpRequest</code> objects that were previously used by the api.
+ */
+class HttpResponse
+{
+	private int code;
+	private String body;
+	private long bytesSent;
+	private long bytesReceived;
+
+	/**
+	 * Creates a new response.
+	 * @param code  the response status code
+	 * @param body  the response body (empty if the response has no body)
+	 */
+	HttpResponse(int code, String body)
+	{
+		this(code, body, 0, 0);
+	}
+
+	/**
+	 * Creates a new response.
+	 * @param code  the response status code
+	 * @param body  the response body (empty if the response has no body)
+	 * @param bytesSent  the size of the request body in bytes
+	 * @param bytesReceived  the size of the response body in bytes
+	 */
+	HttpResponse(int code, String body, long bytesSent, long bytesReceived)
+	{
+		this.code = code;
+		this.body = body;
+		this.bytesSent = bytesSent;
+		this.bytesReceived = bytesReceived;
+	}
+
+	/**
+	 * Gets the status code of the response.
+	 * @return  the response status code
+	 */
+	public int code()
+	{
+		return this.code;
+	}
+
+	/**
+	 * Gets the body of the response.
+	 * @return  the response body (never null)
+	 */
+	public String body()
+	{
+		return this.body;
+	}
+
+	/**
+	 * Gets the size of the request body.
+	 * @return  the number of bytes sent
+	 */
+	long bytesSent()
+	{
+		return this.bytesSent;
+	}
+
+	/**
+	 * Gets the size of the response body.
+	 * @return  the number of bytes received
+	 */
+	long bytesReceived()
+	{
+		return this.bytesReceived;
+	}
+}
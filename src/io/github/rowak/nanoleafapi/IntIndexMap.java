@@ -0,0 +1,125 @@
+package io.github.rowak.nanoleafapi;
+
+import java.util.Arrays;
+
+/**
+ * A small open-addressing hash map from int keys (panel ids) to int
+ * values (array indices). Keys and values are stored in primitive arrays,
+ * so lookups and insertions don't allocate once the table is large enough.
+ */
+class IntIndexMap
+{
+	private static final int EMPTY = Integer.MIN_VALUE;
+
+	private int[] keys;
+	private int[] values;
+	private int size;
+
+	/**
+	 * Creates a new map.
+	 * @param expectedSize  the number of keys that the map should
+	 * 						hold without growing
+	 */
+	IntIndexMap(int expectedSize)
+	{
+		int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+		this.keys = new int[capacity];
+		this.values = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * Gets the value of a key.
+	 * @param key  the key
+	 * @return  the value, or -1 if the key is not in the map
+	 */
+	int get(int key)
+	{
+		if (key == EMPTY)
+		{
+			return -1;
+		}
+		int mask = keys.length - 1;
+		for (int slot = slot(key, mask); keys[slot] != EMPTY; slot = (slot + 1) & mask)
+		{
+			if (keys[slot] == key)
+			{
+				return values[slot];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Sets the value of a key.
+	 * @param key  the key (any int except <code>Integer.MIN_VALUE</code>)
+	 * @param value  the value
+	 */
+	void put(int key, int value)
+	{
+		if (key == EMPTY)
+		{
+			throw new IllegalArgumentException("Invalid key: " + key);
+		}
+		if ((size + 1) * 2 > keys.length)
+		{
+			grow();
+		}
+		int mask = keys.length - 1;
+		int slot = slot(key, mask);
+		while (keys[slot] != EMPTY && keys[slot] != key)
+		{
+			slot = (slot + 1) & mask;
+		}
+		if (keys[slot] == EMPTY)
+		{
+			size++;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+	}
+
+	/**
+	 * Gets the number of keys in the map.
+	 * @return  the number of keys
+	 */
+	int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Removes every key from the map.
+	 */
+	void clear()
+	{
+		if (size > 0)
+		{
+			Arrays.fill(keys, EMPTY);
+			size = 0;
+		}
+	}
+
+	private void grow()
+	{
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new int[oldKeys.length * 2];
+		values = new int[oldValues.length * 2];
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++)
+		{
+			if (oldKeys[i] != EMPTY)
+			{
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	private static int slot(int key, int mask)
+	{
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+}
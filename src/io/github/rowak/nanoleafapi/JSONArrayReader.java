@@ -0,0 +1,116 @@
+package io.github.rowak.nanoleafapi;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Reads the objects in an array member of a <code>JSON</code> object one
+ * at a time, in a single pass over the text. Only one element is parsed
+ * into a <code>JSONObject</code> at a time, and the other members of the
+ * outer object are skipped, so no document is built for the whole text.
+ * The text after the end of the array is not read.
+ */
+class JSONArrayReader
+{
+	private final JSONTokener tokener;
+	private final String key;
+	private boolean started, done;
+
+	/**
+	 * Creates a reader for an array member.
+	 * @param json  the <code>JSON</code> object text
+	 * @param key  the name of the array member
+	 */
+	JSONArrayReader(String json, String key)
+	{
+		this.tokener = new JSONTokener(json);
+		this.key = key;
+	}
+
+	/**
+	 * Reads the next object in the array.
+	 * @return  the next object, or null if there are no more objects
+	 * @throws JSONException  if the text is malformed, the member is
+	 * 						  missing, or an element is not an object
+	 */
+	JSONObject next()
+	{
+		if (done)
+		{
+			return null;
+		}
+		char c;
+		if (!started)
+		{
+			started = true;
+			seek();
+			c = tokener.nextClean();
+			if (c == ']')
+			{
+				done = true;
+				return null;
+			}
+			tokener.back();
+		}
+		Object value = tokener.nextValue();
+		if (!(value instanceof JSONObject))
+		{
+			throw tokener.syntaxError("Expected an object in " + key);
+		}
+		c = tokener.nextClean();
+		if (c == ']')
+		{
+			done = true;
+		}
+		else if (c != ',')
+		{
+			throw tokener.syntaxError("Expected a ',' or ']'");
+		}
+		return (JSONObject)value;
+	}
+
+	/**
+	 * Moves the tokener to the first element of the array.
+	 */
+	private void seek()
+	{
+		if (tokener.nextClean() != '{')
+		{
+			throw tokener.syntaxError("A JSONObject text must begin with '{'");
+		}
+		char c = tokener.nextClean();
+		while (c != '}')
+		{
+			if (c != '"')
+			{
+				throw tokener.syntaxError("Expected a key");
+			}
+			String name = tokener.nextString('"');
+			if (tokener.nextClean() != ':')
+			{
+				throw tokener.syntaxError("Expected a ':' after a key");
+			}
+			if (name.equals(key))
+			{
+				if (tokener.nextClean() != '[')
+				{
+					throw tokener.syntaxError("JSONObject[\"" + key + "\"] is not a JSONArray.");
+				}
+				return;
+			}
+			// Skip any other member
+			tokener.nextValue();
+			c = tokener.nextClean();
+			if (c == ',')
+			{
+				c = tokener.nextClean();
+			}
+			else if (c != '}')
+			{
+				throw tokener.syntaxError("Expected a ',' or '}'");
+			}
+		}
+		throw new JSONException("JSONObject[\"" + key + "\"] not found.");
+	}
+}
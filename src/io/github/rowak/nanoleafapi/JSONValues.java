@@ -0,0 +1,189 @@
+package io.github.rowak.nanoleafapi;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Compares and hashes <code>JSON</code> values by their content. Objects
+ * are equal if they have the same members in any order, arrays are equal
+ * if they have equal elements in the same order, and numbers are equal if
+ * they have the same value, no matter how they are represented (so 2 and
+ * 2.0 are equal). <code>JSONObject.NULL</code> is the same as null.
+ * <p>
+ * Both <code>JSONObject</code>/<code>JSONArray</code> and plain maps and
+ * iterables are accepted, so parsed data can be compared to the values
+ * that were set by the setters.
+ */
+final class JSONValues
+{
+	private JSONValues()
+	{
+	}
+
+	/**
+	 * Checks if two values have the same content.
+	 * @param a  the first value
+	 * @param b  the second value
+	 * @return  true, if the values are equal
+	 */
+	static boolean equal(Object a, Object b)
+	{
+		a = unwrap(a);
+		b = unwrap(b);
+		if (a == b)
+		{
+			return true;
+		}
+		if (a == null || b == null)
+		{
+			return false;
+		}
+		if (a instanceof Number && b instanceof Number)
+		{
+			return Double.compare(toDouble((Number)a), toDouble((Number)b)) == 0;
+		}
+		if (isObject(a) && isObject(b))
+		{
+			return objectsEqual(a, b);
+		}
+		if (isArray(a) && isArray(b))
+		{
+			Iterator<?> ia = ((Iterable<?>)a).iterator();
+			Iterator<?> ib = ((Iterable<?>)b).iterator();
+			while (ia.hasNext() && ib.hasNext())
+			{
+				if (!equal(ia.next(), ib.next()))
+				{
+					return false;
+				}
+			}
+			return !ia.hasNext() && !ib.hasNext();
+		}
+		return a.equals(b);
+	}
+
+	/**
+	 * Computes a hash code for a value that is consistent with
+	 * {@link #equal(Object, Object)}.
+	 * @param value  the value
+	 * @return  the hash code
+	 */
+	static int hash(Object value)
+	{
+		value = unwrap(value);
+		if (value == null)
+		{
+			return 0;
+		}
+		if (value instanceof Number)
+		{
+			return hash(toDouble((Number)value));
+		}
+		if (value instanceof JSONObject)
+		{
+			// The sum doesn't depend on the order of the members
+			JSONObject json = (JSONObject)value;
+			int h = 0;
+			for (String key : json.keySet())
+			{
+				h += key.hashCode() ^ hash(json.opt(key));
+			}
+			return h;
+		}
+		if (value instanceof Map)
+		{
+			int h = 0;
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet())
+			{
+				h += String.valueOf(entry.getKey()).hashCode() ^ hash(entry.getValue());
+			}
+			return h;
+		}
+		if (isArray(value))
+		{
+			int h = 1;
+			for (Object element : (Iterable<?>)value)
+			{
+				h = 31 * h + hash(element);
+			}
+			return h;
+		}
+		return value.hashCode();
+	}
+
+	/**
+	 * Computes a hash code for a number.
+	 * @param value  the number
+	 * @return  the hash code
+	 */
+	static int hash(double value)
+	{
+		// 0.0 and -0.0 are equal
+		return value == 0 ? 0 : Double.hashCode(value);
+	}
+
+	private static Object unwrap(Object value)
+	{
+		return JSONObject.NULL.equals(value) ? null : value;
+	}
+
+	private static double toDouble(Number n)
+	{
+		double d = n.doubleValue();
+		return d == 0 ? 0 : d;
+	}
+
+	private static boolean isObject(Object value)
+	{
+		return value instanceof JSONObject || value instanceof Map;
+	}
+
+	private static boolean isArray(Object value)
+	{
+		return value instanceof JSONArray || (value instanceof Iterable && !isObject(value));
+	}
+
+	private static boolean objectsEqual(Object a, Object b)
+	{
+		if (size(a) != size(b))
+		{
+			return false;
+		}
+		for (Object key : keys(a))
+		{
+			String name = String.valueOf(key);
+			if (!has(b, name) || !equal(get(a, name), get(b, name)))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int size(Object object)
+	{
+		return object instanceof JSONObject ?
+				((JSONObject)object).length() : ((Map<?, ?>)object).size();
+	}
+
+	private static Iterable<?> keys(Object object)
+	{
+		return object instanceof JSONObject ?
+				((JSONObject)object).keySet() : ((Map<?, ?>)object).keySet();
+	}
+
+	private static boolean has(Object object, String key)
+	{
+		return object instanceof JSONObject ?
+				((JSONObject)object).has(key) : ((Map<?, ?>)object).containsKey(key);
+	}
+
+	private static Object get(Object object, String key)
+	{
+		return object instanceof JSONObject ?
+				((JSONObject)object).opt(key) : ((Map<?, ?>)object).get(key);
+	}
+}
@@ -0,0 +1,354 @@
+package io.github.rowak.nanoleafapi;
+
+import java.awt.Point;
+import java.util.Arrays;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * An immutable, indexed copy of an Aurora's panel layout. Panels are
+ * stored in primitive arrays in the order that the Aurora reports them
+ * (the panel <i>index</i>), and panel ids are mapped to their index by
+ * an open-addressing hash table, so looking up a panel by id doesn't
+ * require a scan. The centroid, the coordinates rotated to match the
+ * global orientation, and the direct neighbors of every panel are
+ * computed once when the model is created.
+ * <p>
+ * Use {@link Aurora.PanelLayout#getModel()} to get the current model
+ * of an Aurora.
+ */
+public class LayoutModel
+{
+	/**
+	 * The distance between the centers of two neighboring panels.
+	 */
+	private static final int NEIGHBOR_DISTANCE = 86;
+
+	private final int[] ids, x, y, orientation;
+	private final int[] rotatedX, rotatedY;
+	private final int[][] neighbors;
+	private final IntIndexMap index;
+	private final int sideLength, globalOrientation;
+	private final Point centroid;
+
+	/**
+	 * Creates a new layout model.
+	 * @param ids  the panel ids
+	 * @param x  the x-values of the panels
+	 * @param y  the y-values of the panels
+	 * @param orientation  the orientations of the panels
+	 * @param sideLength  the side length of each panel
+	 * @param globalOrientation  the global orientation of the Aurora
+	 */
+	public LayoutModel(int[] ids, int[] x, int[] y, int[] orientation,
+			int sideLength, int globalOrientation)
+	{
+		int n = ids.length;
+		if (x.length != n || y.length != n || orientation.length != n)
+		{
+			throw new IllegalArgumentException("Panel arrays must have the same length");
+		}
+		this.ids = ids.clone();
+		this.x = x.clone();
+		this.y = y.clone();
+		this.orientation = orientation.clone();
+		this.sideLength = sideLength;
+		this.globalOrientation = globalOrientation;
+
+		this.index = new IntIndexMap(n);
+		for (int i = 0; i < n; i++)
+		{
+			index.put(ids[i], i);
+		}
+
+		this.centroid = computeCentroid(this.x, this.y);
+		this.rotatedX = new int[n];
+		this.rotatedY = new int[n];
+		double radAngle = Math.toRadians(globalOrientation == 360 ? 0 : globalOrientation);
+		double cos = Math.cos(radAngle), sin = Math.sin(radAngle);
+		for (int i = 0; i < n; i++)
+		{
+			int px = this.x[i] - centroid.x;
+			int py = this.y[i] - centroid.y;
+			rotatedX[i] = (int)(px * cos - py * sin + centroid.x);
+			rotatedY[i] = (int)(px * sin + py * cos + centroid.y);
+		}
+
+		this.neighbors = new int[n][];
+		int[] found = new int[n];
+		for (int i = 0; i < n; i++)
+		{
+			int count = 0;
+			for (int j = 0; j < n; j++)
+			{
+				if (isNeighbor(this.x[i], this.y[i], this.x[j], this.y[j]))
+				{
+					found[count++] = j;
+				}
+			}
+			neighbors[i] = Arrays.copyOf(found, count);
+		}
+	}
+
+	/**
+	 * Creates a layout model from the <code>JSON</code> returned by the
+	 * "panelLayout" endpoint, which contains both the "layout" and the
+	 * "globalOrientation" objects.
+	 * @param json  the panel layout <code>JSON</code>
+	 * @return  a new layout model
+	 */
+	public static LayoutModel fromJSON(JSONObject json)
+	{
+		JSONObject layout = json.getJSONObject("layout");
+		JSONObject globalOrientation = json.optJSONObject("globalOrientation");
+		JSONArray arr = layout.getJSONArray("positionData");
+		int n = arr.length();
+		int[] ids = new int[n], x = new int[n], y = new int[n], o = new int[n];
+		for (int i = 0; i < n; i++)
+		{
+			JSONObject data = arr.getJSONObject(i);
+			ids[i] = data.getInt("panelId");
+			x[i] = data.getInt("x");
+			y[i] = data.getInt("y");
+			o[i] = data.getInt("o");
+		}
+		return new LayoutModel(ids, x, y, o, layout.optInt("sideLength", -1),
+				globalOrientation != null ? globalOrientation.optInt("value", 0) : 0);
+	}
+
+	/**
+	 * Gets the number of panels in the layout.
+	 * @return  the number of panels
+	 */
+	public int getNumPanels()
+	{
+		return this.ids.length;
+	}
+
+	/**
+	 * Gets the side length of each panel.
+	 * @return  the side length, or -1 if it is unknown
+	 */
+	public int getSideLength()
+	{
+		return this.sideLength;
+	}
+
+	/**
+	 * Gets the global orientation that the rotated coordinates are based on.
+	 * @return  the global orientation
+	 */
+	public int getGlobalOrientation()
+	{
+		return this.globalOrientation;
+	}
+
+	/**
+	 * Gets the centroid (center point) of the layout.
+	 * @return  the centroid of the layout
+	 */
+	public Point getCentroid()
+	{
+		return new Point(this.centroid);
+	}
+
+	/**
+	 * Gets the index of a panel in the layout.
+	 * @param id  the panel id
+	 * @return  the index of the panel, or -1 if no panel has the id
+	 */
+	public int indexOf(int id)
+	{
+		return index.get(id);
+	}
+
+	/**
+	 * Checks if the layout contains a panel.
+	 * @param id  the panel id
+	 * @return  true, if a panel with the id is in the layout
+	 */
+	public boolean contains(int id)
+	{
+		return indexOf(id) != -1;
+	}
+
+	/**
+	 * Gets the id of the panel at an index.
+	 * @param index  the index of the panel
+	 * @return  the panel id
+	 */
+	public int getId(int index)
+	{
+		return this.ids[index];
+	}
+
+	/**
+	 * Gets the original x-value of the panel at an index.
+	 * @param index  the index of the panel
+	 * @return  the x-value
+	 */
+	public int getX(int index)
+	{
+		return this.x[index];
+	}
+
+	/**
+	 * Gets the original y-value of the panel at an index.
+	 * @param index  the index of the panel
+	 * @return  the y-value
+	 */
+	public int getY(int index)
+	{
+		return this.y[index];
+	}
+
+	/**
+	 * Gets the orientation of the panel at an index.
+	 * @param index  the index of the panel
+	 * @return  the orientation
+	 */
+	public int getOrientation(int index)
+	{
+		return this.orientation[index];
+	}
+
+	/**
+	 * Gets the x-value of the panel at an index, rotated
+	 * to match the global orientation.
+	 * @param index  the index of the panel
+	 * @return  the rotated x-value
+	 */
+	public int getRotatedX(int index)
+	{
+		return this.rotatedX[index];
+	}
+
+	/**
+	 * Gets the y-value of the panel at an index, rotated
+	 * to match the global orientation.
+	 * @param index  the index of the panel
+	 * @return  the rotated y-value
+	 */
+	public int getRotatedY(int index)
+	{
+		return this.rotatedY[index];
+	}
+
+	/**
+	 * Gets a copy of the ids of every panel, in index order.
+	 * @return  the panel ids
+	 */
+	public int[] getIds()
+	{
+		return this.ids.clone();
+	}
+
+	/**
+	 * Gets a panel with its original position data.
+	 * @param id  the panel id
+	 * @return  a new <code>Panel</code>, or null if no panel has the id
+	 */
+	public Panel getPanel(int id)
+	{
+		int i = indexOf(id);
+		return i != -1 ? new Panel(ids[i], x[i], y[i], orientation[i]) : null;
+	}
+
+	/**
+	 * Gets every panel with its original position data.
+	 * The panels are new objects that can be modified freely.
+	 * @return  an array of panels
+	 */
+	public Panel[] getPanels()
+	{
+		Panel[] panels = new Panel[ids.length];
+		for (int i = 0; i < panels.length; i++)
+		{
+			panels[i] = new Panel(ids[i], x[i], y[i], orientation[i]);
+		}
+		return panels;
+	}
+
+	/**
+	 * Gets every panel with its position rotated to match the global
+	 * orientation. The panels are new objects that can be modified freely.
+	 * @return  an array of rotated panels
+	 */
+	public Panel[] getPanelsRotated()
+	{
+		Panel[] panels = new Panel[ids.length];
+		for (int i = 0; i < panels.length; i++)
+		{
+			panels[i] = new Panel(ids[i], rotatedX[i], rotatedY[i], orientation[i]);
+		}
+		return panels;
+	}
+
+	/**
+	 * Gets the direct neighbors of a panel.
+	 * @param id  the panel id
+	 * @return  an array of neighboring panels (empty if no panel has the id)
+	 */
+	public Panel[] getNeighbors(int id)
+	{
+		int i = indexOf(id);
+		if (i == -1)
+		{
+			return new Panel[0];
+		}
+		int[] indices = neighbors[i];
+		Panel[] panels = new Panel[indices.length];
+		for (int j = 0; j < indices.length; j++)
+		{
+			int n = indices[j];
+			panels[j] = new Panel(ids[n], x[n], y[n], orientation[n]);
+		}
+		return panels;
+	}
+
+	/**
+	 * Gets the direct neighbors of a panel. If the panel has the same
+	 * id and position as a panel in the layout, the precomputed neighbors
+	 * are returned. Otherwise, the neighbors are found using the
+	 * panel's position.
+	 * @param panel  the panel
+	 * @return  an array of neighboring panels
+	 */
+	public Panel[] getNeighbors(Panel panel)
+	{
+		int i = indexOf(panel.getId());
+		if (i != -1 && x[i] == panel.getX() && y[i] == panel.getY())
+		{
+			return getNeighbors(panel.getId());
+		}
+		return panel.getNeighbors(getPanels());
+	}
+
+	private static boolean isNeighbor(int x1, int y1, int x2, int y2)
+	{
+		return Math.floor(Math.sqrt(Math.pow((x1 - x2), 2) +
+				Math.pow((y1 - y2), 2))) == NEIGHBOR_DISTANCE;
+	}
+
+	private static Point computeCentroid(int[] x, int[] y)
+	{
+		int centroidX = 0, centroidY = 0;
+		int[] xpoints = Arrays.stream(x).distinct().toArray();
+		int[] ypoints = Arrays.stream(y).distinct().toArray();
+		for (int px : xpoints)
+		{
+			centroidX += px;
+		}
+		for (int py : ypoints)
+		{
+			centroidY += py;
+		}
+		if (xpoints.length > 0)
+		{
+			centroidX /= xpoints.length;
+			centroidY /= ypoints.length;
+		}
+		return new Point(centroidX, centroidY);
+	}
+}
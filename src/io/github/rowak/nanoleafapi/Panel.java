@@ -172,6 +172,7 @@ public class Panel extends Position
 	
 	/**
 	 * Gets the direct neighbors of this panel (maximum is 3, minimum is 0).
+	 * The neighbors are looked up in the Aurora's cached <code>LayoutModel</code>.
 	 * @param aurora  the Aurora to get the panels from
 	 * @return  an array of type <code>Panel</code> containing the
 	 * 			direct neighbors of this panel
@@ -180,6 +181,6 @@ public class Panel extends Position
 	public Panel[] getNeighbors(Aurora aurora)
 			throws StatusCodeException, UnauthorizedException
 	{
-		return this.getNeighbors(aurora.panelLayout().getPanels());
+		return aurora.panelLayout().getModel().getNeighbors(this);
 	}
 }
@@ -1,6 +1,9 @@
 package io.github.rowak.nanoleafapi;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.json.JSONArray;
@@ -24,6 +27,11 @@ public class Plugin
 	 * Properties for this local plugin object.
 	 */
 	private Map<Object, Object> properties;
+	/**
+	 * The cached hash code, or 0 if it hasn't been computed
+	 * since the properties last changed.
+	 */
+	private int hash;
 	
 	/**
 	 * Creates a blank plugin.
@@ -42,7 +50,18 @@ public class Plugin
 	 */
 	public static Plugin fromJSON(String json)
 	{
-		JSONObject data = new JSONObject(json);
+		return fromJSON(new JSONObject(json));
+	}
+	
+	/**
+	 * Creates a new <code>Plugin</code> from <code>JSON</code>
+	 * data that has already been parsed.
+	 * @param data  the parsed <code>JSON</code> data
+	 * @return  a new <code>Plugin</code> equivalent
+	 * 			to the <code>JSON</code> data
+	 */
+	static Plugin fromJSON(JSONObject data)
+	{
 		Plugin pl = new Plugin();
 		pl.properties = new HashMap<Object, Object>();
 		for (String property : Plugin.PROPERTIES_NAMES)
@@ -56,6 +75,24 @@ public class Plugin
 		return plugin;
 	}
 	
+	/**
+	 * Decodes the plugins in a <code>requestPlugins</code> response
+	 * in a single pass (see {@link JSONArrayReader}).
+	 * @param json  the response
+	 * @return  the plugins
+	 */
+	static Plugin[] fromPluginsJSON(String json)
+	{
+		JSONArrayReader reader = new JSONArrayReader(json, "plugins");
+		List<Plugin> plugins = new ArrayList<Plugin>();
+		JSONObject data;
+		while ((data = reader.next()) != null)
+		{
+			plugins.add(fromJSON(data));
+		}
+		return plugins.toArray(new Plugin[plugins.size()]);
+	}
+	
 	/**
 	 * Properly convert a plugin object to <code>JSON</code> format.
 	 * @return  the plugin in <code>JSON</code> format
@@ -83,12 +120,61 @@ public class Plugin
 	}
 	
 	/**
-	 * Gets a map of properties belonging to this plugin.
-	 * @return  the properties of this plugin
+	 * Checks if two plugins are equal based on their properties.
+	 * The order of the properties and the representation of numbers
+	 * in the <code>JSON</code> data (for example, 2 or 2.0) don't matter.
+	 * @param other  the plugin to compare this plugin to
+	 * @return  true, if the plugins are equal
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (this == other)
+		{
+			return true;
+		}
+		if (!(other instanceof Plugin))
+		{
+			return false;
+		}
+		Plugin o = (Plugin)other;
+		return this.hashCode() == o.hashCode() &&
+				JSONValues.equal(this.properties, o.properties);
+	}
+	
+	/**
+	 * Gets a hash code for this plugin that is consistent with
+	 * {@link #equals(Object)}. The hash code is cached until
+	 * the plugin is changed by one of its setters.
+	 * @return  the hash code
+	 */
+	@Override
+	public int hashCode()
+	{
+		int h = this.hash;
+		if (h == 0)
+		{
+			h = JSONValues.hash(this.properties);
+			this.hash = h;
+		}
+		return h;
+	}
+	
+	/**
+	 * Gets a map of properties belonging to this plugin. The map is an
+	 * unmodifiable copy; use the setters to change the plugin.
+	 * @return  an unmodifiable map of the properties of this plugin
 	 */
 	public Map<Object, Object> getProperties()
 	{
-		return this.properties;
+		Map<Object, Object> copy = new HashMap<Object, Object>();
+		for (Map.Entry<Object, Object> entry : properties.entrySet())
+		{
+			Object value = entry.getValue();
+			copy.put(entry.getKey(), value instanceof JSONArray ?
+					new JSONArray(value.toString()) : value);
+		}
+		return Collections.unmodifiableMap(copy);
 	}
 	
 	/**
@@ -107,6 +193,7 @@ public class Plugin
 	public void setUuid(String uuid)
 	{
 		properties.put("uuid", uuid);
+		hash = 0;
 	}
 	
 	/**
@@ -125,6 +212,7 @@ public class Plugin
 	public void setName(String name)
 	{
 		properties.put("name", name);
+		hash = 0;
 	}
 	
 	/**
@@ -143,6 +231,7 @@ public class Plugin
 	public void setDescription(String description)
 	{
 		properties.put("description", description);
+		hash = 0;
 	}
 	
 	/**
@@ -161,6 +250,7 @@ public class Plugin
 	public void setAuthor(String author)
 	{
 		properties.put("author", author);
+		hash = 0;
 	}
 	
 	/**
@@ -179,6 +269,7 @@ public class Plugin
 	public void setType(String type)
 	{
 		properties.put("type", type);
+		hash = 0;
 	}
 	
 	/**
@@ -203,17 +294,19 @@ public class Plugin
 	public void setTags(String[] tags)
 	{
 		properties.put("tags", new JSONArray(tags));
+		hash = 0;
 	}
 	
 	/**
 	 * Gets the plugin configuration for this plugin as a JSONArray.<br>
 	 * <b>Note: this uses a more raw type since it is not
 	 * fully supported by this api.</b>
-	 * @return  the plugin configuration
+	 * @return  a copy of the plugin configuration
 	 */
 	public JSONArray getPluginConfig()
 	{
-		return (JSONArray)properties.get("pluginConfig");
+		JSONArray config = (JSONArray)properties.get("pluginConfig");
+		return config != null ? new JSONArray(config.toString()) : null;
 	}
 	
 	/**
@@ -225,5 +318,6 @@ public class Plugin
 	public void setPluginConfig(JSONArray config)
 	{
 		properties.put("pluginConfig", new JSONArray(config.toString()));
+		hash = 0;
 	}
 }
@@ -0,0 +1,218 @@
+package io.github.rowak.nanoleafapi;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import org.json.JSONException;
+
+/**
+ * Stores the plugin catalogs of Aurora controllers on disk, so that
+ * {@link Aurora.Effects#getPlugins()} doesn't have to download a catalog
+ * again after a restart. The plugins that are installed on a controller
+ * only change with its firmware, so each catalog is stored under the
+ * controller's serial number and firmware version, and a firmware update
+ * makes the old catalog obsolete.
+ * <p>
+ * The catalogs are stored in a directory with one subdirectory per
+ * controller. Errors while reading or writing the cache are ignored
+ * (the catalog is downloaded instead).
+ * <pre>
+ * aurora.setPluginCache(PluginCache.getDefault());
+ * Plugin[] plugins = aurora.effects().getPlugins();
+ * </pre>
+ */
+public class PluginCache
+{
+	private final Path directory;
+
+	/**
+	 * Creates a plugin cache.
+	 * @param directory  the directory to store the catalogs in
+	 * 					 (it is created when the first catalog is stored)
+	 */
+	public PluginCache(Path directory)
+	{
+		this.directory = directory;
+	}
+
+	/**
+	 * Creates a plugin cache in the <code>.nanoleaf/plugins</code>
+	 * directory of the user's home directory.
+	 * @return  the plugin cache
+	 */
+	public static PluginCache getDefault()
+	{
+		return new PluginCache(Paths.get(System.getProperty("user.home"),
+				".nanoleaf", "plugins"));
+	}
+
+	/**
+	 * Gets the directory that the catalogs are stored in.
+	 * @return  the cache directory
+	 */
+	public Path getDirectory()
+	{
+		return this.directory;
+	}
+
+	/**
+	 * Loads the catalog of a controller.
+	 * @param serialNumber  the serial number of the controller
+	 * @param firmwareVersion  the firmware version of the controller
+	 * @return  the plugins in the catalog, or null if the catalog
+	 * 			isn't cached (or can't be read)
+	 */
+	public Plugin[] load(String serialNumber, String firmwareVersion)
+	{
+		Path file = getFile(serialNumber, firmwareVersion);
+		try
+		{
+			String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+			return Plugin.fromPluginsJSON(json);
+		}
+		catch (NoSuchFileException nsfe)
+		{
+			return null;
+		}
+		catch (IOException | JSONException e)
+		{
+			// A corrupt catalog is downloaded again
+			delete(file);
+			return null;
+		}
+	}
+
+	/**
+	 * Removes the cached catalogs of a controller.
+	 * @param serialNumber  the serial number of the controller
+	 */
+	public void remove(String serialNumber)
+	{
+		Path dir = directory.resolve(toFileName(serialNumber));
+		deleteAll(dir, null);
+		delete(dir);
+	}
+
+	/**
+	 * Removes the cached catalogs of every controller.
+	 */
+	public void clear()
+	{
+		try (DirectoryStream<Path> dirs = Files.newDirectoryStream(directory))
+		{
+			for (Path dir : dirs)
+			{
+				if (Files.isDirectory(dir))
+				{
+					deleteAll(dir, null);
+					delete(dir);
+				}
+			}
+		}
+		catch (IOException ioe)
+		{
+			// ignore
+		}
+	}
+
+	/**
+	 * Stores the catalog of a controller, replacing the catalogs
+	 * of its other firmware versions.
+	 * @param serialNumber  the serial number of the controller
+	 * @param firmwareVersion  the firmware version of the controller
+	 * @param json  the <code>requestPlugins</code> response
+	 */
+	void store(String serialNumber, String firmwareVersion, String json)
+	{
+		Path file = getFile(serialNumber, firmwareVersion);
+		Path dir = file.getParent();
+		try
+		{
+			Files.createDirectories(dir);
+			// Write to a temporary file first, so that a crash
+			// never leaves a partial catalog behind
+			Path temp = Files.createTempFile(dir, "plugins", ".tmp");
+			try
+			{
+				Files.write(temp, json.getBytes(StandardCharsets.UTF_8));
+				try
+				{
+					Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+							StandardCopyOption.ATOMIC_MOVE);
+				}
+				catch (AtomicMoveNotSupportedException amnse)
+				{
+					Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			finally
+			{
+				delete(temp);
+			}
+		}
+		catch (IOException ioe)
+		{
+			return;
+		}
+		deleteAll(dir, file);
+	}
+
+	private Path getFile(String serialNumber, String firmwareVersion)
+	{
+		return directory.resolve(toFileName(serialNumber))
+				.resolve(toFileName(firmwareVersion) + ".json");
+	}
+
+	/**
+	 * Deletes every file in a directory.
+	 * @param dir  the directory
+	 * @param keep  a file to keep, or null
+	 */
+	private static void deleteAll(Path dir, Path keep)
+	{
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir))
+		{
+			for (Path file : files)
+			{
+				if (!file.equals(keep))
+				{
+					delete(file);
+				}
+			}
+		}
+		catch (IOException ioe)
+		{
+			// ignore
+		}
+	}
+
+	private static void delete(Path file)
+	{
+		try
+		{
+			Files.deleteIfExists(file);
+		}
+		catch (IOException ioe)
+		{
+			// ignore
+		}
+	}
+
+	/**
+	 * Replaces the characters that can't safely be used in a file name.
+	 * @param value  a serial number or firmware version
+	 * @return  the file name
+	 */
+	private static String toFileName(String value)
+	{
+		String name = String.valueOf(value).replaceAll("[^A-Za-z0-9._-]", "_");
+		return name.startsWith(".") ? "_" + name.substring(1) : name;
+	}
+}
@@ -1,5 +1,6 @@
 package io.github.rowak.nanoleafapi;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -24,6 +25,11 @@ public class PluginOptions
 	 * Properties for this local plugin options object.
 	 */
 	private Map<Object, Object> properties;
+	/**
+	 * The cached hash code, or 0 if it hasn't been computed
+	 * since the properties last changed.
+	 */
+	private int hash;
 	
 	/**
 	 * Creates a blank plugin options object.
@@ -91,14 +97,58 @@ public class PluginOptions
 		return toJSON();
 	}
 	
+	/**
+	 * Checks if two plugin options objects are equal based on their properties.
+	 * The order of the properties and the representation of numbers
+	 * in the <code>JSON</code> data (for example, 2 or 2.0) don't matter.
+	 * @param other  the plugin options object to compare this object to
+	 * @return  true, if the plugin options objects are equal
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (this == other)
+		{
+			return true;
+		}
+		if (!(other instanceof PluginOptions))
+		{
+			return false;
+		}
+		PluginOptions o = (PluginOptions)other;
+		return this.hashCode() == o.hashCode() &&
+				JSONValues.equal(this.properties, o.properties);
+	}
+	
+	/**
+	 * Gets a hash code for this plugin options object that is consistent with
+	 * {@link #equals(Object)}. The hash code is cached until
+	 * the object is changed by one of its setters.
+	 * @return  the hash code
+	 */
+	@Override
+	public int hashCode()
+	{
+		int h = this.hash;
+		if (h == 0)
+		{
+			h = JSONValues.hash(this.properties);
+			this.hash = h;
+		}
+		return h;
+	}
+	
 	/**
 	 * Gets a map of properties belonging to
-	 * this plugin options object.
-	 * @return  the properties of this plugin options object
+	 * this plugin options object. The map is an unmodifiable
+	 * copy; use the setters to change the options.
+	 * @return  an unmodifiable map of the properties
+	 * 			of this plugin options object
 	 */
 	public Map<Object, Object> getProperties()
 	{
-		return this.properties;
+		return Collections.unmodifiableMap(
+				new HashMap<Object, Object>(this.properties));
 	}
 	
 	/**
@@ -128,6 +178,7 @@ public class PluginOptions
 	public void setTransTime(int transTime)
 	{
 		properties.put("transTime", transTime);
+		hash = 0;
 	}
 	
 	/**
@@ -153,6 +204,7 @@ public class PluginOptions
 	public void setLoop(boolean loop)
 	{
 		properties.put("loop", loop);
+		hash = 0;
 	}
 	
 	/**
@@ -173,6 +225,7 @@ public class PluginOptions
 	public void setLinearDirection(String direction)
 	{
 		properties.put("linDirection", direction);
+		hash = 0;
 	}
 	
 	/**
@@ -191,6 +244,7 @@ public class PluginOptions
 	public void setRadialDirection(String direction)
 	{
 		properties.put("radDirection", direction);
+		hash = 0;
 	}
 	
 	/**
@@ -213,6 +267,7 @@ public class PluginOptions
 	public void setRotationDirection(String direction)
 	{
 		properties.put("rotDirection", direction);
+		hash = 0;
 	}
 	
 	/**
@@ -242,6 +297,7 @@ public class PluginOptions
 	public void setDelayTime(int delayTime)
 	{
 		properties.put("delayTime", delayTime);
+		hash = 0;
 	}
 	
 	/**
@@ -269,6 +325,7 @@ public class PluginOptions
 	public void setNumColorsPerFrame(int nColorsPerFrame)
 	{
 		properties.put("nColorsPerFrame", nColorsPerFrame);
+		hash = 0;
 	}
 	
 	/**
@@ -294,5 +351,6 @@ public class PluginOptions
 	public void setMainColorProbability(double probability)
 	{
 		properties.put("mainColorProb", probability);
+		hash = 0;
 	}
 }
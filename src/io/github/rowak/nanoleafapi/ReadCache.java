@@ -0,0 +1,265 @@
+package io.github.rowak.nanoleafapi;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An opt-in cache for the responses of Aurora getters. Every getter reads
+ * a single API endpoint (for example: "state/brightness/value"), and the
+ * cache stores the response body of each endpoint for a configurable
+ * time to live (TTL).<br>
+ * TTLs are set per field. A TTL that is set for "state/on" applies to
+ * "state/on/value", and a TTL that is set for "state" applies to every
+ * state endpoint that doesn't have a more specific TTL. Endpoints without
+ * a TTL are never cached.<br>
+ * The minimum and maximum ranges (and the panel side length) never change
+ * while the Aurora is running, so they are cached permanently by default.
+ * All other cached values under an endpoint are invalidated as soon as a
+ * setter successfully writes to it. Effect write commands that only read
+ * data ("request", "requestAll" and "requestPlugins") don't invalidate
+ * anything.
+ * <p>
+ * The cache is disabled by default. Use {@link Aurora#getReadCache()}
+ * to enable and configure it.
+ */
+public class ReadCache
+{
+	/**
+	 * A TTL that never expires. Permanent values are only removed
+	 * by {@link #invalidateAll()}.
+	 */
+	public static final long PERMANENT = -1;
+
+	/**
+	 * A TTL that disables caching.
+	 */
+	public static final long NONE = 0;
+
+	private static final String[] PERMANENT_ENDPOINTS =
+	{
+		"state/brightness/max", "state/brightness/min",
+		"state/hue/max", "state/hue/min",
+		"state/sat/max", "state/sat/min",
+		"state/ct/max", "state/ct/min",
+		"panelLayout/globalOrientation/max", "panelLayout/globalOrientation/min",
+		"panelLayout/layout/sideLength"
+	};
+
+	private volatile boolean enabled;
+	private final Map<String, Long> timesToLive;
+	private final Map<String, Entry> entries;
+	private final AtomicLong generation;
+	private final LongAdder hits;
+	private final LongAdder misses;
+
+	/**
+	 * Creates a new (disabled) cache with the default TTLs.
+	 */
+	ReadCache()
+	{
+		this.timesToLive = new ConcurrentHashMap<String, Long>();
+		this.entries = new ConcurrentHashMap<String, Entry>();
+		this.generation = new AtomicLong();
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		for (String endpoint : PERMANENT_ENDPOINTS)
+		{
+			timesToLive.put(endpoint, PERMANENT);
+		}
+	}
+
+	/**
+	 * Checks if the cache is enabled.
+	 * @return  true, if the cache is enabled
+	 */
+	public boolean isEnabled()
+	{
+		return this.enabled;
+	}
+
+	/**
+	 * Enables or disables the cache. Disabling the cache
+	 * also removes every cached value.
+	 * @param enabled  whether the cache should be used
+	 */
+	public void setEnabled(boolean enabled)
+	{
+		this.enabled = enabled;
+		if (!enabled)
+		{
+			invalidateAll();
+		}
+	}
+
+	/**
+	 * Gets the TTL that applies to an endpoint.
+	 * @param endpoint  the endpoint (for example: "state/on/value")
+	 * @return  the TTL in milliseconds, {@link #PERMANENT}, or {@link #NONE}
+	 */
+	public long getTimeToLive(String endpoint)
+	{
+		String key = endpoint;
+		Long ttl = timesToLive.get(key);
+		int slash;
+		while (ttl == null && (slash = key.lastIndexOf('/')) != -1)
+		{
+			key = key.substring(0, slash);
+			ttl = timesToLive.get(key);
+		}
+		return ttl != null ? ttl : NONE;
+	}
+
+	/**
+	 * Sets the TTL for an endpoint and all of the endpoints below it
+	 * that don't have a TTL of their own.
+	 * @param endpoint  the endpoint (for example: "state/on" or "state")
+	 * @param timeToLive  the TTL in milliseconds, {@link #PERMANENT}, or {@link #NONE}
+	 */
+	public void setTimeToLive(String endpoint, long timeToLive)
+	{
+		if (timeToLive < PERMANENT)
+		{
+			throw new IllegalArgumentException("Invalid time to live: " + timeToLive);
+		}
+		timesToLive.put(endpoint, timeToLive);
+		remove(endpoint, true);
+	}
+
+	/**
+	 * Removes the TTL that was set for an endpoint, so that the
+	 * TTL of its parent endpoint (if any) applies instead.
+	 * @param endpoint  the endpoint
+	 */
+	public void clearTimeToLive(String endpoint)
+	{
+		timesToLive.remove(endpoint);
+		remove(endpoint, true);
+	}
+
+	/**
+	 * Removes the cached values for an endpoint and all of the endpoints
+	 * below it, except for permanent values.
+	 * @param endpoint  the endpoint (for example: "state/brightness")
+	 */
+	public void invalidate(String endpoint)
+	{
+		remove(endpoint, false);
+	}
+
+	/**
+	 * Removes every cached value, including permanent values.
+	 */
+	public void invalidateAll()
+	{
+		generation.incrementAndGet();
+		entries.clear();
+	}
+
+	/**
+	 * Gets the number of getter calls that were answered from the cache.
+	 * @return  the number of cache hits
+	 */
+	public long getHitCount()
+	{
+		return hits.sum();
+	}
+
+	/**
+	 * Gets the number of getter calls for cacheable endpoints that
+	 * had to be sent to the Aurora.
+	 * @return  the number of cache misses
+	 */
+	public long getMissCount()
+	{
+		return misses.sum();
+	}
+
+	/**
+	 * Resets the hit and miss counters to zero.
+	 */
+	public void resetStatistics()
+	{
+		hits.reset();
+		misses.reset();
+	}
+
+	/**
+	 * Gets the current generation of the cache. The generation changes
+	 * every time values are invalidated, which allows a response that was
+	 * requested <i>before</i> a write to be discarded instead of cached.
+	 * @return  the current generation
+	 */
+	long generation()
+	{
+		return generation.get();
+	}
+
+	/**
+	 * Gets the cached response body of an endpoint.
+	 * @param endpoint  the endpoint
+	 * @return  the cached body, or null if the endpoint is not cached
+	 */
+	String get(String endpoint)
+	{
+		if (!enabled || getTimeToLive(endpoint) == NONE)
+		{
+			return null;
+		}
+		Entry entry = entries.get(endpoint);
+		if (entry != null && (entry.permanent || System.nanoTime() - entry.expires < 0))
+		{
+			hits.increment();
+			return entry.body;
+		}
+		misses.increment();
+		return null;
+	}
+
+	/**
+	 * Stores the response body of an endpoint, unless the endpoint
+	 * has no TTL or values were invalidated since <code>generation</code>.
+	 * @param endpoint  the endpoint
+	 * @param body  the response body
+	 * @param generation  the generation from before the request was sent
+	 */
+	void put(String endpoint, String body, long generation)
+	{
+		long ttl = getTimeToLive(endpoint);
+		if (!enabled || ttl == NONE)
+		{
+			return;
+		}
+		Entry entry = new Entry(body, ttl == PERMANENT,
+				System.nanoTime() + ttl * 1000000L);
+		entries.put(endpoint, entry);
+		if (this.generation.get() != generation)
+		{
+			// A write happened while the request was in progress
+			entries.remove(endpoint, entry);
+		}
+	}
+
+	private void remove(String endpoint, boolean includePermanent)
+	{
+		generation.incrementAndGet();
+		String prefix = endpoint + "/";
+		entries.entrySet().removeIf(e -> (includePermanent || !e.getValue().permanent) &&
+				(e.getKey().equals(endpoint) || e.getKey().startsWith(prefix)));
+	}
+
+	private static class Entry
+	{
+		final String body;
+		final boolean permanent;
+		final long expires;
+
+		Entry(String body, boolean permanent, long expires)
+		{
+			this.body = body;
+			this.permanent = permanent;
+			this.expires = expires;
+		}
+	}
+}
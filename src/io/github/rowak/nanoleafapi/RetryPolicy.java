@@ -0,0 +1,118 @@
+package io.github.rowak.nanoleafapi;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides how often and how quickly failed requests to an Aurora are retried.
+ * Only idempotent requests (GET requests) are retried, and only if they fail
+ * without a response (for example: if the connection times out) or with
+ * a 5xx status code. Requests that change the Aurora, such as
+ * <code>increaseBrightness()</code>, are never retried because they could
+ * be applied twice.
+ * <p>
+ * The delay before each retry grows exponentially, starting at the initial
+ * backoff and doubling until it reaches the maximum backoff. A random jitter
+ * of up to half of the delay is subtracted, so that many clients that failed
+ * at the same time don't all retry at the same time.
+ */
+public class RetryPolicy
+{
+	/**
+	 * A policy that never retries (the default).
+	 */
+	public static final RetryPolicy NONE = new RetryPolicy(0, 0, 0);
+
+	/**
+	 * The default initial backoff in milliseconds.
+	 */
+	public static final long DEFAULT_INITIAL_BACKOFF = 100;
+
+	/**
+	 * The default maximum backoff in milliseconds.
+	 */
+	public static final long DEFAULT_MAX_BACKOFF = 2000;
+
+	private int maxRetries;
+	private long initialBackoff;
+	private long maxBackoff;
+
+	/**
+	 * Creates a new retry policy with the default backoff.
+	 * @param maxRetries  the maximum number of retries for a single request
+	 */
+	public RetryPolicy(int maxRetries)
+	{
+		this(maxRetries, DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF);
+	}
+
+	/**
+	 * Creates a new retry policy.
+	 * @param maxRetries  the maximum number of retries for a single request
+	 * @param initialBackoff  the delay before the first retry in milliseconds
+	 * @param maxBackoff  the maximum delay between retries in milliseconds
+	 */
+	public RetryPolicy(int maxRetries, long initialBackoff, long maxBackoff)
+	{
+		if (maxRetries < 0 || initialBackoff < 0 || maxBackoff < initialBackoff)
+		{
+			throw new IllegalArgumentException("Invalid retry policy");
+		}
+		this.maxRetries = maxRetries;
+		this.initialBackoff = initialBackoff;
+		this.maxBackoff = maxBackoff;
+	}
+
+	/**
+	 * Gets the maximum number of retries for a single request.
+	 * @return  the maximum number of retries
+	 */
+	public int getMaxRetries()
+	{
+		return this.maxRetries;
+	}
+
+	/**
+	 * Gets the delay before the first retry.
+	 * @return  the initial backoff in milliseconds
+	 */
+	public long getInitialBackoff()
+	{
+		return this.initialBackoff;
+	}
+
+	/**
+	 * Gets the maximum delay between retries.
+	 * @return  the maximum backoff in milliseconds
+	 */
+	public long getMaxBackoff()
+	{
+		return this.maxBackoff;
+	}
+
+	/**
+	 * Checks if a request can be retried.
+	 * @param method  the request method
+	 * @param retries  the number of times that the request has already been retried
+	 * @return  true, if the request should be retried
+	 */
+	public boolean canRetry(String method, int retries)
+	{
+		return retries < maxRetries && method.equals("GET");
+	}
+
+	/**
+	 * Gets the (jittered) delay before a retry.
+	 * @param retries  the number of times that the request has already been retried
+	 * @return  the delay in milliseconds
+	 */
+	public long getBackoff(int retries)
+	{
+		long delay = initialBackoff << Math.min(retries, 30);
+		if (delay > maxBackoff || delay < 0)
+		{
+			delay = maxBackoff;
+		}
+		long half = delay / 2;
+		return delay - (half > 0 ? ThreadLocalRandom.current().nextLong(half + 1) : 0);
+	}
+}
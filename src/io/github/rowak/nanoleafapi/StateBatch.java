@@ -0,0 +1,17 @@
+package io.github.rowak.nanoleafapi;
+
+/**
+ * A group of <code>Aurora.State</code> setter calls that are
+ * sent to the Aurora as a single request.
+ * @see Aurora.State#batch(StateBatch)
+ */
+@FunctionalInterface
+public interface StateBatch
+{
+	/**
+	 * Calls the state setters that should be sent together.
+	 * @param state  the Aurora's <code>State</code> object
+	 * @throws StatusCodeException  if one of the calls fails
+	 */
+	void apply(Aurora.State state) throws StatusCodeException;
+}
@@ -0,0 +1,91 @@
+package io.github.rowak.nanoleafapi;
+
+/**
+ * The wire formats of the external streaming (external control) protocol.
+ */
+public enum StreamFormat
+{
+	/**
+	 * The original format used by Aurora controllers. The panel count,
+	 * panel ids and transition times are one byte each, and every panel
+	 * also carries a frame count (always 1).
+	 * <pre>
+	 * nPanels(1) [panelId(1) nFrames(1) R(1) G(1) B(1) W(1) transTime(1)]...
+	 * </pre>
+	 */
+	V1("v1", 1, 7, 0xFF, 0xFF),
+
+	/**
+	 * The format used by Canvas, Shapes and newer controllers. The panel
+	 * count, panel ids and transition times are two bytes each (big-endian),
+	 * so panel ids above 255 can be addressed, and there is no frame count.
+	 * <pre>
+	 * nPanels(2) [panelId(2) R(1) G(1) B(1) W(1) transTime(2)]...
+	 * </pre>
+	 */
+	V2("v2", 2, 8, 0xFFFF, 0xFFFF);
+
+	/**
+	 * The port that controllers listen on for the v2 format.
+	 */
+	public static final int V2_PORT = 60222;
+
+	private String name;
+	private int headerSize, panelSize, maxPanelId, maxTransitionTime;
+
+	private StreamFormat(String name, int headerSize, int panelSize,
+			int maxPanelId, int maxTransitionTime)
+	{
+		this.name = name;
+		this.headerSize = headerSize;
+		this.panelSize = panelSize;
+		this.maxPanelId = maxPanelId;
+		this.maxTransitionTime = maxTransitionTime;
+	}
+
+	/**
+	 * Gets the name that the controller uses for this format
+	 * (the <code>extControlVersion</code>).
+	 * @return  the name of the format
+	 */
+	public String getName()
+	{
+		return this.name;
+	}
+
+	/**
+	 * Gets the size of the frame header (the panel count).
+	 * @return  the header size in bytes
+	 */
+	public int getHeaderSize()
+	{
+		return this.headerSize;
+	}
+
+	/**
+	 * Gets the size of the data for each panel.
+	 * @return  the panel size in bytes
+	 */
+	public int getPanelSize()
+	{
+		return this.panelSize;
+	}
+
+	/**
+	 * Gets the largest panel id (and panel count) that can be encoded.
+	 * @return  the largest panel id
+	 */
+	public int getMaxPanelId()
+	{
+		return this.maxPanelId;
+	}
+
+	/**
+	 * Gets the largest transition time that can be encoded.
+	 * @return  the largest transition time (in units of 100ms)
+	 */
+	public int getMaxTransitionTime()
+	{
+		return this.maxTransitionTime;
+	}
+}
@@ -0,0 +1,241 @@
+package io.github.rowak.nanoleafapi;
+
+import java.util.Arrays;
+
+/**
+ * A reusable buffer of panel updates for external streaming. Each panel
+ * appears in the frame at most once: setting a panel that is already in
+ * the frame replaces its color and transition time (the last write wins).
+ * Panels are stored in primitive arrays in the order that they were first
+ * added, so a frame can be filled, sent and cleared repeatedly without
+ * allocating once it has reached its largest size.
+ * <p>
+ * A frame is not thread-safe.
+ */
+public class StreamFrame
+{
+	private int[] ids, red, green, blue, white, transitionTimes;
+	private int size;
+	private IntIndexMap index;
+
+	/**
+	 * Creates a new, empty frame.
+	 */
+	public StreamFrame()
+	{
+		this(32);
+	}
+
+	/**
+	 * Creates a new, empty frame.
+	 * @param capacity  the number of panels that the frame can
+	 * 					hold without growing
+	 */
+	public StreamFrame(int capacity)
+	{
+		capacity = Math.max(capacity, 1);
+		this.ids = new int[capacity];
+		this.red = new int[capacity];
+		this.green = new int[capacity];
+		this.blue = new int[capacity];
+		this.white = new int[capacity];
+		this.transitionTimes = new int[capacity];
+		this.index = new IntIndexMap(capacity);
+	}
+
+	/**
+	 * Sets the color of a panel.
+	 * @param panelId  the id of the panel
+	 * @param red  the red RGBW value
+	 * @param green  the green RGBW value
+	 * @param blue  the blue RGBW value
+	 * @param white  the white RGBW value
+	 * @param transitionTime  the time to transition to this color
+	 * 						  (in units of 100ms)
+	 */
+	public void setPanel(int panelId, int red, int green,
+			int blue, int white, int transitionTime)
+	{
+		int i = index.get(panelId);
+		if (i == -1)
+		{
+			if (size == ids.length)
+			{
+				grow();
+			}
+			i = size++;
+			ids[i] = panelId;
+			index.put(panelId, i);
+		}
+		this.red[i] = red;
+		this.green[i] = green;
+		this.blue[i] = blue;
+		this.white[i] = white;
+		this.transitionTimes[i] = transitionTime;
+	}
+
+	/**
+	 * Sets the color of a panel.
+	 * @param panelId  the id of the panel
+	 * @param color  the color
+	 * @param transitionTime  the time to transition to this color
+	 * 						  (in units of 100ms)
+	 */
+	public void setPanel(int panelId, Color color, int transitionTime)
+	{
+		setPanel(panelId, color.getRed(), color.getGreen(),
+				color.getBlue(), 0, transitionTime);
+	}
+
+	/**
+	 * Copies every panel of another frame into this frame. Panels
+	 * that are in both frames are replaced.
+	 * @param frame  the frame to copy from
+	 */
+	public void setAll(StreamFrame frame)
+	{
+		for (int i = 0; i < frame.size; i++)
+		{
+			setPanel(frame.ids[i], frame.red[i], frame.green[i],
+					frame.blue[i], frame.white[i], frame.transitionTimes[i]);
+		}
+	}
+
+	/**
+	 * Gets the number of panels in the frame.
+	 * @return  the number of panels
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Checks if the frame contains any panels.
+	 * @return  true, if the frame is empty
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Gets the position of a panel in the frame.
+	 * @param panelId  the id of the panel
+	 * @return  the position of the panel, or -1 if it is not in the frame
+	 */
+	public int indexOf(int panelId)
+	{
+		return index.get(panelId);
+	}
+
+	/**
+	 * Gets the id of the panel at a position.
+	 * @param i  the position in the frame
+	 * @return  the panel id
+	 */
+	public int getId(int i)
+	{
+		return ids[i];
+	}
+
+	/**
+	 * Gets the red RGBW value of the panel at a position.
+	 * @param i  the position in the frame
+	 * @return  the red value
+	 */
+	public int getRed(int i)
+	{
+		return red[i];
+	}
+
+	/**
+	 * Gets the green RGBW value of the panel at a position.
+	 * @param i  the position in the frame
+	 * @return  the green value
+	 */
+	public int getGreen(int i)
+	{
+		return green[i];
+	}
+
+	/**
+	 * Gets the blue RGBW value of the panel at a position.
+	 * @param i  the position in the frame
+	 * @return  the blue value
+	 */
+	public int getBlue(int i)
+	{
+		return blue[i];
+	}
+
+	/**
+	 * Gets the white RGBW value of the panel at a position.
+	 * @param i  the position in the frame
+	 * @return  the white value
+	 */
+	public int getWhite(int i)
+	{
+		return white[i];
+	}
+
+	/**
+	 * Gets the transition time of the panel at a position.
+	 * @param i  the position in the frame
+	 * @return  the transition time (in units of 100ms)
+	 */
+	public int getTransitionTime(int i)
+	{
+		return transitionTimes[i];
+	}
+
+	/**
+	 * Removes every panel from the frame.
+	 */
+	public void clear()
+	{
+		size = 0;
+		index.clear();
+	}
+
+	int[] ids()
+	{
+		return ids;
+	}
+
+	int[] red()
+	{
+		return red;
+	}
+
+	int[] green()
+	{
+		return green;
+	}
+
+	int[] blue()
+	{
+		return blue;
+	}
+
+	int[] white()
+	{
+		return white;
+	}
+
+	int[] transitionTimes()
+	{
+		return transitionTimes;
+	}
+
+	private void grow()
+	{
+		int capacity = ids.length * 2;
+		ids = Arrays.copyOf(ids, capacity);
+		red = Arrays.copyOf(red, capacity);
+		green = Arrays.copyOf(green, capacity);
+		blue = Arrays.copyOf(blue, capacity);
+		white = Arrays.copyOf(white, capacity);
+		transitionTimes = Arrays.copyOf(transitionTimes, capacity);
+	}
+}
@@ -0,0 +1,258 @@
+package io.github.rowak.nanoleafapi;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes external streaming frames into a reusable direct
+ * <code>ByteBuffer</code>. Panel data is written straight from primitive
+ * values or arrays, so once the buffer is large enough, encoding a frame
+ * doesn't allocate any objects. Frames can be encoded in either of the
+ * {@link StreamFormat}s; the v1 format is used by default.
+ * <p>
+ * Every call to <code>encode</code> overwrites the previous frame, and the
+ * returned buffer is only valid until the next call. An encoder is not
+ * thread-safe.
+ */
+public class StreamFrameEncoder
+{
+	/**
+	 * The default capacity of the buffer in bytes.
+	 */
+	public static final int DEFAULT_CAPACITY = 2048;
+
+	/**
+	 * The largest datagram that is sent in one piece. 1472 bytes is the
+	 * UDP payload that fits in a standard 1500 byte Ethernet frame, so a
+	 * datagram of this size is never fragmented on the way to the Aurora.
+	 */
+	public static final int MAX_DATAGRAM_SIZE = 1472;
+
+	private ByteBuffer buffer;
+	private StreamFormat format = StreamFormat.V1;
+
+	/**
+	 * Creates a new encoder with the default capacity.
+	 */
+	public StreamFrameEncoder()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new encoder.
+	 * @param capacity  the initial capacity of the buffer in bytes
+	 */
+	public StreamFrameEncoder(int capacity)
+	{
+		this.buffer = ByteBuffer.allocateDirect(capacity);
+	}
+
+	/**
+	 * Gets the format that frames are encoded in.
+	 * @return  the wire format
+	 */
+	public StreamFormat getFormat()
+	{
+		return this.format;
+	}
+
+	/**
+	 * Sets the format that frames are encoded in.
+	 * @param format  the wire format
+	 */
+	public void setFormat(StreamFormat format)
+	{
+		this.format = format;
+	}
+
+	/**
+	 * Gets the size of an encoded frame.
+	 * @param panels  the number of panels in the frame
+	 * @return  the size of the frame in bytes
+	 */
+	public int getFrameSize(int panels)
+	{
+		return format.getHeaderSize() + panels * format.getPanelSize();
+	}
+
+	/**
+	 * Gets the largest number of panels that fit in one datagram. The
+	 * limit comes from both the size of the panel count field and
+	 * {@link #MAX_DATAGRAM_SIZE}.
+	 * @return  the number of panels
+	 */
+	public int getMaxPanelsPerDatagram()
+	{
+		return Math.min(format.getMaxPanelId(), (MAX_DATAGRAM_SIZE -
+				format.getHeaderSize()) / format.getPanelSize());
+	}
+
+	/**
+	 * Encodes a frame that updates a single panel.
+	 * @param panelId  the id of the panel
+	 * @param red  the red RGBW value
+	 * @param green  the green RGBW value
+	 * @param blue  the blue RGBW value
+	 * @param white  the white RGBW value
+	 * @param transitionTime  the transition time (in units of 100ms)
+	 * @return  the encoded frame, ready to be sent
+	 * @throws IllegalArgumentException  if the panel id, an RGBW value or
+	 * 									 the transition time is out of range
+	 * 									 for the format
+	 */
+	public ByteBuffer encode(int panelId, int red, int green,
+			int blue, int white, int transitionTime)
+	{
+		begin(1);
+		putPanel(panelId, red, green, blue, white, transitionTime);
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Encodes a frame that updates several panels.
+	 * @param count  the number of panels (the first <code>count</code>
+	 * 				 elements of each array are used)
+	 * @param ids  the panel ids
+	 * @param red  the red RGBW values
+	 * @param green  the green RGBW values
+	 * @param blue  the blue RGBW values
+	 * @param white  the white RGBW values
+	 * @param transitionTimes  the transition times (in units of 100ms)
+	 * @return  the encoded frame, ready to be sent
+	 * @throws IllegalArgumentException  if a panel id, an RGBW value or
+	 * 									 a transition time is out of range
+	 * 									 for the format
+	 */
+	public ByteBuffer encode(int count, int[] ids, int[] red, int[] green,
+			int[] blue, int[] white, int[] transitionTimes)
+	{
+		begin(count);
+		for (int i = 0; i < count; i++)
+		{
+			putPanel(ids[i], red[i], green[i],
+					blue[i], white[i], transitionTimes[i]);
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Encodes a range of the panels in a frame buffer.
+	 * @param frame  the frame buffer
+	 * @param from  the position of the first panel to encode
+	 * @param count  the number of panels to encode
+	 * @return  the encoded frame, ready to be sent
+	 * @throws IllegalArgumentException  if a panel id, an RGBW value or
+	 * 									 a transition time is out of range
+	 * 									 for the format
+	 */
+	public ByteBuffer encode(StreamFrame frame, int from, int count)
+	{
+		begin(count);
+		int[] ids = frame.ids(), red = frame.red(), green = frame.green(),
+				blue = frame.blue(), white = frame.white(),
+				transitionTimes = frame.transitionTimes();
+		for (int i = from; i < from + count; i++)
+		{
+			putPanel(ids[i], red[i], green[i],
+					blue[i], white[i], transitionTimes[i]);
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Checks that a panel id can be encoded in the current format.
+	 * @param panelId  the id of the panel
+	 * @throws IllegalArgumentException  if the panel id is too large
+	 * 									 for the format
+	 */
+	void checkPanelId(int panelId)
+	{
+		if (panelId < 0 || panelId > format.getMaxPanelId())
+		{
+			throw new IllegalArgumentException("Panel id " + panelId +
+					" can't be sent in the " + format.getName() + " format");
+		}
+	}
+
+	/**
+	 * Checks that a panel can be encoded in the current format.
+	 * @param panelId  the id of the panel
+	 * @param red  the red RGBW value
+	 * @param green  the green RGBW value
+	 * @param blue  the blue RGBW value
+	 * @param white  the white RGBW value
+	 * @param transitionTime  the transition time (in units of 100ms)
+	 * @throws IllegalArgumentException  if the panel id, an RGBW value or
+	 * 									 the transition time is out of range
+	 * 									 for the format
+	 */
+	void checkPanel(int panelId, int red, int green,
+			int blue, int white, int transitionTime)
+	{
+		checkPanelId(panelId);
+		if ((red | green | blue | white) < 0 ||
+				(red | green | blue | white) > 255)
+		{
+			throw new IllegalArgumentException("RGBW value (" + red + ", " +
+					green + ", " + blue + ", " + white + ") of panel " +
+					panelId + " is out of range (0-255)");
+		}
+		if (transitionTime < 0 || transitionTime > format.getMaxTransitionTime())
+		{
+			throw new IllegalArgumentException("Transition time " +
+					transitionTime + " of panel " + panelId +
+					" can't be sent in the " + format.getName() + " format");
+		}
+	}
+
+	private void begin(int count)
+	{
+		if (count > format.getMaxPanelId())
+		{
+			throw new IllegalArgumentException(count + " panels can't be sent " +
+					"in one " + format.getName() + " frame");
+		}
+		int size = getFrameSize(count);
+		if (buffer.capacity() < size)
+		{
+			buffer = ByteBuffer.allocateDirect(Math.max(size, buffer.capacity() * 2));
+		}
+		buffer.clear();
+		if (format == StreamFormat.V1)
+		{
+			buffer.put((byte)count);
+		}
+		else
+		{
+			buffer.putShort((short)count);
+		}
+	}
+
+	private void putPanel(int panelId, int red, int green,
+			int blue, int white, int transitionTime)
+	{
+		checkPanel(panelId, red, green, blue, white, transitionTime);
+		if (format == StreamFormat.V1)
+		{
+			buffer.put((byte)panelId);
+			buffer.put((byte)1);
+			buffer.put((byte)red);
+			buffer.put((byte)green);
+			buffer.put((byte)blue);
+			buffer.put((byte)white);
+			buffer.put((byte)transitionTime);
+		}
+		else
+		{
+			buffer.putShort((short)panelId);
+			buffer.put((byte)red);
+			buffer.put((byte)green);
+			buffer.put((byte)blue);
+			buffer.put((byte)white);
+			buffer.putShort((short)transitionTime);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package io.github.rowak.nanoleafapi;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the last color that was sent to each panel during an external
+ * streaming session. Every panel id is given a slot the first time it is
+ * sent, and its RGBW value (packed into one int) and transition time are
+ * kept in primitive arrays indexed by that slot, so checking whether a
+ * panel changed doesn't allocate.
+ */
+class StreamShadow
+{
+	private IntIndexMap slots = new IntIndexMap(32);
+	private int[] ids = new int[32];
+	private int[] colors = new int[32];
+	private int[] transitionTimes = new int[32];
+	private int size;
+
+	/**
+	 * Records the color of a panel.
+	 * @param panelId  the id of the panel
+	 * @param red  the red RGBW value
+	 * @param green  the green RGBW value
+	 * @param blue  the blue RGBW value
+	 * @param white  the white RGBW value
+	 * @param transitionTime  the transition time (in units of 100ms)
+	 * @return  true, if the panel was not in the shadow or
+	 * 			its RGBW value changed
+	 */
+	boolean update(int panelId, int red, int green,
+			int blue, int white, int transitionTime)
+	{
+		int color = pack(red, green, blue, white);
+		int slot = slots.get(panelId);
+		if (slot == -1)
+		{
+			if (size == ids.length)
+			{
+				grow();
+			}
+			slot = size++;
+			slots.put(panelId, slot);
+			ids[slot] = panelId;
+		}
+		else if (colors[slot] == color)
+		{
+			transitionTimes[slot] = transitionTime;
+			return false;
+		}
+		colors[slot] = color;
+		transitionTimes[slot] = transitionTime;
+		return true;
+	}
+
+	/**
+	 * Adds every panel in the shadow to a frame.
+	 * @param frame  the frame to add the panels to
+	 */
+	void copyTo(StreamFrame frame)
+	{
+		for (int i = 0; i < size; i++)
+		{
+			int color = colors[i];
+			frame.setPanel(ids[i], (color >>> 24) & 0xFF, (color >>> 16) & 0xFF,
+					(color >>> 8) & 0xFF, color & 0xFF, transitionTimes[i]);
+		}
+	}
+
+	/**
+	 * Gets the number of panels in the shadow.
+	 * @return  the number of panels
+	 */
+	int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Forgets every panel.
+	 */
+	void clear()
+	{
+		size = 0;
+		slots.clear();
+	}
+
+	private void grow()
+	{
+		int capacity = ids.length * 2;
+		ids = Arrays.copyOf(ids, capacity);
+		colors = Arrays.copyOf(colors, capacity);
+		transitionTimes = Arrays.copyOf(transitionTimes, capacity);
+	}
+
+	private static int pack(int red, int green, int blue, int white)
+	{
+		return (red & 0xFF) << 24 | (green & 0xFF) << 16 |
+				(blue & 0xFF) << 8 | (white & 0xFF);
+	}
+}
@@ -0,0 +1,651 @@
+package io.github.rowak.nanoleafapi;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import io.github.rowak.nanoleafapi.metrics.LatencyHistogram;
+
+/**
+ * Streams to several Auroras in lockstep, for installations that are made
+ * of more than one controller. Every controller is added to the group as a
+ * {@link Member}, and frames are submitted to the members at any rate (like
+ * a {@link StreamingRenderer}). On every tick of the group's clock, the
+ * group first encodes the latest frame of every member, and then sends all
+ * of the datagrams back to back, so the controllers receive their frames
+ * as close together as possible.
+ * <p>
+ * All of the sending is done by a single thread, using non-blocking
+ * channels and one NIO <code>Selector</code>. The selector also keeps the
+ * clock: the thread waits on the selector until shortly before each tick
+ * and spins for the rest of the wait. If a controller's socket buffer is
+ * full, its remaining datagrams are sent as soon as the selector reports
+ * that the channel is writable, without delaying the other controllers.
+ * <p>
+ * The members use the delta streaming, full refresh and wire format
+ * settings of their <code>ExternalStreaming</code> sessions, but send
+ * through their own channels to the sessions' addresses.
+ */
+public class StreamingGroup implements AutoCloseable
+{
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+	private static final long NANOS_PER_MILLI = 1_000_000L;
+
+	private final int fps;
+	private final long period;
+	private final List<Member> members;
+	private final Queue<Member> removed;
+	private final Object lock = new Object();
+	private final LatencyHistogram jitter = new LatencyHistogram();
+	private final Thread thread;
+	private Selector selector;
+	private volatile boolean started, closed;
+	private volatile double frameRate;
+
+	/**
+	 * Creates a new, empty group. The group doesn't send anything
+	 * until it is started with {@link #start()}.
+	 * @param fps  the number of frames to send per second
+	 */
+	public StreamingGroup(int fps)
+	{
+		if (fps < 1 || fps > StreamingRenderer.MAX_FPS)
+		{
+			throw new IllegalArgumentException("FPS must be between 1 and " +
+					StreamingRenderer.MAX_FPS);
+		}
+		this.fps = fps;
+		this.period = NANOS_PER_SECOND / fps;
+		this.members = new CopyOnWriteArrayList<Member>();
+		this.removed = new ConcurrentLinkedQueue<Member>();
+		this.thread = new Thread(this::run, "nanoleaf-streaming-group");
+		this.thread.setDaemon(true);
+		this.thread.setPriority(Thread.MAX_PRIORITY);
+	}
+
+	/**
+	 * Adds a controller to the group.
+	 * @param streaming  the external streaming session of the controller
+	 * @return  the new member
+	 */
+	public Member add(Aurora.ExternalStreaming streaming)
+	{
+		Member member = new Member(streaming);
+		members.add(member);
+		return member;
+	}
+
+	/**
+	 * Removes a controller from the group.
+	 * @param member  the member to remove
+	 */
+	public void remove(Member member)
+	{
+		if (members.remove(member))
+		{
+			member.removed = true;
+			removed.add(member);
+		}
+	}
+
+	/**
+	 * Gets the members of the group, in the order they were added.
+	 * @return  the members
+	 */
+	public Member[] getMembers()
+	{
+		return members.toArray(new Member[0]);
+	}
+
+	/**
+	 * Submits a frame to several members at once. All of the frames are
+	 * sent on the same tick, so a frame that spans several controllers is
+	 * never split across ticks. The frames are copied, so they can be
+	 * reused as soon as this method returns.
+	 * @param members  the members to submit the frames to
+	 * @param frames  the frame for each member (in the same order
+	 * 				  as the members)
+	 */
+	public void submit(Member[] members, StreamFrame[] frames)
+	{
+		synchronized (lock)
+		{
+			for (int i = 0; i < members.length; i++)
+			{
+				members[i].submitLocked(frames[i]);
+			}
+		}
+	}
+
+	/**
+	 * Starts the group's thread.
+	 * @throws IOException  if the selector cannot be opened
+	 * @throws IllegalStateException  if the group was already started
+	 */
+	public synchronized void start() throws IOException
+	{
+		if (started)
+		{
+			throw new IllegalStateException("Group was already started");
+		}
+		selector = Selector.open();
+		started = true;
+		thread.start();
+	}
+
+	/**
+	 * Stops the group and closes every member's channel. Frames that
+	 * were submitted but not yet sent are discarded, and a closed group
+	 * can't be started again.
+	 */
+	@Override
+	public synchronized void close()
+	{
+		closed = true;
+		if (selector != null)
+		{
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * Checks if the group is running.
+	 * @return  true, if the group has been started and not closed
+	 */
+	public boolean isRunning()
+	{
+		return started && !closed;
+	}
+
+	/**
+	 * Gets the frame rate that the group was configured with.
+	 * @return  the target number of frames per second
+	 */
+	public int getTargetFrameRate()
+	{
+		return this.fps;
+	}
+
+	/**
+	 * Gets the number of ticks that sent at least one frame during
+	 * the most recent full second.
+	 * @return  the actual number of frames per second
+	 */
+	public double getFrameRate()
+	{
+		return this.frameRate;
+	}
+
+	/**
+	 * Gets the histogram of tick jitter, which is how late (in microseconds)
+	 * each tick started compared to when it was scheduled.
+	 * @return  the jitter histogram
+	 */
+	public LatencyHistogram getJitter()
+	{
+		return this.jitter;
+	}
+
+	private void run()
+	{
+		long next = System.nanoTime() + period;
+		long windowStart = System.nanoTime();
+		int windowFrames = 0;
+		try
+		{
+			while (!closed)
+			{
+				waitUntil(next);
+				if (closed)
+				{
+					break;
+				}
+				long now = System.nanoTime();
+				jitter.recordNanos(now - next);
+				try
+				{
+					if (tick())
+					{
+						windowFrames++;
+					}
+				}
+				catch (RuntimeException re)
+				{
+					// A failed tick should not stop the group while it
+					// still reports that it is running
+				}
+				if (now - windowStart >= NANOS_PER_SECOND)
+				{
+					frameRate = windowFrames * (double)NANOS_PER_SECOND / (now - windowStart);
+					windowStart = now;
+					windowFrames = 0;
+				}
+				next += period;
+				now = System.nanoTime();
+				if (next <= now)
+				{
+					// Skip the ticks that were missed instead of catching up
+					next += ((now - next) / period + 1) * period;
+				}
+			}
+		}
+		finally
+		{
+			for (Member member : members)
+			{
+				member.closeChannel();
+			}
+			for (Member member : removed)
+			{
+				member.closeChannel();
+			}
+			try
+			{
+				selector.close();
+			}
+			catch (IOException ioe)
+			{
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * Encodes the pending frame of every member, then sends them all.
+	 * @return  true, if at least one frame was sent
+	 */
+	private boolean tick()
+	{
+		Member member;
+		while ((member = removed.poll()) != null)
+		{
+			// Channels are only touched by this thread
+			member.closeChannel();
+		}
+		boolean any = false;
+		synchronized (lock)
+		{
+			for (Member m : members)
+			{
+				any |= m.swap();
+			}
+		}
+		if (!any)
+		{
+			return false;
+		}
+		for (Member m : members)
+		{
+			m.encode();
+		}
+		long first = 0;
+		boolean sent = false;
+		for (Member m : members)
+		{
+			if (m.datagramIndex < m.datagramCount)
+			{
+				long time = m.write();
+				if (time != 0)
+				{
+					if (!sent)
+					{
+						first = time;
+						sent = true;
+					}
+					m.skew.recordNanos(time - first);
+				}
+			}
+		}
+		return sent;
+	}
+
+	private void waitUntil(long deadline)
+	{
+		long remaining;
+		while (!closed && (remaining = deadline - System.nanoTime()) > 0)
+		{
+			try
+			{
+				int ready;
+				if (remaining > 2 * NANOS_PER_MILLI)
+				{
+					ready = selector.select((remaining - NANOS_PER_MILLI) / NANOS_PER_MILLI);
+				}
+				else
+				{
+					ready = selector.selectNow();
+					Thread.onSpinWait();
+				}
+				if (ready > 0)
+				{
+					flushWritable();
+				}
+			}
+			catch (IOException ioe)
+			{
+				// The selector is only closed by this thread
+			}
+		}
+	}
+
+	private void flushWritable()
+	{
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext())
+		{
+			SelectionKey key = keys.next();
+			keys.remove();
+			if (key.isValid() && key.isWritable())
+			{
+				((Member)key.attachment()).write();
+			}
+		}
+	}
+
+	/**
+	 * A controller in a streaming group.
+	 */
+	public class Member
+	{
+		private final Aurora.ExternalStreaming streaming;
+		private final StreamFrameEncoder encoder = new StreamFrameEncoder();
+		private final LatencyHistogram skew = new LatencyHistogram();
+		private StreamFrame pending = new StreamFrame(), sending = new StreamFrame();
+		private int pendingSubmits;
+		private ByteBuffer[] datagrams = new ByteBuffer[0];
+		private int datagramCount, datagramIndex;
+		private DatagramChannel channel;
+		private SelectionKey key;
+		private InetSocketAddress address;
+		private volatile boolean removed;
+		private volatile Exception lastError;
+		private volatile long framesSubmitted, framesSent, framesMerged, framesDropped, sendErrors;
+
+		private Member(Aurora.ExternalStreaming streaming)
+		{
+			this.streaming = streaming;
+		}
+
+		/**
+		 * Gets the external streaming session of this member.
+		 * @return  the streaming session
+		 */
+		public Aurora.ExternalStreaming getStreaming()
+		{
+			return this.streaming;
+		}
+
+		/**
+		 * Submits a frame to be sent to this member on the next tick. The
+		 * frame is copied, so it can be reused as soon as this method
+		 * returns. If another frame is submitted before the next tick, the
+		 * panels in both frames are merged and the panels in the newer
+		 * frame win.
+		 * @param frame  the frame to send
+		 */
+		public void submit(StreamFrame frame)
+		{
+			synchronized (lock)
+			{
+				submitLocked(frame);
+			}
+		}
+
+		/**
+		 * Gets the histogram of send skew, which is how long after the
+		 * first controller of each tick (in microseconds) this member's
+		 * frame was sent.
+		 * @return  the skew histogram
+		 */
+		public LatencyHistogram getSkew()
+		{
+			return this.skew;
+		}
+
+		/**
+		 * Gets the number of frames that have been submitted to this member.
+		 * @return  the number of submitted frames
+		 */
+		public long getFramesSubmitted()
+		{
+			return this.framesSubmitted;
+		}
+
+		/**
+		 * Gets the number of frames that have been sent to this member.
+		 * @return  the number of sent frames
+		 */
+		public long getFramesSent()
+		{
+			return this.framesSent;
+		}
+
+		/**
+		 * Gets the number of frames that were merged into a newer frame
+		 * because it was submitted before they could be sent. The panels
+		 * of a merged frame that the newer frame didn't set are still sent.
+		 * @return  the number of merged frames
+		 */
+		public long getFramesMerged()
+		{
+			return this.framesMerged;
+		}
+
+		/**
+		 * Gets the number of frames that were dropped because the previous
+		 * frame was still waiting for the socket. Every known panel is sent
+		 * with the frame after a dropped frame.
+		 * @return  the number of dropped frames
+		 */
+		public long getFramesDropped()
+		{
+			return this.framesDropped;
+		}
+
+		/**
+		 * Gets the number of frames that could not be sent because
+		 * of a network error.
+		 * @return  the number of send errors
+		 */
+		public long getSendErrors()
+		{
+			return this.sendErrors;
+		}
+
+		/**
+		 * Gets the error that was thrown by the most recent failed send.
+		 * @return  the most recent error, or null if there were no errors
+		 */
+		public Exception getLastError()
+		{
+			return this.lastError;
+		}
+
+		private void submitLocked(StreamFrame frame)
+		{
+			if (frame == null || removed)
+			{
+				return;
+			}
+			pending.setAll(frame);
+			pendingSubmits++;
+			framesSubmitted++;
+		}
+
+		/**
+		 * Makes the pending frame the frame that is sent on this tick.
+		 * @return  true, if there is a frame to send
+		 */
+		private boolean swap()
+		{
+			if (pendingSubmits == 0)
+			{
+				return false;
+			}
+			framesMerged += pendingSubmits - 1;
+			pendingSubmits = 0;
+			StreamFrame frame = sending;
+			sending = pending;
+			pending = frame;
+			return true;
+		}
+
+		/**
+		 * Encodes the frame of this tick into datagrams.
+		 */
+		private void encode()
+		{
+			if (sending.isEmpty())
+			{
+				return;
+			}
+			if (datagramIndex < datagramCount)
+			{
+				// The previous frame is still waiting for the socket. The
+				// session already recorded its panels as sent, so they have
+				// to be sent again.
+				framesDropped++;
+				streaming.requestFullRefresh();
+			}
+			datagramCount = 0;
+			datagramIndex = 0;
+			try
+			{
+				synchronized (streaming)
+				{
+					encoder.setFormat(streaming.getFormat());
+					StreamFrame panels = streaming.prepare(sending);
+					if (panels == null)
+					{
+						return;
+					}
+					int max = encoder.getMaxPanelsPerDatagram();
+					for (int from = 0; from < panels.size(); from += max)
+					{
+						int count = Math.min(max, panels.size() - from);
+						addDatagram(encoder.encode(panels, from, count));
+					}
+				}
+			}
+			catch (RuntimeException re)
+			{
+				lastError = re;
+				sendErrors++;
+			}
+			finally
+			{
+				sending.clear();
+			}
+		}
+
+		private void addDatagram(ByteBuffer data)
+		{
+			if (datagramCount == datagrams.length)
+			{
+				datagrams = Arrays.copyOf(datagrams, datagrams.length + 1);
+			}
+			ByteBuffer datagram = datagrams[datagramCount];
+			if (datagram == null || datagram.capacity() < data.remaining())
+			{
+				datagram = ByteBuffer.allocateDirect(Math.max(data.remaining(),
+						StreamFrameEncoder.MAX_DATAGRAM_SIZE));
+				datagrams[datagramCount] = datagram;
+			}
+			datagram.clear();
+			datagram.put(data);
+			datagram.flip();
+			datagramCount++;
+		}
+
+		/**
+		 * Sends as many of the encoded datagrams as the socket accepts.
+		 * @return  the time that the first datagram was sent, or 0
+		 * 			if nothing was sent
+		 */
+		private long write()
+		{
+			long time = 0;
+			try
+			{
+				DatagramChannel channel = channel();
+				while (datagramIndex < datagramCount)
+				{
+					ByteBuffer datagram = datagrams[datagramIndex];
+					int length = datagram.remaining();
+					if (channel.write(datagram) == 0)
+					{
+						// The socket buffer is full, so wait for the selector
+						key.interestOps(SelectionKey.OP_WRITE);
+						return time;
+					}
+					if (time == 0)
+					{
+						time = System.nanoTime();
+					}
+					streaming.datagramSent(length);
+					datagramIndex++;
+				}
+				key.interestOps(0);
+				framesSent++;
+				datagramCount = 0;
+				datagramIndex = 0;
+			}
+			catch (IOException | RuntimeException e)
+			{
+				lastError = e;
+				sendErrors++;
+				datagramCount = 0;
+				datagramIndex = 0;
+				closeChannel();
+				// The session already recorded the unsent panels as sent
+				streaming.requestFullRefresh();
+			}
+			return time;
+		}
+
+		private DatagramChannel channel() throws IOException
+		{
+			InetSocketAddress address = streaming.getAddress();
+			if (address == null)
+			{
+				throw new IOException("External streaming is not enabled.");
+			}
+			if (channel == null || !address.equals(this.address))
+			{
+				closeChannel();
+				channel = DatagramChannel.open();
+				channel.configureBlocking(false);
+				channel.connect(address);
+				key = channel.register(selector, 0, this);
+				this.address = address;
+			}
+			return channel;
+		}
+
+		private void closeChannel()
+		{
+			if (channel != null)
+			{
+				try
+				{
+					channel.close();
+				}
+				catch (IOException ioe)
+				{
+					// ignore
+				}
+				channel = null;
+				key = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,315 @@
+package io.github.rowak.nanoleafapi;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+import io.github.rowak.nanoleafapi.metrics.LatencyHistogram;
+
+/**
+ * Sends frames to an Aurora at a fixed rate over external streaming, no
+ * matter how often frames are produced. Producers {@link #submit(StreamFrame)}
+ * frames whenever they like; the renderer's own thread wakes up once per
+ * tick and sends every panel that was written since the previous tick in
+ * a single update. Frames that are submitted between two ticks are merged,
+ * so a panel that is written more than once is only sent with its latest
+ * color.
+ * <p>
+ * The renderer's thread sleeps until shortly before each tick and then
+ * spins for the rest of the wait, so ticks are accurate to a few
+ * microseconds instead of the scheduler's usual millisecond granularity.
+ * Ticks are scheduled against a fixed start time, so the rate doesn't
+ * drift, and ticks that are missed (for example, because sending took
+ * too long) are skipped rather than sent in a burst.
+ * <p>
+ * A frame that can't be sent (because of a network error, or because a
+ * panel is out of range for the streaming format) is counted as a send
+ * error and discarded, and the renderer carries on with the next tick.
+ */
+public class StreamingRenderer implements AutoCloseable
+{
+	/**
+	 * The highest frame rate that a renderer can run at.
+	 */
+	public static final int MAX_FPS = 1000;
+
+	/**
+	 * The part of each wait (in nanoseconds) that is spent
+	 * spinning instead of sleeping.
+	 */
+	private static final long SPIN_NANOS = 200_000;
+
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	private final Aurora.ExternalStreaming streaming;
+	private final int fps;
+	private final long period;
+	private final Thread thread;
+	private final Object lock = new Object();
+	private final LatencyHistogram jitter = new LatencyHistogram();
+
+	private StreamFrame pending, sending;
+	private int pendingSubmits;
+	private volatile boolean started, closed;
+	private volatile Exception lastError;
+	private volatile long framesSubmitted, framesSent, framesMerged, sendErrors;
+	private volatile double frameRate;
+
+	/**
+	 * Creates a new renderer. The renderer doesn't send anything
+	 * until it is started with {@link #start()}.
+	 * @param streaming  the external streaming session to send frames through
+	 * @param fps  the number of frames to send per second
+	 */
+	public StreamingRenderer(Aurora.ExternalStreaming streaming, int fps)
+	{
+		if (fps < 1 || fps > MAX_FPS)
+		{
+			throw new IllegalArgumentException("FPS must be between 1 and " + MAX_FPS);
+		}
+		this.streaming = streaming;
+		this.fps = fps;
+		this.period = NANOS_PER_SECOND / fps;
+		this.pending = new StreamFrame();
+		this.sending = new StreamFrame();
+		this.thread = new Thread(this::run, "nanoleaf-renderer");
+		this.thread.setDaemon(true);
+		this.thread.setPriority(Thread.MAX_PRIORITY);
+	}
+
+	/**
+	 * Starts the renderer's thread.
+	 * @throws IllegalStateException  if the renderer was already started
+	 */
+	public synchronized void start()
+	{
+		if (started)
+		{
+			throw new IllegalStateException("Renderer was already started");
+		}
+		started = true;
+		thread.start();
+	}
+
+	/**
+	 * Stops the renderer. Frames that were submitted but not yet sent
+	 * are discarded, and a closed renderer can't be started again.
+	 */
+	@Override
+	public void close()
+	{
+		closed = true;
+		LockSupport.unpark(thread);
+	}
+
+	/**
+	 * Checks if the renderer is running.
+	 * @return  true, if the renderer has been started and not closed
+	 */
+	public boolean isRunning()
+	{
+		return started && !closed;
+	}
+
+	/**
+	 * Submits a frame to be sent on the next tick. The frame is copied, so
+	 * it can be reused by the caller as soon as this method returns. If
+	 * another frame is submitted before the next tick, the panels in both
+	 * frames are merged and the panels in the newer frame win.
+	 * @param frame  the frame to send
+	 */
+	public void submit(StreamFrame frame)
+	{
+		synchronized (lock)
+		{
+			pending.setAll(frame);
+			pendingSubmits++;
+			framesSubmitted++;
+		}
+	}
+
+	/**
+	 * Gets the frame rate that the renderer was configured with.
+	 * @return  the target number of frames per second
+	 */
+	public int getTargetFrameRate()
+	{
+		return this.fps;
+	}
+
+	/**
+	 * Gets the number of frames that were actually sent during the most
+	 * recent full second. Ticks without any submitted frames don't send
+	 * anything, so this is lower than the target frame rate when the
+	 * producers are slower than the renderer.
+	 * @return  the actual number of frames per second
+	 */
+	public double getFrameRate()
+	{
+		return this.frameRate;
+	}
+
+	/**
+	 * Gets the histogram of tick jitter, which is how late (in microseconds)
+	 * each tick started compared to when it was scheduled.
+	 * @return  the jitter histogram
+	 */
+	public LatencyHistogram getJitter()
+	{
+		return this.jitter;
+	}
+
+	/**
+	 * Gets the number of frames that have been submitted.
+	 * @return  the number of submitted frames
+	 */
+	public long getFramesSubmitted()
+	{
+		return this.framesSubmitted;
+	}
+
+	/**
+	 * Gets the number of frames that have been sent.
+	 * @return  the number of sent frames
+	 */
+	public long getFramesSent()
+	{
+		return this.framesSent;
+	}
+
+	/**
+	 * Gets the number of frames that were merged into a newer frame
+	 * because it was submitted before they could be sent. The panels
+	 * of a merged frame that the newer frame didn't overwrite are
+	 * still sent.
+	 * @return  the number of merged frames
+	 */
+	public long getFramesMerged()
+	{
+		return this.framesMerged;
+	}
+
+	/**
+	 * Gets the number of frames that could not be sent because of a
+	 * network error or because a panel was out of range for the
+	 * streaming format.
+	 * @return  the number of send errors
+	 */
+	public long getSendErrors()
+	{
+		return this.sendErrors;
+	}
+
+	/**
+	 * Gets the error that was thrown by the most recent failed send.
+	 * @return  the most recent error, or null if there were no errors
+	 */
+	public Exception getLastError()
+	{
+		return this.lastError;
+	}
+
+	private void run()
+	{
+		long next = System.nanoTime() + period;
+		long windowStart = System.nanoTime();
+		int windowFrames = 0;
+		while (!closed)
+		{
+			waitUntil(next);
+			if (closed)
+			{
+				break;
+			}
+			long now = System.nanoTime();
+			jitter.recordNanos(now - next);
+			if (render())
+			{
+				windowFrames++;
+			}
+			if (now - windowStart >= NANOS_PER_SECOND)
+			{
+				frameRate = windowFrames * (double)NANOS_PER_SECOND / (now - windowStart);
+				windowStart = now;
+				windowFrames = 0;
+			}
+			next += period;
+			now = System.nanoTime();
+			if (next <= now)
+			{
+				// Skip the ticks that were missed instead of catching up
+				next += ((now - next) / period + 1) * period;
+			}
+		}
+	}
+
+	/**
+	 * Sends the panels that were submitted since the previous tick.
+	 * @return  true, if a frame was sent
+	 */
+	private boolean render()
+	{
+		synchronized (lock)
+		{
+			if (pendingSubmits == 0)
+			{
+				return false;
+			}
+			framesMerged += pendingSubmits - 1;
+			pendingSubmits = 0;
+			StreamFrame frame = sending;
+			sending = pending;
+			pending = frame;
+		}
+		try
+		{
+			streaming.setPanels(sending);
+			framesSent++;
+			return true;
+		}
+		catch (IOException | RuntimeException e)
+		{
+			// An invalid frame is discarded, so it doesn't stop the renderer
+			lastError = e;
+			sendErrors++;
+			return false;
+		}
+		finally
+		{
+			sending.clear();
+		}
+	}
+
+	private void waitUntil(long deadline)
+	{
+		while (!closed && !parkUntil(deadline))
+		{
+			// keep waiting
+		}
+	}
+
+	/**
+	 * Waits for part of the time that is left until a deadline, sleeping
+	 * until shortly before the deadline and spinning after that. The wait
+	 * can end early if the thread is unparked, so callers should call this
+	 * in a loop and check their own conditions between calls.
+	 * @param deadline  the deadline (in <code>System.nanoTime()</code> units)
+	 * @return  true, if the deadline has been reached
+	 */
+	static boolean parkUntil(long deadline)
+	{
+		long remaining = deadline - System.nanoTime();
+		if (remaining <= 0)
+		{
+			return true;
+		}
+		if (remaining > SPIN_NANOS)
+		{
+			LockSupport.parkNanos(remaining - SPIN_NANOS);
+		}
+		else
+		{
+			Thread.onSpinWait();
+		}
+		return false;
+	}
+}
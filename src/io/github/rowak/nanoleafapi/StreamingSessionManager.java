@@ -0,0 +1,350 @@
+package io.github.rowak.nanoleafapi;
+
+import java.net.SocketException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps an Aurora in external streaming (extControl) mode. External
+ * streaming ends silently when another effect is selected (for example,
+ * from the app) or when the controller restarts, and the frames that are
+ * sent after that are ignored. The session manager notices this and
+ * recovers the session on its own:
+ * <ul>
+ * <li>it listens for <code>EFFECTS</code> events, so a change of effect is
+ * 	   noticed as soon as it happens</li>
+ * <li>it also probes the selected effect periodically, which catches
+ * 	   restarts and lost event streams</li>
+ * <li>when the mode is lost, it enables external streaming again (in the
+ * 	   same wire format), which also refreshes the streaming address, and
+ * 	   immediately resends the last color of every panel, so the panels
+ * 	   pick up where they left off</li>
+ * </ul>
+ * If recovering fails (for example, because the controller is still
+ * restarting), it is tried again on the next probe.
+ * <p>
+ * Each manager probes and recovers on its own thread, and its requests
+ * use a short read timeout (see {@link #setRequestTimeout(long)}), so an
+ * unresponsive controller can't hold up other managers or the Aurora's
+ * other background work.
+ */
+public class StreamingSessionManager implements AutoCloseable
+{
+	/**
+	 * The name of the selected effect while the Aurora is
+	 * in external streaming mode.
+	 */
+	public static final String EXT_CONTROL_EFFECT = "*ExtControl*";
+
+	/**
+	 * The default time (in milliseconds) between probes.
+	 */
+	public static final long DEFAULT_PROBE_INTERVAL = 500;
+
+	/**
+	 * The default read timeout (in milliseconds) of the
+	 * probe and recovery requests.
+	 */
+	public static final long DEFAULT_REQUEST_TIMEOUT = 1000;
+
+	private final Aurora aurora;
+	private final Aurora.ExternalStreaming streaming;
+	private final AtomicBoolean recovering = new AtomicBoolean();
+	private long probeInterval = DEFAULT_PROBE_INTERVAL;
+	private volatile long requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+	private ScheduledExecutorService executor;
+	private AuroraEvents.Subscription subscription;
+	private ScheduledFuture<?> probe;
+	private volatile Listener listener;
+	private volatile boolean started, closed, active;
+	private volatile long lostAt;
+	private volatile long recoveries, lastDowntime;
+	private volatile Exception lastError;
+
+	/**
+	 * Creates a session manager for an Aurora's external streaming session.
+	 * The manager doesn't do anything until it is started.
+	 * @param aurora  the Aurora
+	 */
+	public StreamingSessionManager(Aurora aurora)
+	{
+		this.aurora = aurora;
+		this.streaming = aurora.externalStreaming();
+	}
+
+	/**
+	 * Sets the time between probes of the selected effect. Probing is what
+	 * notices a restarted controller, so a shorter interval means a shorter
+	 * outage, at the cost of one small request per probe.
+	 * @param millis  the time between probes in milliseconds,
+	 * 				  or 0 to only rely on events
+	 * @throws IllegalStateException  if the manager was already started
+	 */
+	public synchronized void setProbeInterval(long millis)
+	{
+		if (started)
+		{
+			throw new IllegalStateException("Manager was already started");
+		}
+		this.probeInterval = millis;
+	}
+
+	/**
+	 * Gets the time between probes of the selected effect.
+	 * @return  the time between probes in milliseconds, or 0 if
+	 * 			probing is disabled
+	 */
+	public synchronized long getProbeInterval()
+	{
+		return this.probeInterval;
+	}
+
+	/**
+	 * Sets the read timeout of the probe and recovery requests. A probe
+	 * that times out counts as a lost session, so the timeout should be
+	 * longer than the controller usually takes to respond.
+	 * @param millis  the read timeout in milliseconds
+	 */
+	public void setRequestTimeout(long millis)
+	{
+		if (millis < 1 || millis > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Invalid request timeout");
+		}
+		this.requestTimeout = millis;
+	}
+
+	/**
+	 * Gets the read timeout of the probe and recovery requests.
+	 * @return  the read timeout in milliseconds
+	 */
+	public long getRequestTimeout()
+	{
+		return this.requestTimeout;
+	}
+
+	/**
+	 * Sets the listener that is told when the session is lost and recovered.
+	 * @param listener  the listener, or null to remove it
+	 */
+	public void setListener(Listener listener)
+	{
+		this.listener = listener;
+	}
+
+	/**
+	 * Enables external streaming (if the session isn't open yet)
+	 * and starts watching it.
+	 * @throws StatusCodeException  if external streaming cannot be enabled
+	 * @throws SocketException  if the streaming channel cannot be opened
+	 * @throws IllegalStateException  if the manager was already started
+	 */
+	public synchronized void start()
+			throws StatusCodeException, SocketException
+	{
+		if (started)
+		{
+			throw new IllegalStateException("Manager was already started");
+		}
+		if (!streaming.isOpen())
+		{
+			streaming.enable(streaming.getFormat());
+		}
+		started = true;
+		active = true;
+		executor = Executors.newSingleThreadScheduledExecutor(r ->
+		{
+			Thread t = new Thread(r, "nanoleaf-session");
+			t.setDaemon(true);
+			return t;
+		});
+		subscription = aurora.events().subscribe(this::onEvent, EventType.EFFECTS);
+		if (probeInterval > 0)
+		{
+			probe = executor.scheduleWithFixedDelay(this::probe,
+					probeInterval, probeInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stops watching the session. The streaming session itself stays open.
+	 */
+	@Override
+	public synchronized void close()
+	{
+		closed = true;
+		if (subscription != null)
+		{
+			subscription.close();
+		}
+		if (probe != null)
+		{
+			probe.cancel(false);
+		}
+		if (executor != null)
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Checks if the Aurora is believed to be in external streaming mode.
+	 * @return  true, if the session is active (false while it is
+	 * 			being recovered)
+	 */
+	public boolean isActive()
+	{
+		return this.active;
+	}
+
+	/**
+	 * Gets the number of times the session has been recovered.
+	 * @return  the number of recoveries
+	 */
+	public long getRecoveryCount()
+	{
+		return this.recoveries;
+	}
+
+	/**
+	 * Gets how long the most recent outage lasted, from the time the loss
+	 * was noticed until the panels were resent.
+	 * @return  the downtime in milliseconds, or 0 if there
+	 * 			were no recoveries
+	 */
+	public long getLastDowntime()
+	{
+		return this.lastDowntime;
+	}
+
+	/**
+	 * Gets the error that was thrown by the most recent
+	 * failed probe or recovery.
+	 * @return  the most recent error, or null if there were no errors
+	 */
+	public Exception getLastError()
+	{
+		return this.lastError;
+	}
+
+	private void onEvent(AuroraEvent event)
+	{
+		if (event.getAttribute() == AuroraEvent.ATTRIBUTE_SELECTED_EFFECT &&
+				!EXT_CONTROL_EFFECT.equals(event.getStringValue()))
+		{
+			schedule(this::recover, 0);
+		}
+	}
+
+	private void probe()
+	{
+		if (closed || recovering.get())
+		{
+			return;
+		}
+		ConnectionPool pool = aurora.getConnectionPool();
+		pool.setThreadReadTimeout((int)requestTimeout);
+		try
+		{
+			// The selected effect has to come from the controller,
+			// not the read cache
+			aurora.getReadCache().invalidate("effects/select");
+			String effect = aurora.effects().getCurrentEffectName();
+			if (EXT_CONTROL_EFFECT.equals(effect))
+			{
+				return;
+			}
+		}
+		catch (Exception e)
+		{
+			// The controller is unreachable (possibly restarting)
+			lastError = e;
+		}
+		finally
+		{
+			pool.setThreadReadTimeout(-1);
+		}
+		recover();
+	}
+
+	private void recover()
+	{
+		if (closed || !recovering.compareAndSet(false, true))
+		{
+			return;
+		}
+		ConnectionPool pool = aurora.getConnectionPool();
+		pool.setThreadReadTimeout((int)requestTimeout);
+		try
+		{
+			if (active)
+			{
+				active = false;
+				lostAt = System.nanoTime();
+				Listener listener = this.listener;
+				if (listener != null)
+				{
+					listener.sessionLost();
+				}
+			}
+			streaming.enable(streaming.getFormat());
+			streaming.resendAll();
+			active = true;
+			recoveries++;
+			lastDowntime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lostAt);
+			Listener listener = this.listener;
+			if (listener != null)
+			{
+				listener.sessionRecovered(lastDowntime);
+			}
+		}
+		catch (Exception e)
+		{
+			lastError = e;
+			if (probe == null && !closed)
+			{
+				// Without probing, nothing else would try again
+				schedule(this::recover, DEFAULT_PROBE_INTERVAL);
+			}
+		}
+		finally
+		{
+			pool.setThreadReadTimeout(-1);
+			recovering.set(false);
+		}
+	}
+
+	private void schedule(Runnable task, long delay)
+	{
+		try
+		{
+			executor.schedule(task, delay, TimeUnit.MILLISECONDS);
+		}
+		catch (RejectedExecutionException ree)
+		{
+			// The manager was closed
+		}
+	}
+
+	/**
+	 * Receives notifications about a managed streaming session.
+	 */
+	public interface Listener
+	{
+		/**
+		 * Called when the Aurora is found to have left external streaming mode.
+		 */
+		void sessionLost();
+
+		/**
+		 * Called when external streaming has been enabled again
+		 * and the panels have been resent.
+		 * @param downtime  how long the session was lost (in milliseconds)
+		 */
+		void sessionRecovered(long downtime);
+	}
+}
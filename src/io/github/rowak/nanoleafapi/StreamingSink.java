@@ -0,0 +1,367 @@
+package io.github.rowak.nanoleafapi;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+import io.github.rowak.nanoleafapi.metrics.LatencyHistogram;
+
+/**
+ * A local stand-in for an Aurora's external streaming port. The sink binds
+ * a UDP port, decodes every packet it receives (in either
+ * {@link StreamFormat}) back into a {@link StreamFrame}, and measures the
+ * time between packets and the throughput. Pointing an
+ * <code>ExternalStreaming</code> session at the sink (using
+ * {@link Aurora.ExternalStreaming#setAddress(InetSocketAddress)}) makes it
+ * possible to test and benchmark streaming without any panels.
+ * <pre>
+ * StreamingSink sink = new StreamingSink(StreamFormat.V1);
+ * sink.start();
+ * aurora.externalStreaming().setAddress(sink.getAddress());
+ * ...
+ * System.out.println(sink.getPacketRate() + " packets/s");
+ * </pre>
+ */
+public class StreamingSink implements AutoCloseable
+{
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	private final DatagramChannel channel;
+	private final StreamFormat format;
+	private final Thread thread;
+	private final StreamFrame frame = new StreamFrame();
+	private final StreamFrame state = new StreamFrame();
+	private final LatencyHistogram interArrival = new LatencyHistogram();
+	private volatile Listener listener;
+	private volatile boolean started, closed;
+	private volatile long packets, bytes, panels, decodeErrors;
+	private volatile double packetRate, byteRate;
+
+	/**
+	 * Creates a sink on a free port of the loopback address.
+	 * @param format  the format of the packets that the sink receives
+	 * @throws IOException  if the port cannot be bound
+	 */
+	public StreamingSink(StreamFormat format) throws IOException
+	{
+		this(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), format);
+	}
+
+	/**
+	 * Creates a sink.
+	 * @param address  the address to bind (a port of 0 picks a free port)
+	 * @param format  the format of the packets that the sink receives
+	 * @throws IOException  if the address cannot be bound
+	 */
+	public StreamingSink(InetSocketAddress address, StreamFormat format)
+			throws IOException
+	{
+		this.format = format;
+		this.channel = DatagramChannel.open();
+		try
+		{
+			// A large buffer keeps the sink from dropping packets during
+			// bursts, so that the sender is what gets measured
+			channel.setOption(StandardSocketOptions.SO_RCVBUF, 4 * 1024 * 1024);
+			channel.bind(address);
+		}
+		catch (IOException ioe)
+		{
+			channel.close();
+			throw ioe;
+		}
+		this.thread = new Thread(this::run, "nanoleaf-sink");
+		this.thread.setDaemon(true);
+	}
+
+	/**
+	 * Starts receiving packets.
+	 * @throws IllegalStateException  if the sink was already started
+	 */
+	public synchronized void start()
+	{
+		if (started)
+		{
+			throw new IllegalStateException("Sink was already started");
+		}
+		started = true;
+		thread.start();
+	}
+
+	/**
+	 * Stops receiving packets and releases the port.
+	 */
+	@Override
+	public void close()
+	{
+		closed = true;
+		try
+		{
+			channel.close();
+		}
+		catch (IOException ioe)
+		{
+			// ignore
+		}
+	}
+
+	/**
+	 * Gets the address that the sink is bound to.
+	 * @return  the local address of the sink
+	 */
+	public InetSocketAddress getAddress()
+	{
+		try
+		{
+			return (InetSocketAddress)channel.getLocalAddress();
+		}
+		catch (IOException ioe)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the format of the packets that the sink receives.
+	 * @return  the wire format
+	 */
+	public StreamFormat getFormat()
+	{
+		return this.format;
+	}
+
+	/**
+	 * Sets the listener that is called with every decoded packet. The
+	 * listener is called on the sink's thread, and the frame is reused
+	 * for the next packet, so it must be copied if it is kept.
+	 * @param listener  the listener, or null to remove it
+	 */
+	public void setListener(Listener listener)
+	{
+		this.listener = listener;
+	}
+
+	/**
+	 * Gets the latest color of every panel that the sink has received.
+	 * @return  a copy of the panel colors
+	 */
+	public StreamFrame getState()
+	{
+		StreamFrame copy = new StreamFrame(Math.max(state.size(), 1));
+		synchronized (state)
+		{
+			copy.setAll(state);
+		}
+		return copy;
+	}
+
+	/**
+	 * Gets the histogram of the time (in microseconds) between packets.
+	 * @return  the inter-arrival histogram
+	 */
+	public LatencyHistogram getInterArrival()
+	{
+		return this.interArrival;
+	}
+
+	/**
+	 * Gets the number of packets that have been received.
+	 * @return  the number of packets
+	 */
+	public long getPacketsReceived()
+	{
+		return this.packets;
+	}
+
+	/**
+	 * Gets the number of bytes that have been received.
+	 * @return  the number of bytes
+	 */
+	public long getBytesReceived()
+	{
+		return this.bytes;
+	}
+
+	/**
+	 * Gets the number of panel updates that have been decoded.
+	 * @return  the number of panel updates
+	 */
+	public long getPanelsReceived()
+	{
+		return this.panels;
+	}
+
+	/**
+	 * Gets the number of packets that could not be decoded.
+	 * @return  the number of malformed packets
+	 */
+	public long getDecodeErrors()
+	{
+		return this.decodeErrors;
+	}
+
+	/**
+	 * Gets the number of packets that were received per second,
+	 * measured over the most recent full second with traffic.
+	 * @return  the packet rate
+	 */
+	public double getPacketRate()
+	{
+		return this.packetRate;
+	}
+
+	/**
+	 * Gets the number of bytes that were received per second,
+	 * measured over the most recent full second with traffic.
+	 * @return  the throughput in bytes per second
+	 */
+	public double getByteRate()
+	{
+		return this.byteRate;
+	}
+
+	/**
+	 * Resets every counter, rate and histogram, and forgets the panel colors.
+	 */
+	public void reset()
+	{
+		synchronized (state)
+		{
+			state.clear();
+		}
+		interArrival.reset();
+		packets = 0;
+		bytes = 0;
+		panels = 0;
+		decodeErrors = 0;
+		packetRate = 0;
+		byteRate = 0;
+	}
+
+	/**
+	 * Decodes an external streaming packet into a frame.
+	 * @param data  the packet (from its position to its limit)
+	 * @param format  the format of the packet
+	 * @param frame  the frame to decode the panels into (it is cleared first)
+	 * @throws IllegalArgumentException  if the packet is malformed
+	 */
+	public static void decode(ByteBuffer data, StreamFormat format, StreamFrame frame)
+	{
+		frame.clear();
+		try
+		{
+			if (format == StreamFormat.V1)
+			{
+				int count = data.get() & 0xFF;
+				for (int p = 0; p < count; p++)
+				{
+					int panelId = data.get() & 0xFF;
+					int numFrames = data.get() & 0xFF;
+					for (int f = 0; f < numFrames; f++)
+					{
+						frame.setPanel(panelId, data.get() & 0xFF,
+								data.get() & 0xFF, data.get() & 0xFF,
+								data.get() & 0xFF, data.get() & 0xFF);
+					}
+				}
+			}
+			else
+			{
+				int count = data.getShort() & 0xFFFF;
+				for (int p = 0; p < count; p++)
+				{
+					frame.setPanel(data.getShort() & 0xFFFF, data.get() & 0xFF,
+							data.get() & 0xFF, data.get() & 0xFF,
+							data.get() & 0xFF, data.getShort() & 0xFFFF);
+				}
+			}
+		}
+		catch (BufferUnderflowException bue)
+		{
+			throw new IllegalArgumentException("Packet is too short");
+		}
+		if (data.hasRemaining())
+		{
+			throw new IllegalArgumentException("Packet is too long");
+		}
+	}
+
+	private void run()
+	{
+		ByteBuffer buffer = ByteBuffer.allocateDirect(65536);
+		long last = 0, windowStart = 0, windowPackets = 0, windowBytes = 0;
+		while (!closed)
+		{
+			buffer.clear();
+			try
+			{
+				channel.receive(buffer);
+			}
+			catch (IOException ioe)
+			{
+				// The channel was closed
+				break;
+			}
+			long now = System.nanoTime();
+			buffer.flip();
+			int length = buffer.remaining();
+			if (last != 0)
+			{
+				interArrival.recordNanos(now - last);
+			}
+			else
+			{
+				windowStart = now;
+			}
+			last = now;
+			packets++;
+			bytes += length;
+			windowPackets++;
+			windowBytes += length;
+			if (now - windowStart >= NANOS_PER_SECOND)
+			{
+				double seconds = (now - windowStart) / (double)NANOS_PER_SECOND;
+				packetRate = windowPackets / seconds;
+				byteRate = windowBytes / seconds;
+				windowStart = now;
+				windowPackets = 0;
+				windowBytes = 0;
+			}
+			try
+			{
+				decode(buffer, format, frame);
+			}
+			catch (IllegalArgumentException iae)
+			{
+				decodeErrors++;
+				continue;
+			}
+			panels += frame.size();
+			synchronized (state)
+			{
+				state.setAll(frame);
+			}
+			Listener listener = this.listener;
+			if (listener != null)
+			{
+				listener.frameReceived(frame);
+			}
+		}
+	}
+
+	/**
+	 * Receives the frames that are decoded by a {@link StreamingSink}.
+	 */
+	public interface Listener
+	{
+		/**
+		 * Called for every packet that is decoded.
+		 * @param frame  the panels in the packet (only valid during the call)
+		 */
+		void frameReceived(StreamFrame frame);
+	}
+}
@@ -0,0 +1,174 @@
+package io.github.rowak.nanoleafapi.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with log-linear buckets, in the style of
+ * HdrHistogram. Every power of two is split into 32 linear sub-buckets,
+ * so any recorded value can be reported with a relative error of at most
+ * about 3%, while the histogram only needs a fixed, small number of counters
+ * for values from 1 microsecond up to more than an hour.
+ */
+public class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * The largest value (in microseconds) that can be recorded.
+	 * Larger values are recorded as this value.
+	 */
+	public static final long MAX_VALUE = (1L << 32) - 1;
+
+	private final AtomicLongArray counts;
+	private final LongAdder count;
+	private final LongAdder sum;
+	private final AtomicLong min;
+	private final AtomicLong max;
+
+	/**
+	 * Creates a new, empty histogram.
+	 */
+	public LatencyHistogram()
+	{
+		this.counts = new AtomicLongArray(indexOf(MAX_VALUE) + 1);
+		this.count = new LongAdder();
+		this.sum = new LongAdder();
+		this.min = new AtomicLong(Long.MAX_VALUE);
+		this.max = new AtomicLong(0);
+	}
+
+	/**
+	 * Records a latency.
+	 * @param nanos  the latency in nanoseconds
+	 */
+	public void recordNanos(long nanos)
+	{
+		record(nanos / 1000);
+	}
+
+	/**
+	 * Records a latency.
+	 * @param micros  the latency in microseconds
+	 */
+	public void record(long micros)
+	{
+		long value = Math.max(0, Math.min(micros, MAX_VALUE));
+		counts.incrementAndGet(indexOf(value));
+		count.increment();
+		sum.add(value);
+		min.accumulateAndGet(value, Math::min);
+		max.accumulateAndGet(value, Math::max);
+	}
+
+	/**
+	 * Gets the number of recorded values.
+	 * @return  the number of values
+	 */
+	public long getCount()
+	{
+		return count.sum();
+	}
+
+	/**
+	 * Gets the smallest recorded value.
+	 * @return  the smallest value in microseconds, or 0 if the histogram is empty
+	 */
+	public long getMin()
+	{
+		long value = min.get();
+		return value == Long.MAX_VALUE ? 0 : value;
+	}
+
+	/**
+	 * Gets the largest recorded value.
+	 * @return  the largest value in microseconds
+	 */
+	public long getMax()
+	{
+		return max.get();
+	}
+
+	/**
+	 * Gets the mean of the recorded values.
+	 * @return  the mean in microseconds, or 0 if the histogram is empty
+	 */
+	public double getMean()
+	{
+		long n = count.sum();
+		return n > 0 ? (double)sum.sum() / n : 0;
+	}
+
+	/**
+	 * Gets the value at a percentile. The value is the upper
+	 * bound of the bucket that contains the percentile.
+	 * @param percentile  the percentile (for example: 99.9)
+	 * @return  the value in microseconds, or 0 if the histogram is empty
+	 */
+	public long getValueAtPercentile(double percentile)
+	{
+		long n = count.sum();
+		if (n == 0)
+		{
+			return 0;
+		}
+		long target = Math.max(1, (long)Math.ceil(Math.min(percentile, 100) / 100 * n));
+		long seen = 0;
+		for (int i = 0; i < counts.length(); i++)
+		{
+			seen += counts.get(i);
+			if (seen >= target)
+			{
+				return Math.min(upperBoundOf(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Removes every recorded value.
+	 */
+	public void reset()
+	{
+		for (int i = 0; i < counts.length(); i++)
+		{
+			counts.set(i, 0);
+		}
+		count.reset();
+		sum.reset();
+		min.set(Long.MAX_VALUE);
+		max.set(0);
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("count=%d, mean=%.0fus, p50=%dus, p99=%dus, max=%dus",
+				getCount(), getMean(), getValueAtPercentile(50),
+				getValueAtPercentile(99), getMax());
+	}
+
+	private static int indexOf(long value)
+	{
+		if (value < SUB_BUCKETS)
+		{
+			return (int)value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int subBucket = (int)(value >>> shift) - SUB_BUCKETS;
+		return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+	}
+
+	private static long upperBoundOf(int index)
+	{
+		if (index < SUB_BUCKETS)
+		{
+			return index;
+		}
+		int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+		int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+		return ((long)(SUB_BUCKETS + subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,65 @@
+package io.github.rowak.nanoleafapi.metrics;
+
+/**
+ * Receives measurements of the requests that an {@link io.github.rowak.nanoleafapi.Aurora}
+ * sends to its controller. Implement this interface to bridge the measurements
+ * to a monitoring system, or use {@link SimpleMetricsRegistry} to collect
+ * them in memory.
+ * <p>
+ * Metrics are disabled until a registry is set using
+ * <code>Aurora.setMetricsRegistry()</code>. While they are disabled, requests
+ * are not timed at all. Implementations are called from the threads that
+ * send the requests, so they must be thread-safe and should return quickly.
+ */
+public interface MetricsRegistry
+{
+	/**
+	 * Called before an HTTP request is sent.
+	 * @param controller  the host name of the controller
+	 * @param method  the request method (for example: "GET")
+	 * @param endpoint  the API endpoint, without the access token
+	 * 					(for example: "state/brightness/value")
+	 */
+	void requestStarted(String controller, String method, String endpoint);
+
+	/**
+	 * Called after a response to an HTTP request has been received.
+	 * @param controller  the host name of the controller
+	 * @param method  the request method
+	 * @param endpoint  the API endpoint, without the access token
+	 * @param statusCode  the response status code
+	 * @param latencyNanos  the time between sending the request and
+	 * 						receiving the full response, in nanoseconds
+	 * @param bytesSent  the number of bytes in the request body
+	 * @param bytesReceived  the number of bytes in the response body
+	 */
+	void requestCompleted(String controller, String method, String endpoint,
+			int statusCode, long latencyNanos, long bytesSent, long bytesReceived);
+
+	/**
+	 * Called when an HTTP request fails without a response
+	 * (for example: if the connection times out).
+	 * @param controller  the host name of the controller
+	 * @param method  the request method
+	 * @param endpoint  the API endpoint, without the access token
+	 * @param latencyNanos  the time until the request failed, in nanoseconds
+	 * @param error  the reason that the request failed
+	 */
+	void requestFailed(String controller, String method, String endpoint,
+			long latencyNanos, Exception error);
+
+	/**
+	 * Called when an error status code is turned into a
+	 * <code>StatusCodeException</code>.
+	 * @param controller  the host name of the controller
+	 * @param statusCode  the error status code
+	 */
+	default void statusCodeError(String controller, int statusCode) {}
+
+	/**
+	 * Called after a UDP datagram has been sent for external streaming.
+	 * @param controller  the host name of the controller
+	 * @param bytes  the size of the datagram
+	 */
+	default void datagramSent(String controller, int bytes) {}
+}
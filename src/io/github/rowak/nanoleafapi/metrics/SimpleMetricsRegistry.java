@@ -0,0 +1,238 @@
+package io.github.rowak.nanoleafapi.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A <code>MetricsRegistry</code> that keeps the measurements in memory.
+ * Requests are grouped by method and endpoint (for example:
+ * "GET state/brightness/value"). Use a separate registry for each
+ * Aurora to keep the measurements of different controllers apart.
+ */
+public class SimpleMetricsRegistry implements MetricsRegistry
+{
+	private final Map<String, EndpointMetrics> endpoints;
+	private final AtomicInteger inFlight;
+	private final LongAdder datagramsSent;
+	private final LongAdder datagramBytesSent;
+
+	/**
+	 * Creates a new, empty registry.
+	 */
+	public SimpleMetricsRegistry()
+	{
+		this.endpoints = new ConcurrentHashMap<String, EndpointMetrics>();
+		this.inFlight = new AtomicInteger();
+		this.datagramsSent = new LongAdder();
+		this.datagramBytesSent = new LongAdder();
+	}
+
+	@Override
+	public void requestStarted(String controller, String method, String endpoint)
+	{
+		inFlight.incrementAndGet();
+		metricsFor(method, endpoint).inFlight.incrementAndGet();
+	}
+
+	@Override
+	public void requestCompleted(String controller, String method, String endpoint,
+			int statusCode, long latencyNanos, long bytesSent, long bytesReceived)
+	{
+		inFlight.decrementAndGet();
+		EndpointMetrics metrics = metricsFor(method, endpoint);
+		metrics.inFlight.decrementAndGet();
+		metrics.latency.recordNanos(latencyNanos);
+		metrics.statusCodes.computeIfAbsent(statusCode, k -> new LongAdder()).increment();
+		metrics.bytesSent.add(bytesSent);
+		metrics.bytesReceived.add(bytesReceived);
+	}
+
+	@Override
+	public void requestFailed(String controller, String method, String endpoint,
+			long latencyNanos, Exception error)
+	{
+		inFlight.decrementAndGet();
+		EndpointMetrics metrics = metricsFor(method, endpoint);
+		metrics.inFlight.decrementAndGet();
+		metrics.latency.recordNanos(latencyNanos);
+		metrics.failures.increment();
+	}
+
+	@Override
+	public void datagramSent(String controller, int bytes)
+	{
+		datagramsSent.increment();
+		datagramBytesSent.add(bytes);
+	}
+
+	/**
+	 * Gets the measurements of every endpoint that has been requested.
+	 * @return  a sorted map of "METHOD endpoint" to measurements
+	 */
+	public Map<String, EndpointMetrics> getEndpoints()
+	{
+		return Collections.unmodifiableMap(new TreeMap<String, EndpointMetrics>(endpoints));
+	}
+
+	/**
+	 * Gets the measurements of a single endpoint.
+	 * @param method  the request method (for example: "GET")
+	 * @param endpoint  the endpoint (for example: "state/brightness/value")
+	 * @return  the measurements, or null if the endpoint has not been requested
+	 */
+	public EndpointMetrics getEndpoint(String method, String endpoint)
+	{
+		return endpoints.get(method + " " + endpoint);
+	}
+
+	/**
+	 * Gets the number of requests that are currently in progress.
+	 * @return  the number of requests in progress
+	 */
+	public int getInFlight()
+	{
+		return inFlight.get();
+	}
+
+	/**
+	 * Gets the number of UDP datagrams that have been sent.
+	 * @return  the number of datagrams
+	 */
+	public long getDatagramsSent()
+	{
+		return datagramsSent.sum();
+	}
+
+	/**
+	 * Gets the total size of the UDP datagrams that have been sent.
+	 * @return  the number of bytes
+	 */
+	public long getDatagramBytesSent()
+	{
+		return datagramBytesSent.sum();
+	}
+
+	/**
+	 * Removes every measurement. Requests that are in progress
+	 * are still counted as in flight.
+	 */
+	public void reset()
+	{
+		for (EndpointMetrics metrics : endpoints.values())
+		{
+			metrics.latency.reset();
+			metrics.statusCodes.clear();
+			metrics.failures.reset();
+			metrics.bytesSent.reset();
+			metrics.bytesReceived.reset();
+		}
+		datagramsSent.reset();
+		datagramBytesSent.reset();
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, EndpointMetrics> entry : getEndpoints().entrySet())
+		{
+			sb.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+		}
+		sb.append("UDP: ").append(getDatagramsSent()).append(" datagrams, ")
+			.append(getDatagramBytesSent()).append(" bytes");
+		return sb.toString();
+	}
+
+	private EndpointMetrics metricsFor(String method, String endpoint)
+	{
+		return endpoints.computeIfAbsent(method + " " + endpoint,
+				k -> new EndpointMetrics());
+	}
+
+	/**
+	 * The measurements of a single endpoint.
+	 */
+	public static class EndpointMetrics
+	{
+		private final LatencyHistogram latency = new LatencyHistogram();
+		private final Map<Integer, LongAdder> statusCodes =
+				new ConcurrentHashMap<Integer, LongAdder>();
+		private final LongAdder failures = new LongAdder();
+		private final LongAdder bytesSent = new LongAdder();
+		private final LongAdder bytesReceived = new LongAdder();
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		private EndpointMetrics() {}
+
+		/**
+		 * Gets the latency histogram of the endpoint.
+		 * @return  the latency histogram (in microseconds)
+		 */
+		public LatencyHistogram getLatency()
+		{
+			return this.latency;
+		}
+
+		/**
+		 * Gets the number of responses with each status code.
+		 * @return  a sorted map of status code to number of responses
+		 */
+		public Map<Integer, Long> getStatusCodes()
+		{
+			Map<Integer, Long> counts = new TreeMap<Integer, Long>();
+			for (Map.Entry<Integer, LongAdder> entry : statusCodes.entrySet())
+			{
+				counts.put(entry.getKey(), entry.getValue().sum());
+			}
+			return counts;
+		}
+
+		/**
+		 * Gets the number of requests that failed without a response.
+		 * @return  the number of failed requests
+		 */
+		public long getFailures()
+		{
+			return failures.sum();
+		}
+
+		/**
+		 * Gets the total size of the request bodies.
+		 * @return  the number of bytes sent
+		 */
+		public long getBytesSent()
+		{
+			return bytesSent.sum();
+		}
+
+		/**
+		 * Gets the total size of the response bodies.
+		 * @return  the number of bytes received
+		 */
+		public long getBytesReceived()
+		{
+			return bytesReceived.sum();
+		}
+
+		/**
+		 * Gets the number of requests to the endpoint that are in progress.
+		 * @return  the number of requests in progress
+		 */
+		public int getInFlight()
+		{
+			return inFlight.get();
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("%s, status=%s, failures=%d, out=%dB, in=%dB",
+					latency, getStatusCodes(), getFailures(),
+					getBytesSent(), getBytesReceived());
+		}
+	}
+}